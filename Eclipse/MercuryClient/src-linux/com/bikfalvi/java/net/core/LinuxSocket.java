@@ -0,0 +1,528 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteOrder;
+
+/**
+ * A class representing an unprivileged Linux UDP socket with the IP_RECVERR
+ * error queue enabled, accessed through the foreign function API. The ICMP
+ * errors caused by the probes sent on this socket can be read from the error
+ * queue without raw socket privileges. The structure offsets assume a 64-bit
+ * Linux kernel.
+ * @author agent
+ *
+ */
+final class LinuxSocket
+{
+	private static final int AF_INET = 2;
+	private static final int SOCK_DGRAM = 2;
+	private static final int IPPROTO_UDP = 17;
+	private static final int SOL_IP = 0;
+	private static final int IP_TTL = 2;
+	private static final int IP_RECVERR = 11;
+	private static final int MSG_DONTWAIT = 0x40;
+	private static final int MSG_ERRQUEUE = 0x2000;
+	private static final int SOL_SOCKET = 1;
+	private static final int SO_ERROR = 4;
+	private static final int EAGAIN = 11;
+	private static final int EINTR = 4;
+	private static final int EPROTO = 71;
+	private static final int EMSGSIZE = 90;
+	private static final int ENETUNREACH = 101;
+	private static final int ECONNREFUSED = 111;
+	private static final int EHOSTDOWN = 112;
+	private static final int EHOSTUNREACH = 113;
+	private static final int sendAttempts = 4;
+
+	public static final int POLLIN = 0x1;
+	public static final int POLLERR = 0x8;
+
+	public static final int ORIGIN_ICMP = 2;
+	public static final int ICMP_DEST_UNREACH = 3;
+	public static final int ICMP_PORT_UNREACH = 3;
+	public static final int ICMP_TIME_EXCEEDED = 11;
+
+	private static final ValueLayout.OfShort NETWORK_SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+	private static final ValueLayout.OfInt NETWORK_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+	private static final int SOCKADDR_SIZE = 16;
+	private static final int MSGHDR_SIZE = 56;
+	private static final int IOVEC_SIZE = 16;
+	private static final int POLLFD_SIZE = 8;
+	private static final int DATA_SIZE = 512;
+	private static final int CONTROL_SIZE = 512;
+
+	private static final StructLayout captureLayout;
+	private static final long errnoOffset;
+	private static final MethodHandle socketHandle;
+	private static final MethodHandle setsockoptHandle;
+	private static final MethodHandle getsockoptHandle;
+	private static final MethodHandle sendtoHandle;
+	private static final MethodHandle recvmsgHandle;
+	private static final MethodHandle pollHandle;
+	private static final MethodHandle closeHandle;
+
+	/**
+	 * Initializes the static fields.
+	 */
+	static {
+		// Get the native linker.
+		Linker linker = Linker.nativeLinker();
+		Linker.Option errno = Linker.Option.captureCallState("errno");
+
+		// Set the errno capture layout.
+		captureLayout = Linker.Option.captureStateLayout();
+		errnoOffset = captureLayout.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+		// Create the downcall handles.
+		socketHandle = linker.downcallHandle(linker.defaultLookup().find("socket").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+		setsockoptHandle = linker.downcallHandle(linker.defaultLookup().find("setsockopt").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT), errno);
+		getsockoptHandle = linker.downcallHandle(linker.defaultLookup().find("getsockopt").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS), errno);
+		sendtoHandle = linker.downcallHandle(linker.defaultLookup().find("sendto").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT), errno);
+		recvmsgHandle = linker.downcallHandle(linker.defaultLookup().find("recvmsg").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT), errno);
+		pollHandle = linker.downcallHandle(linker.defaultLookup().find("poll").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT), errno);
+		closeHandle = linker.downcallHandle(linker.defaultLookup().find("close").orElseThrow(),
+			FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+	}
+
+	private final Arena arena = Arena.ofShared();
+	private final MemorySegment capture;
+	private final MemorySegment option;
+	private final MemorySegment optionLength;
+	private final MemorySegment sendAddress;
+	private final MemorySegment sendData;
+	private final MemorySegment message;
+	private final MemorySegment vector;
+	private final MemorySegment name;
+	private final MemorySegment data;
+	private final MemorySegment control;
+	private final MemorySegment pollfd;
+	private final int fd;
+
+	private int errorOrigin;
+	private int errorType;
+	private int errorCode;
+	private int errorOffender;
+	private int errorAddress;
+	private int errorPort;
+	private int errorLength;
+	private int receiveAddress;
+	private int receivePort;
+
+	/**
+	 * Gets whether the native socket is supported on the current platform.
+	 * @return True if the socket is supported, false otherwise.
+	 */
+	public static boolean isSupported() {
+		String osName = System.getProperty("os.name").toLowerCase();
+		String osArch = System.getProperty("os.arch").toLowerCase();
+		return (osName.indexOf("linux") != -1) && (osArch.equals("amd64") || osArch.equals("x86_64") || osArch.equals("aarch64"));
+	}
+
+	/**
+	 * Creates a new IPv4 UDP socket with the error queue enabled.
+	 * @throws IOException
+	 */
+	public LinuxSocket() throws IOException
+	{
+		// Check the platform.
+		if (!LinuxSocket.isSupported()) {
+			throw new IOException("The native socket is not supported on this platform.");
+		}
+
+		// Allocate the native buffers.
+		this.capture = this.arena.allocate(LinuxSocket.captureLayout);
+		this.option = this.arena.allocate(4, 4);
+		this.optionLength = this.arena.allocate(4, 4);
+		this.sendAddress = this.arena.allocate(LinuxSocket.SOCKADDR_SIZE, 8);
+		this.sendData = this.arena.allocate(LinuxSocket.DATA_SIZE, 8);
+		this.message = this.arena.allocate(LinuxSocket.MSGHDR_SIZE, 8);
+		this.vector = this.arena.allocate(LinuxSocket.IOVEC_SIZE, 8);
+		this.name = this.arena.allocate(LinuxSocket.SOCKADDR_SIZE, 8);
+		this.data = this.arena.allocate(LinuxSocket.DATA_SIZE, 8);
+		this.control = this.arena.allocate(LinuxSocket.CONTROL_SIZE, 8);
+		this.pollfd = this.arena.allocate(LinuxSocket.POLLFD_SIZE, 8);
+
+		// Set the message header, which is reused for every receive.
+		this.vector.set(ValueLayout.ADDRESS, 0, this.data);
+		this.message.set(ValueLayout.ADDRESS, 0, this.name);
+		this.message.set(ValueLayout.ADDRESS, 16, this.vector);
+		this.message.set(ValueLayout.JAVA_LONG, 24, 1L);
+		this.message.set(ValueLayout.ADDRESS, 32, this.control);
+
+		try {
+			// Create the socket.
+			this.fd = (int) LinuxSocket.socketHandle.invokeExact(this.capture, LinuxSocket.AF_INET, LinuxSocket.SOCK_DGRAM, LinuxSocket.IPPROTO_UDP);
+		}
+		catch (Throwable exception) {
+			this.arena.close();
+			throw new IOException(exception);
+		}
+		if (this.fd < 0) {
+			IOException exception = this.getException("socket");
+			this.arena.close();
+			throw exception;
+		}
+
+		// Enable the error queue.
+		try {
+			this.setOption(LinuxSocket.IP_RECVERR, 1);
+		}
+		catch (IOException exception) {
+			this.close();
+			throw exception;
+		}
+
+		// Set the poll descriptor.
+		this.pollfd.set(ValueLayout.JAVA_INT, 0, this.fd);
+		this.pollfd.set(ValueLayout.JAVA_SHORT, 4, (short)LinuxSocket.POLLIN);
+	}
+
+	/**
+	 * Sets the time-to-live for the next datagrams.
+	 * @param ttl The time-to-live.
+	 * @throws IOException
+	 */
+	public void setTimeToLive(int ttl) throws IOException {
+		this.setOption(LinuxSocket.IP_TTL, ttl);
+	}
+
+	/**
+	 * Sends a datagram to the specified IPv4 address and port. An ICMP error
+	 * received for an earlier datagram sets a pending socket error, which fails
+	 * the send: the pending error is cleared and the datagram is sent again, a
+	 * few times, after which the datagram is dropped.
+	 * @param address The packed IPv4 address.
+	 * @param port The destination port.
+	 * @param buffer The datagram payload.
+	 * @param length The payload length.
+	 * @return True if the datagram was sent, false if it was dropped because of pending errors.
+	 * @throws IOException
+	 */
+	public boolean send(int address, int port, byte[] buffer, int length) throws IOException {
+		// Set the destination address.
+		this.sendAddress.fill((byte)0);
+		this.sendAddress.set(ValueLayout.JAVA_SHORT, 0, (short)LinuxSocket.AF_INET);
+		this.sendAddress.set(LinuxSocket.NETWORK_SHORT, 2, (short)port);
+		this.sendAddress.set(LinuxSocket.NETWORK_INT, 4, address);
+		// Copy the payload.
+		length = Math.min(length, LinuxSocket.DATA_SIZE);
+		MemorySegment.copy(buffer, 0, this.sendData, ValueLayout.JAVA_BYTE, 0, length);
+
+		for (int attempt = 0; attempt < LinuxSocket.sendAttempts; attempt++) {
+			long result;
+			try {
+				result = (long) LinuxSocket.sendtoHandle.invokeExact(this.capture, this.fd, this.sendData, (long)length, 0, this.sendAddress, LinuxSocket.SOCKADDR_SIZE);
+			}
+			catch (Throwable exception) {
+				throw new IOException(exception);
+			}
+			if (result >= 0) return true;
+
+			// If the send failed for another reason than a pending ICMP error, throw.
+			if (!LinuxSocket.isPendingError(this.getErrno())) throw this.getException("sendto");
+			// Clear the pending error, which stays readable from the error queue.
+			this.clearError();
+		}
+		return false;
+	}
+
+	/**
+	 * Clears the pending socket error.
+	 * @throws IOException
+	 */
+	private void clearError() throws IOException {
+		this.optionLength.set(ValueLayout.JAVA_INT, 0, 4);
+
+		int result;
+		try {
+			result = (int) LinuxSocket.getsockoptHandle.invokeExact(this.capture, this.fd, LinuxSocket.SOL_SOCKET, LinuxSocket.SO_ERROR, this.option, this.optionLength);
+		}
+		catch (Throwable exception) {
+			throw new IOException(exception);
+		}
+		if (result < 0) {
+			throw this.getException("getsockopt");
+		}
+	}
+
+	/**
+	 * Indicates whether an errno value is a pending socket error set by an ICMP message.
+	 * @param errno The errno value.
+	 * @return True if the error was set by an ICMP message, false otherwise.
+	 */
+	private static boolean isPendingError(int errno) {
+		return (errno == LinuxSocket.ECONNREFUSED) || (errno == LinuxSocket.EHOSTUNREACH) || (errno == LinuxSocket.ENETUNREACH)
+			|| (errno == LinuxSocket.EHOSTDOWN) || (errno == LinuxSocket.EPROTO) || (errno == LinuxSocket.EMSGSIZE);
+	}
+
+	/**
+	 * Waits until the socket has data or errors to read.
+	 * @param timeout The timeout in milliseconds.
+	 * @return The returned poll events, or zero if the timeout expired.
+	 * @throws IOException
+	 */
+	public int poll(int timeout) throws IOException {
+		this.pollfd.set(ValueLayout.JAVA_SHORT, 6, (short)0);
+
+		int result;
+		try {
+			result = (int) LinuxSocket.pollHandle.invokeExact(this.capture, this.pollfd, 1L, timeout);
+		}
+		catch (Throwable exception) {
+			throw new IOException(exception);
+		}
+		if (result < 0) {
+			if (this.getErrno() == LinuxSocket.EINTR) return 0;
+			throw this.getException("poll");
+		}
+		return result == 0 ? 0 : this.pollfd.get(ValueLayout.JAVA_SHORT, 6);
+	}
+
+	/**
+	 * Reads the next message from the error queue, without blocking.
+	 * @param buffer The buffer where the payload of the original datagram is copied, or null.
+	 * @return True if a message was read, false if the error queue is empty.
+	 * @throws IOException
+	 */
+	public boolean receiveError(byte[] buffer) throws IOException {
+		// Receive the message.
+		long length = this.receive(LinuxSocket.MSG_ERRQUEUE | LinuxSocket.MSG_DONTWAIT);
+		if (length < 0) return false;
+
+		// Set the original datagram destination.
+		this.errorAddress = this.name.get(LinuxSocket.NETWORK_INT, 4);
+		this.errorPort = this.name.get(LinuxSocket.NETWORK_SHORT, 2) & 0xFFFF;
+		// Copy the original datagram payload.
+		this.errorLength = (int)Math.min(length, LinuxSocket.DATA_SIZE);
+		if (null != buffer) {
+			MemorySegment.copy(this.data, ValueLayout.JAVA_BYTE, 0, buffer, 0, Math.min(this.errorLength, buffer.length));
+		}
+
+		// Parse the control messages.
+		this.errorOrigin = 0;
+		this.errorType = 0;
+		this.errorCode = 0;
+		this.errorOffender = 0;
+		long controlLength = Math.min(this.message.get(ValueLayout.JAVA_LONG, 40), LinuxSocket.CONTROL_SIZE);
+		for (long offset = 0; offset + 16 <= controlLength; ) {
+			long cmsgLength = this.control.get(ValueLayout.JAVA_LONG, offset);
+			int cmsgLevel = this.control.get(ValueLayout.JAVA_INT, offset + 8);
+			int cmsgType = this.control.get(ValueLayout.JAVA_INT, offset + 12);
+			if (cmsgLength < 16) break;
+
+			// If the control message is an extended socket error.
+			if ((cmsgLevel == LinuxSocket.SOL_IP) && (cmsgType == LinuxSocket.IP_RECVERR) && (offset + 16 + 32 <= controlLength)) {
+				this.errorOrigin = this.control.get(ValueLayout.JAVA_BYTE, offset + 16 + 4) & 0xFF;
+				this.errorType = this.control.get(ValueLayout.JAVA_BYTE, offset + 16 + 5) & 0xFF;
+				this.errorCode = this.control.get(ValueLayout.JAVA_BYTE, offset + 16 + 6) & 0xFF;
+				// The offender address follows the extended error structure.
+				this.errorOffender = this.control.get(LinuxSocket.NETWORK_INT, offset + 16 + 16 + 4);
+			}
+			offset += (cmsgLength + 7) & ~7L;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads and discards the next datagram, without blocking.
+	 * @return True if a datagram was read, false otherwise.
+	 * @throws IOException
+	 */
+	public boolean receiveData() throws IOException {
+		// Receive the message.
+		if (this.receive(LinuxSocket.MSG_DONTWAIT) < 0) return false;
+
+		// Set the source.
+		this.receiveAddress = this.name.get(LinuxSocket.NETWORK_INT, 4);
+		this.receivePort = this.name.get(LinuxSocket.NETWORK_SHORT, 2) & 0xFFFF;
+		return true;
+	}
+
+	/**
+	 * Gets the origin of the last error message.
+	 * @return The origin.
+	 */
+	public int getErrorOrigin() {
+		return this.errorOrigin;
+	}
+
+	/**
+	 * Gets the ICMP type of the last error message.
+	 * @return The ICMP type.
+	 */
+	public int getErrorType() {
+		return this.errorType;
+	}
+
+	/**
+	 * Gets the ICMP code of the last error message.
+	 * @return The ICMP code.
+	 */
+	public int getErrorCode() {
+		return this.errorCode;
+	}
+
+	/**
+	 * Gets the address of the router that sent the last error message.
+	 * @return The packed IPv4 address.
+	 */
+	public int getErrorOffender() {
+		return this.errorOffender;
+	}
+
+	/**
+	 * Gets the destination address of the datagram that caused the last error message.
+	 * @return The packed IPv4 address.
+	 */
+	public int getErrorAddress() {
+		return this.errorAddress;
+	}
+
+	/**
+	 * Gets the destination port of the datagram that caused the last error message.
+	 * @return The port.
+	 */
+	public int getErrorPort() {
+		return this.errorPort;
+	}
+
+	/**
+	 * Gets the payload length of the datagram that caused the last error message.
+	 * @return The length.
+	 */
+	public int getErrorLength() {
+		return this.errorLength;
+	}
+
+	/**
+	 * Gets the source address of the last received datagram.
+	 * @return The packed IPv4 address.
+	 */
+	public int getReceiveAddress() {
+		return this.receiveAddress;
+	}
+
+	/**
+	 * Gets the source port of the last received datagram.
+	 * @return The port.
+	 */
+	public int getReceivePort() {
+		return this.receivePort;
+	}
+
+	/**
+	 * Closes the socket and releases the native memory.
+	 */
+	public void close() {
+		try {
+			// Close the descriptor, where the result is ignored.
+			LinuxSocket.closeHandle.invoke(this.capture, this.fd);
+		}
+		catch (Throwable exception) {
+		}
+		finally {
+			this.arena.close();
+		}
+	}
+
+	/**
+	 * Receives a message with the specified flags.
+	 * @param flags The flags.
+	 * @return The message length, or -1 if no message is available.
+	 * @throws IOException
+	 */
+	private long receive(int flags) throws IOException {
+		// Reset the message header lengths.
+		this.message.set(ValueLayout.JAVA_INT, 8, LinuxSocket.SOCKADDR_SIZE);
+		this.message.set(ValueLayout.JAVA_LONG, 40, (long)LinuxSocket.CONTROL_SIZE);
+		this.message.set(ValueLayout.JAVA_INT, 48, 0);
+		this.vector.set(ValueLayout.JAVA_LONG, 8, (long)LinuxSocket.DATA_SIZE);
+
+		long result;
+		try {
+			result = (long) LinuxSocket.recvmsgHandle.invokeExact(this.capture, this.fd, this.message, flags);
+		}
+		catch (Throwable exception) {
+			throw new IOException(exception);
+		}
+		if (result < 0) {
+			int errno = this.getErrno();
+			if ((errno == LinuxSocket.EAGAIN) || (errno == LinuxSocket.EINTR)) return -1;
+			// Pending errors are reported by a normal receive; they remain readable from the error queue.
+			if ((flags & LinuxSocket.MSG_ERRQUEUE) == 0) return -1;
+			throw this.getException("recvmsg");
+		}
+		return result;
+	}
+
+	/**
+	 * Sets an IP socket option.
+	 * @param name The option name.
+	 * @param value The option value.
+	 * @throws IOException
+	 */
+	private void setOption(int name, int value) throws IOException {
+		this.option.set(ValueLayout.JAVA_INT, 0, value);
+
+		int result;
+		try {
+			result = (int) LinuxSocket.setsockoptHandle.invokeExact(this.capture, this.fd, LinuxSocket.SOL_IP, name, this.option, 4);
+		}
+		catch (Throwable exception) {
+			throw new IOException(exception);
+		}
+		if (result < 0) {
+			throw this.getException("setsockopt");
+		}
+	}
+
+	/**
+	 * Gets the errno value captured by the last native call.
+	 * @return The errno value.
+	 */
+	private int getErrno() {
+		return this.capture.get(ValueLayout.JAVA_INT, LinuxSocket.errnoOffset);
+	}
+
+	/**
+	 * Creates an exception for the last native call.
+	 * @param function The native function.
+	 * @return The exception.
+	 */
+	private IOException getException(String function) {
+		return new IOException(String.format("The native call %s failed with error %d.", function, this.getErrno()));
+	}
+}
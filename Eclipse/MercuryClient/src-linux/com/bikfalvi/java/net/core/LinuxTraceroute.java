@@ -0,0 +1,437 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import com.bikfalvi.java.net.InetAddressExtensions;
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing an in-process traceroute for Linux. The traceroute
+ * sends UDP probes with increasing time-to-live and reads the ICMP replies
+ * from the socket error queue, without starting a traceroute process and
+ * without raw socket privileges. Only IPv4 destinations are supported. The
+ * probes of a hop are sent in sequence, each to its own destination port.
+ * @author agent
+ *
+ */
+public final class LinuxTraceroute implements TracerouteBackend
+{
+	private static final int basePort = 33433;
+	private static final int portStride = 256;
+
+	/**
+	 * A class representing the reply to a probe.
+	 */
+	private static final class Reply
+	{
+		private final TracerouteHop hop;
+		private final boolean reached;
+		private final boolean unreachable;
+
+		/**
+		 * Creates a new reply instance.
+		 * @param hop The hop.
+		 * @param reached True if the reply is from the destination, false otherwise.
+		 * @param unreachable True if a router reported the destination as unreachable, false otherwise.
+		 */
+		public Reply(TracerouteHop hop, boolean reached, boolean unreachable)
+		{
+			this.hop = hop;
+			this.reached = reached;
+			this.unreachable = unreachable;
+		}
+	}
+
+	/**
+	 * A class representing the effort of a traceroute, read once from the settings when the
+	 * traceroute starts, since a campaign deadline may change the settings while it runs.
+	 */
+	private static final class Effort
+	{
+		private final int maximumHops;
+		private final int probesPerHop;
+		private final int timeout;
+
+		/**
+		 * Creates a new effort instance.
+		 * @param settings The traceroute settings.
+		 */
+		public Effort(TracerouteSettings settings)
+		{
+			this.maximumHops = settings.getMaximumHops();
+			this.probesPerHop = Math.max(1, settings.getProbesPerHop());
+			this.timeout = settings.getTimeout();
+		}
+	}
+
+	private final TracerouteSettings settings;
+	private final TracerouteTimeout timeouts;
+	private TracerouteStopSet stopSet = null;
+
+	/**
+	 * Creates a new traceroute instance.
+	 * @param settings The traceroute settings.
+	 */
+	public LinuxTraceroute(TracerouteSettings settings)
+	{
+		this.settings = settings;
+		this.timeouts = new TracerouteTimeout(settings);
+	}
+
+	/**
+	 * Gets the timeout estimator, used when the settings enable the adaptive timeout.
+	 * @return The timeout estimator.
+	 */
+	public TracerouteTimeout getTimeouts() {
+		return this.timeouts;
+	}
+
+	/**
+	 * Gets the stop set used by the Doubletree traceroutes.
+	 * @return The stop set, or null if the traceroutes probe every hop.
+	 */
+	public TracerouteStopSet getStopSet() {
+		return this.stopSet;
+	}
+
+	/**
+	 * Sets the stop set used by the Doubletree traceroutes.
+	 * @param stopSet The stop set shared by the traceroutes of a session, or null to probe every hop.
+	 */
+	public void setStopSet(TracerouteStopSet stopSet) {
+		this.stopSet = stopSet;
+	}
+
+	/**
+	 * Gets whether the in-process traceroute is supported on the current platform.
+	 * @return True if the traceroute is supported, false otherwise.
+	 */
+	public static boolean isSupported() {
+		return LinuxSocket.isSupported();
+	}
+
+	/**
+	 * Runs a traceroute to the specified destination.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @return The result of the traceroute operation.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken) throws IOException, InterruptedException
+	{
+		return this.run(destination, cancellationToken, null);
+	}
+
+	/**
+	 * Runs a traceroute to the specified destination, notifying each hop as soon as it is received.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Override
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		// Check the destination.
+		if (!InetAddressExtensions.isInet4(destination)) {
+			throw new IOException("The in-process traceroute supports only IPv4 destinations.");
+		}
+
+		final int address = InetAddressExtensions.toInt(destination);
+		// Read the effort of the traceroute.
+		final Effort effort = new Effort(this.settings);
+
+		// If a stop set is used, run a Doubletree traceroute.
+		if (null != this.stopSet) {
+			return this.runDoubletree(destination, address, effort, cancellationToken, listener);
+		}
+
+		// Create the traceroute result.
+		TracerouteResult result = new TracerouteResult(destination);
+
+		// Create the stop rules.
+		final TracerouteTermination termination = new TracerouteTermination(this.settings, destination, effort.maximumHops);
+
+		// Create the socket.
+		final LinuxSocket socket = new LinuxSocket();
+		try {
+			for (int ttl = 1; ttl <= effort.maximumHops; ttl++) {
+				// If the operation is cancelled, return null.
+				if (cancellationToken.isCanceled()) return null;
+
+				// Send the probe and wait for the reply, where a null reply means the operation was cancelled in the probe pacer.
+				Reply reply = this.probe(socket, destination, address, ttl, effort, cancellationToken);
+				if (null == reply) return null;
+
+				// Add the hop to the traceroute result.
+				result.add(reply.hop);
+				// Notify the listener, which may stop the traceroute.
+				if ((null != listener) && !listener.hopReceived(result, reply.hop)) {
+					result.setStatus(TracerouteStatus.STOPPED);
+					break;
+				}
+
+				// If a stop rule fires, stop.
+				TracerouteStatus status = termination.add(reply.hop, reply.unreachable);
+				if (null != status) {
+					result.setStatus(status);
+					break;
+				}
+			}
+		}
+		finally {
+			// Close the socket.
+			socket.close();
+		}
+
+		// Set the status if no stop rule fired.
+		if (TracerouteStatus.UNKNOWN == result.getStatus()) {
+			result.setStatus(termination.getStatus());
+		}
+
+		// Return the result.
+		return result;
+	}
+
+	/**
+	 * Runs a Doubletree traceroute to the specified destination. The traceroute probes forward from
+	 * the start hop of the stop set until the destination or a known (interface, destination prefix)
+	 * pair, and then backward until a known interface. The listener is notified of the hops in order,
+	 * after the traceroute completes.
+	 * @param destination The destination.
+	 * @param address The packed destination address.
+	 * @param effort The effort of the traceroute.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private TracerouteResult runDoubletree(InetAddress destination, int address, Effort effort, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		final int maximumHops = effort.maximumHops;
+		final int startHop = Math.max(1, Math.min(this.stopSet.getStartHop(), maximumHops));
+		final TracerouteHop[] hops = new TracerouteHop[maximumHops + 1];
+		final TracerouteTermination termination = new TracerouteTermination(this.settings, destination, effort.maximumHops);
+		TracerouteStatus status = null;
+		int last = 0;
+
+		// Create the socket.
+		final LinuxSocket socket = new LinuxSocket();
+		try {
+			// Probe forward from the start hop.
+			for (int ttl = startHop; ttl <= maximumHops; ttl++) {
+				// If the operation is cancelled, return null.
+				if (cancellationToken.isCanceled()) return null;
+
+				// Send the probe and wait for the reply, where a null reply means the operation was cancelled in the probe pacer.
+				Reply reply = this.probe(socket, destination, address, ttl, effort, cancellationToken);
+				if (null == reply) return null;
+				hops[ttl] = reply.hop;
+				last = ttl;
+
+				// If a stop rule fires, stop.
+				if (null != (status = termination.add(reply.hop, reply.unreachable))) break;
+
+				// If the interface is in the global stop set, copy the known router hops and stop, where the path is inferred since the destination did not reply.
+				if (null != reply.hop.getAddress()) {
+					TracerouteHop[] known = this.stopSet.getGlobal(InetAddressExtensions.toInt(reply.hop.getAddress()), address);
+					if (null != known) {
+						for (int index = 0; (index < known.length) && (last < maximumHops); index++) {
+							last++;
+							hops[last] = new TracerouteHop(last, known[index].getAddress(), known[index].getRoundTripTimes());
+						}
+						status = TracerouteStatus.INFERRED;
+						break;
+					}
+				}
+			}
+
+			// Probe backward from the hop before the start hop.
+			for (int ttl = startHop - 1; ttl >= 1; ttl--) {
+				// If the operation is cancelled, return null.
+				if (cancellationToken.isCanceled()) return null;
+
+				// Send the probe and wait for the reply, where a null reply means the operation was cancelled in the probe pacer.
+				Reply reply = this.probe(socket, destination, address, ttl, effort, cancellationToken);
+				if (null == reply) return null;
+				hops[ttl] = reply.hop;
+
+				// If the destination is closer than the start hop, the path ends here.
+				if (reply.reached) {
+					last = ttl;
+					status = TracerouteStatus.COMPLETED;
+				}
+				else if (reply.unreachable && this.settings.isStopOnUnreachable()) {
+					last = ttl;
+					status = TracerouteStatus.UNREACHABLE;
+				}
+
+				// If the interface is in the local stop set, copy the known hops and stop.
+				if (null != reply.hop.getAddress()) {
+					TracerouteHop[] known = this.stopSet.getLocal(ttl, InetAddressExtensions.toInt(reply.hop.getAddress()));
+					if (null != known) {
+						System.arraycopy(known, 0, hops, 1, known.length);
+						break;
+					}
+				}
+			}
+		}
+		finally {
+			// Close the socket.
+			socket.close();
+		}
+
+		// Create the traceroute result.
+		TracerouteResult result = new TracerouteResult(destination);
+		if (null == status) status = termination.getStatus();
+		for (int ttl = 1; ttl <= last; ttl++) {
+			result.add(hops[ttl]);
+			// Notify the listener, which may stop the traceroute, such that the remaining hops are not reported.
+			if ((null != listener) && !listener.hopReceived(result, hops[ttl])) {
+				status = TracerouteStatus.STOPPED;
+				break;
+			}
+		}
+		result.setStatus(status);
+
+		// Add the result to the stop set.
+		this.stopSet.add(result);
+
+		// Return the result.
+		return result;
+	}
+
+	/**
+	 * Sends the probes of a hop in sequence, as many as the probes per hop of the settings, and
+	 * merges their replies. The hop address is the address of the first reply.
+	 * @param socket The socket.
+	 * @param destination The destination.
+	 * @param address The packed destination address.
+	 * @param ttl The time-to-live.
+	 * @param effort The effort of the traceroute.
+	 * @param cancellationToken The cancellation token.
+	 * @return The reply, or null if the operation is cancelled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private Reply probe(LinuxSocket socket, InetAddress destination, int address, int ttl, Effort effort, CancellationToken cancellationToken) throws IOException, InterruptedException
+	{
+		int count = effort.probesPerHop;
+		float[] rtts = new float[count];
+		int replies = 0;
+		InetAddress hop = null;
+		boolean reached = false;
+		boolean unreachable = false;
+		for (int probe = 0; probe < count; probe++) {
+			// Send the probe, identified by its own destination port, such that a late reply is not taken for the next probe.
+			Reply reply = this.probe(socket, destination, address, ttl, LinuxTraceroute.basePort + ttl + probe * LinuxTraceroute.portStride, effort.timeout, cancellationToken);
+			if (null == reply) return null;
+			if (null == reply.hop.getAddress()) continue;
+
+			// Merge the reply.
+			if (null == hop) hop = reply.hop.getAddress();
+			rtts[replies++] = reply.hop.getRoundTripTimes()[0];
+			reached |= reply.reached;
+			unreachable |= reply.unreachable;
+		}
+		return new Reply(new TracerouteHop(ttl, hop, Arrays.copyOf(rtts, replies)), reached, unreachable);
+	}
+
+	/**
+	 * Sends a probe with the specified time-to-live and waits for the reply. If the
+	 * settings have a probe pacer, the probe first waits for its token.
+	 * @param socket The socket.
+	 * @param destination The destination.
+	 * @param address The packed destination address.
+	 * @param ttl The time-to-live.
+	 * @param port The destination port, which identifies the probe.
+	 * @param maximumTimeout The timeout of the traceroute, in milliseconds.
+	 * @param cancellationToken The cancellation token.
+	 * @return The reply, or null if the operation is cancelled while waiting for the probe pacer.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private Reply probe(LinuxSocket socket, InetAddress destination, int address, int ttl, int port, int maximumTimeout, CancellationToken cancellationToken) throws IOException, InterruptedException
+	{
+		// Wait for the probe pacer.
+		if ((null != this.settings.getPacer()) && !this.settings.getPacer().acquire(destination, 1, cancellationToken)) {
+			return null;
+		}
+
+		// Send the probe.
+		final byte[] payload = new byte[32];
+		payload[0] = (byte)ttl;
+		socket.setTimeToLive(ttl);
+		long timestamp = System.nanoTime();
+		if (!socket.send(address, port, payload, payload.length)) {
+			// The probe was dropped because of pending errors: the hop has no reply.
+			return new Reply(new TracerouteHop(ttl, null, new float[0]), false, false);
+		}
+
+		// Wait for the reply.
+		int timeout = this.settings.isAdaptiveTimeout() ? Math.min(maximumTimeout, this.timeouts.getTimeout(ttl, destination)) : maximumTimeout;
+		long deadline = timestamp + timeout * 1000000L;
+		InetAddress hop = null;
+		float rtt = 0;
+		boolean reached = false;
+		boolean unreachable = false;
+		boolean replied = false;
+		for (long remaining = deadline - timestamp; (remaining > 0) && !replied; remaining = deadline - System.nanoTime()) {
+			int events = socket.poll((int)Math.max(1, remaining / 1000000L));
+			if (0 == events) continue;
+
+			// Read the ICMP errors.
+			while (!replied && socket.receiveError(null)) {
+				// Ignore the late replies to the previous probes.
+				if ((socket.getErrorPort() != port) || (socket.getErrorAddress() != address)) continue;
+				if (socket.getErrorOrigin() != LinuxSocket.ORIGIN_ICMP) continue;
+
+				hop = this.settings.getAddressTable().get(this.settings.getAddressTable().intern(socket.getErrorOffender()));
+				rtt = (System.nanoTime() - timestamp) / 1000000f;
+				replied = true;
+				// Only a port unreachable message from the destination means the destination was reached.
+				if (socket.getErrorType() == LinuxSocket.ICMP_DEST_UNREACH) {
+					reached = (socket.getErrorCode() == LinuxSocket.ICMP_PORT_UNREACH) && (socket.getErrorOffender() == address);
+					unreachable = !reached;
+				}
+			}
+			// Read the data, if the destination replied to the probe.
+			while (!replied && socket.receiveData()) {
+				if (socket.getReceiveAddress() != address) continue;
+				hop = destination;
+				rtt = (System.nanoTime() - timestamp) / 1000000f;
+				replied = true;
+				reached = true;
+			}
+		}
+
+		// Add the round-trip time to the timeout estimator.
+		if (replied) this.timeouts.add(ttl, destination, rtt);
+
+		return new Reply(new TracerouteHop(ttl, hop, replied ? new float[] { rtt } : new float[0]), reached, unreachable);
+	}
+}
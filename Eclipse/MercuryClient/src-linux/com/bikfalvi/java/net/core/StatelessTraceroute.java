@@ -0,0 +1,241 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.bikfalvi.java.net.InetAddressExtensions;
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing a stateless traceroute to many destinations, in the
+ * style of Yarrp. The probes for all (destination, time-to-live, probe)
+ * triples, with as many probes per hop as the settings, are sent in a
+ * randomized order from a single socket, at a fixed packets per second rate.
+ * The time-to-live and the probe are encoded in the probe destination port and
+ * the destination is returned with each ICMP error, such that the replies are
+ * matched without keeping the state of the individual traceroutes. A hop is
+ * recorded with the address of any reply, without the round-trip times.
+ * @author agent
+ *
+ */
+public final class StatelessTraceroute implements TracerouteBatch
+{
+	private static final int basePort = 33433;
+	private static final int portStride = 256;
+
+	private final TracerouteSettings settings;
+	private final Random random = new Random();
+
+	/**
+	 * Creates a new stateless traceroute instance.
+	 * @param settings The traceroute settings.
+	 */
+	public StatelessTraceroute(TracerouteSettings settings)
+	{
+		this.settings = settings;
+	}
+
+	/**
+	 * Runs a traceroute to each of the specified destinations.
+	 * @param destinations The destinations.
+	 * @param cancellationToken The cancellation token.
+	 * @return The list of results, in the order of the destinations, where the result for a non-IPv4 destination is null; or null if the operation is cancelled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Override
+	public ArrayList<TracerouteResult> run(List<InetAddress> destinations, CancellationToken cancellationToken) throws IOException, InterruptedException
+	{
+		// Read the effort once, since a campaign deadline may change the settings while the traceroute runs.
+		final int maximumHops = this.settings.getMaximumHops();
+		final int probesPerHop = Math.max(1, this.settings.getProbesPerHop());
+		final int timeout = this.settings.getTimeout();
+
+		// Create the sorted list of distinct IPv4 destinations.
+		int[] addresses = new int[destinations.size()];
+		int count = 0;
+		for (InetAddress destination : destinations) {
+			if (InetAddressExtensions.isInet4(destination)) {
+				addresses[count++] = InetAddressExtensions.toInt(destination);
+			}
+		}
+		Arrays.sort(addresses, 0, count);
+		int distinct = 0;
+		for (int index = 0; index < count; index++) {
+			if ((0 == distinct) || (addresses[distinct - 1] != addresses[index])) {
+				addresses[distinct++] = addresses[index];
+			}
+		}
+		addresses = Arrays.copyOf(addresses, distinct);
+
+		// The replies and the unreachable flags, indexed by destination and time-to-live, and the time-to-live where each destination was reached.
+		final int[] hops = new int[distinct * maximumHops];
+		final boolean[] replied = new boolean[distinct * maximumHops];
+		final boolean[] unreachable = new boolean[distinct * maximumHops];
+		final int[] reached = new int[distinct];
+
+		// Create the probe permutation: index = (multiplier * sequence + offset) mod size, with the multiplier coprime to size.
+		final long size = (long)distinct * maximumHops * probesPerHop;
+		long multiplier = 1;
+		long offset = 0;
+		if (size > 1) {
+			do {
+				multiplier = 1 + (long)(this.random.nextDouble() * (size - 1));
+			} while (StatelessTraceroute.gcd(multiplier, size) != 1);
+			offset = (long)(this.random.nextDouble() * size);
+		}
+
+		final byte[] payload = new byte[32];
+		final long interval = 1000000000L / Math.max(1, this.settings.getProbeRate());
+		final ProbePacer pacer = this.settings.getPacer();
+
+		// Create the socket.
+		final LinuxSocket socket = new LinuxSocket();
+		try {
+			long next = System.nanoTime();
+			for (long sequence = 0; sequence < size; sequence++) {
+				// If the operation is cancelled, return null.
+				if (cancellationToken.isCanceled()) return null;
+
+				// Compute the destination, time-to-live and probe of the probe.
+				long index = (multiplier * sequence + offset) % size;
+				int destination = (int)(index / (maximumHops * probesPerHop));
+				int ttl = (int)(index % maximumHops) + 1;
+				int probe = (int)(index / maximumHops % probesPerHop);
+
+				// Read the replies until the next probe is due.
+				for (long wait = next - System.nanoTime(); wait > 0; wait = next - System.nanoTime()) {
+					if (0 != socket.poll((int)Math.max(1, wait / 1000000L))) {
+						StatelessTraceroute.receive(socket, addresses, hops, replied, unreachable, reached, maximumHops);
+					}
+				}
+
+				// Wait for the probe pacer, which is shared with the other traceroutes.
+				if ((null != pacer) && !pacer.acquire(addresses[destination], 1, cancellationToken)) return null;
+
+				// Send the probe, with the time-to-live and the probe encoded in the destination port.
+				payload[0] = (byte)ttl;
+				socket.setTimeToLive(ttl);
+				// A probe dropped because of pending errors leaves its hop without reply, and the other probes continue.
+				socket.send(addresses[destination], StatelessTraceroute.basePort + ttl + probe * StatelessTraceroute.portStride, payload, payload.length);
+				next += interval;
+			}
+
+			// Read the remaining replies until the timeout.
+			long deadline = System.nanoTime() + timeout * 1000000L;
+			for (long wait = deadline - System.nanoTime(); wait > 0; wait = deadline - System.nanoTime()) {
+				if (cancellationToken.isCanceled()) return null;
+				if (0 != socket.poll((int)Math.max(1, wait / 1000000L))) {
+					StatelessTraceroute.receive(socket, addresses, hops, replied, unreachable, reached, maximumHops);
+				}
+			}
+		}
+		finally {
+			// Close the socket.
+			socket.close();
+		}
+
+		// Assemble the results, in the order of the destinations.
+		ArrayList<TracerouteResult> results = new ArrayList<TracerouteResult>(destinations.size());
+		for (InetAddress destination : destinations) {
+			if (!InetAddressExtensions.isInet4(destination)) {
+				results.add(null);
+				continue;
+			}
+			int index = Arrays.binarySearch(addresses, InetAddressExtensions.toInt(destination));
+			int length = reached[index] > 0 ? reached[index] : maximumHops;
+
+			TracerouteResult result = new TracerouteResult(destination);
+			// Apply the stop rules shared with the other backends, cutting the path at the first rule that fires.
+			TracerouteTermination termination = new TracerouteTermination(this.settings, destination, maximumHops);
+			TracerouteStatus status = null;
+			for (int ttl = 1; (ttl <= length) && (null == status); ttl++) {
+				int hop = index * maximumHops + ttl - 1;
+				TracerouteHop tracerouteHop = new TracerouteHop(ttl, replied[hop] ? this.settings.getAddressTable().get(this.settings.getAddressTable().intern(hops[hop])) : null);
+				result.add(tracerouteHop);
+				status = termination.add(tracerouteHop, unreachable[hop]);
+			}
+			result.setStatus(null != status ? status : termination.getStatus());
+			results.add(result);
+		}
+
+		// Return the results.
+		return results;
+	}
+
+	/**
+	 * Reads all pending replies from the socket and matches them to the probes.
+	 * @param socket The socket.
+	 * @param addresses The sorted destination addresses.
+	 * @param hops The hop addresses.
+	 * @param replied The hop reply flags.
+	 * @param unreachable The hop unreachable flags.
+	 * @param reached The time-to-live where each destination was reached.
+	 * @param maximumHops The maximum hops.
+	 * @throws IOException
+	 */
+	private static void receive(LinuxSocket socket, int[] addresses, int[] hops, boolean[] replied, boolean[] unreachable, int[] reached, int maximumHops) throws IOException {
+		// Read the ICMP errors.
+		while (socket.receiveError(null)) {
+			if (socket.getErrorOrigin() != LinuxSocket.ORIGIN_ICMP) continue;
+
+			// Decode the destination and time-to-live.
+			int destination = Arrays.binarySearch(addresses, socket.getErrorAddress());
+			int ttl = (socket.getErrorPort() - StatelessTraceroute.basePort) % StatelessTraceroute.portStride;
+			if ((destination < 0) || (ttl < 1) || (ttl > maximumHops)) continue;
+
+			int hop = destination * maximumHops + ttl - 1;
+			hops[hop] = socket.getErrorOffender();
+			replied[hop] = true;
+
+			if (socket.getErrorType() == LinuxSocket.ICMP_DEST_UNREACH) {
+				// Only a port unreachable from the destination reaches it, and any other unreachable message reports the destination as unreachable.
+				unreachable[hop] = (socket.getErrorCode() != LinuxSocket.ICMP_PORT_UNREACH) || (socket.getErrorOffender() != addresses[destination]);
+				// An unreachable message ends the path at the lowest such time-to-live.
+				if ((0 == reached[destination]) || (ttl < reached[destination])) {
+					reached[destination] = ttl;
+				}
+			}
+		}
+		// Discard the data, if a destination replied to a probe.
+		while (socket.receiveData()) {
+		}
+	}
+
+	/**
+	 * Computes the greatest common divisor.
+	 * @param left The left value.
+	 * @param right The right value.
+	 * @return The greatest common divisor.
+	 */
+	private static long gcd(long left, long right) {
+		while (right != 0) {
+			long remainder = left % right;
+			left = right;
+			right = remainder;
+		}
+		return left;
+	}
+}
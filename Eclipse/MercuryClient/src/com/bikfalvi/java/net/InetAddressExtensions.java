@@ -0,0 +1,69 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A class with methods for Internet addresses.
+ * @author agent
+ *
+ */
+public final class InetAddressExtensions
+{
+	/**
+	 * Packs an IPv4 address into an integer, in network order.
+	 * @param address The IPv4 address.
+	 * @return The packed address.
+	 */
+	public static int toInt(InetAddress address)
+	{
+		byte[] bytes = address.getAddress();
+		if (bytes.length != 4) throw new IllegalArgumentException("The address is not an IPv4 address.");
+		return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+	}
+
+	/**
+	 * Unpacks an IPv4 address from an integer, without a name lookup.
+	 * @param address The packed address, in network order.
+	 * @return The IPv4 address.
+	 */
+	public static InetAddress fromInt(int address)
+	{
+		try {
+			return InetAddress.getByAddress(new byte[] { (byte)(address >>> 24), (byte)(address >>> 16), (byte)(address >>> 8), (byte)address });
+		}
+		catch (UnknownHostException e) {
+			// Never thrown for an address of valid length.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Indicates whether the specified address is an IPv4 address.
+	 * @param address The address.
+	 * @return True if the address is an IPv4 address, false otherwise.
+	 */
+	public static boolean isInet4(InetAddress address)
+	{
+		return address instanceof Inet4Address;
+	}
+}
@@ -0,0 +1,308 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * A class representing a table of the distinct IPv4 and IPv6 addresses seen
+ * during a session, where each address is assigned a dense integer
+ * identifier, in the order of insertion. The table is a primitive open
+ * addressing hash table with linear probing, and keeps one canonical address
+ * object per identifier, created on demand.
+ * @author agent
+ *
+ */
+public final class AddressTable
+{
+	private int[] slots;
+	private int[] words;
+	private byte[] lengths;
+	private InetAddress[] addresses;
+	private int count = 0;
+
+	private static final int defaultCapacity = 1024;
+
+	/**
+	 * Creates a new address table instance.
+	 */
+	public AddressTable()
+	{
+		this(AddressTable.defaultCapacity);
+	}
+
+	/**
+	 * Creates a new address table instance with the specified capacity.
+	 * @param capacity The initial number of addresses.
+	 */
+	public AddressTable(int capacity)
+	{
+		capacity = Math.max(16, capacity);
+		this.slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		this.words = new int[capacity * 4];
+		this.lengths = new byte[capacity];
+		this.addresses = new InetAddress[capacity];
+	}
+
+	/**
+	 * Gets the identifier of an IPv4 address, adding the address if not present.
+	 * @param address The packed IPv4 address, in network order.
+	 * @return The identifier.
+	 */
+	public synchronized int intern(int address)
+	{
+		return this.lookup(address, 0, 0, 0, 4, null, true);
+	}
+
+	/**
+	 * Gets the identifier of an address, adding the address if not present.
+	 * @param address The IPv4 or IPv6 address bytes.
+	 * @return The identifier.
+	 */
+	public synchronized int intern(byte[] address)
+	{
+		return this.lookup(address, null, true);
+	}
+
+	/**
+	 * Gets the identifier of an address, adding the address if not present. If the address is
+	 * added, the specified instance becomes the canonical address for the identifier.
+	 * @param address The address.
+	 * @return The identifier.
+	 */
+	public synchronized int intern(InetAddress address)
+	{
+		return this.lookup(address.getAddress(), address, true);
+	}
+
+	/**
+	 * Gets the identifier of an IPv4 address.
+	 * @param address The packed IPv4 address, in network order.
+	 * @return The identifier, or -1 if the address is not present.
+	 */
+	public synchronized int find(int address)
+	{
+		return this.lookup(address, 0, 0, 0, 4, null, false);
+	}
+
+	/**
+	 * Gets the identifier of an address.
+	 * @param address The address.
+	 * @return The identifier, or -1 if the address is not present.
+	 */
+	public synchronized int find(InetAddress address)
+	{
+		return this.lookup(address.getAddress(), null, false);
+	}
+
+	/**
+	 * Gets the canonical address for an identifier.
+	 * @param id The identifier.
+	 * @return The address.
+	 */
+	public synchronized InetAddress get(int id)
+	{
+		this.check(id);
+		InetAddress address = this.addresses[id];
+		if (null == address) {
+			// Create the address on first use.
+			byte[] bytes = new byte[this.lengths[id]];
+			for (int word = 0; word < bytes.length / 4; word++) {
+				int value = this.words[id * 4 + word];
+				bytes[word * 4] = (byte)(value >>> 24);
+				bytes[word * 4 + 1] = (byte)(value >>> 16);
+				bytes[word * 4 + 2] = (byte)(value >>> 8);
+				bytes[word * 4 + 3] = (byte)value;
+			}
+			try {
+				address = InetAddress.getByAddress(bytes);
+			}
+			catch (UnknownHostException e) {
+				// Never thrown for an address of valid length.
+				throw new IllegalStateException(e);
+			}
+			this.addresses[id] = address;
+		}
+		return address;
+	}
+
+	/**
+	 * Indicates whether the address of an identifier is an IPv4 address.
+	 * @param id The identifier.
+	 * @return True if the address is IPv4, false otherwise.
+	 */
+	public synchronized boolean isInet4(int id)
+	{
+		this.check(id);
+		return this.lengths[id] == 4;
+	}
+
+	/**
+	 * Gets the packed IPv4 address of an identifier, without creating an address object.
+	 * @param id The identifier.
+	 * @return The packed address, in network order.
+	 */
+	public synchronized int getInet4Address(int id)
+	{
+		this.check(id);
+		if (this.lengths[id] != 4) throw new IllegalStateException("The address is not an IPv4 address.");
+		return this.words[id * 4];
+	}
+
+	/**
+	 * Gets the number of addresses in the table.
+	 * @return The number of addresses, which is also the next identifier.
+	 */
+	public synchronized int size() {
+		return this.count;
+	}
+
+	/**
+	 * Finds or adds an address given as bytes.
+	 * @param address The address bytes.
+	 * @param instance The address instance, or null.
+	 * @param insert True to add the address if not present, false otherwise.
+	 * @return The identifier, or -1 if the address is not present and not added.
+	 */
+	private int lookup(byte[] address, InetAddress instance, boolean insert)
+	{
+		if (address.length == 4) {
+			return this.lookup(AddressTable.pack(address, 0), 0, 0, 0, 4, instance, insert);
+		}
+		if (address.length == 16) {
+			return this.lookup(AddressTable.pack(address, 0), AddressTable.pack(address, 4), AddressTable.pack(address, 8), AddressTable.pack(address, 12), 16, instance, insert);
+		}
+		throw new IllegalArgumentException("The address is not an IPv4 or IPv6 address.");
+	}
+
+	/**
+	 * Finds or adds an address given as packed words.
+	 * @param w0 The first word.
+	 * @param w1 The second word.
+	 * @param w2 The third word.
+	 * @param w3 The fourth word.
+	 * @param length The address length in bytes.
+	 * @param instance The address instance, or null.
+	 * @param insert True to add the address if not present, false otherwise.
+	 * @return The identifier, or -1 if the address is not present and not added.
+	 */
+	private int lookup(int w0, int w1, int w2, int w3, int length, InetAddress instance, boolean insert)
+	{
+		int mask = this.slots.length - 1;
+		int hash = AddressTable.mix(((w0 * 31 + w1) * 31 + w2) * 31 + w3 + length);
+
+		// Probe the slots until the address or an empty slot is found.
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = this.slots[slot] - 1;
+			if (id < 0) {
+				if (!insert) return -1;
+				break;
+			}
+			if ((this.lengths[id] == length) && (this.words[id * 4] == w0) && (this.words[id * 4 + 1] == w1) && (this.words[id * 4 + 2] == w2) && (this.words[id * 4 + 3] == w3)) {
+				return id;
+			}
+		}
+
+		// Add the address.
+		int id = this.count++;
+		if (id == this.lengths.length) {
+			int capacity = this.lengths.length * 2;
+			this.words = Arrays.copyOf(this.words, capacity * 4);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+			this.addresses = Arrays.copyOf(this.addresses, capacity);
+		}
+		this.words[id * 4] = w0;
+		this.words[id * 4 + 1] = w1;
+		this.words[id * 4 + 2] = w2;
+		this.words[id * 4 + 3] = w3;
+		this.lengths[id] = (byte)length;
+		this.addresses[id] = instance;
+
+		// If the table is more than half full, rehash; otherwise, insert in the empty slot.
+		if (this.count * 2 > this.slots.length) {
+			this.rehash(this.slots.length * 2);
+		}
+		else {
+			this.insert(id, hash);
+		}
+		return id;
+	}
+
+	/**
+	 * Rebuilds the slots with the specified size.
+	 * @param size The number of slots, which is a power of two.
+	 */
+	private void rehash(int size)
+	{
+		this.slots = new int[size];
+		for (int id = 0; id < this.count; id++) {
+			this.insert(id, AddressTable.mix(((this.words[id * 4] * 31 + this.words[id * 4 + 1]) * 31 + this.words[id * 4 + 2]) * 31 + this.words[id * 4 + 3] + this.lengths[id]));
+		}
+	}
+
+	/**
+	 * Inserts an identifier in the first empty slot for its hash.
+	 * @param id The identifier.
+	 * @param hash The hash of the address.
+	 */
+	private void insert(int id, int hash)
+	{
+		int mask = this.slots.length - 1;
+		int slot = hash & mask;
+		while (this.slots[slot] != 0) slot = (slot + 1) & mask;
+		this.slots[slot] = id + 1;
+	}
+
+	/**
+	 * Checks an identifier.
+	 * @param id The identifier.
+	 */
+	private void check(int id)
+	{
+		if ((id < 0) || (id >= this.count)) throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Mixes the bits of a hash, such that consecutive addresses spread over the slots.
+	 * @param hash The hash.
+	 * @return The mixed hash.
+	 */
+	private static int mix(int hash)
+	{
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * Packs four address bytes into an integer, in network order.
+	 * @param address The address bytes.
+	 * @param offset The offset.
+	 * @return The packed bytes.
+	 */
+	private static int pack(byte[] address, int offset)
+	{
+		return ((address[offset] & 0xFF) << 24) | ((address[offset + 1] & 0xFF) << 16) | ((address[offset + 2] & 0xFF) << 8) | (address[offset + 3] & 0xFF);
+	}
+}
@@ -0,0 +1,438 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A class representing the result of a traceroute operation, where the hops
+ * are stored in parallel primitive arrays instead of one object per hop. The
+ * addresses are packed as integers, with one integer per hop while all hops are
+ * IPv4, and four integers per hop after the first IPv6 hop. The round-trip
+ * times of all hops are stored in a single array. When the result is created
+ * with an address table, each hop stores the identifier of its address in
+ * the table instead, such that hops can be compared by identifier.
+ * <p>
+ * The hops returned by <code>getHops()</code> are lightweight views, which
+ * hold only the hop index, and read the arrays on demand.
+ * @author agent
+ *
+ */
+public final class CompactTracerouteResult extends TracerouteResult
+{
+	private final AddressTable table;
+	private int count = 0;
+	private byte[] ttls;
+	private byte[] flags;
+	private int stride = 1;
+	private int[] addresses;
+	private char[] rttEnds;
+	private float[] rtts;
+	private int rttCount = 0;
+
+	private static final byte flagReply = 0x01;
+	private static final byte flagInet6 = 0x02;
+
+	private static final int defaultCapacity = 16;
+
+	/**
+	 * Creates a new compact traceroute result instance.
+	 * @param destination The traceroute destination.
+	 */
+	public CompactTracerouteResult(InetAddress destination)
+	{
+		this(destination, CompactTracerouteResult.defaultCapacity, null);
+	}
+
+	/**
+	 * Creates a new compact traceroute result instance with the specified capacity.
+	 * @param destination The traceroute destination.
+	 * @param capacity The initial number of hops.
+	 */
+	public CompactTracerouteResult(InetAddress destination, int capacity)
+	{
+		this(destination, capacity, null);
+	}
+
+	/**
+	 * Creates a new compact traceroute result instance, where the hops refer to their addresses by identifier.
+	 * @param destination The traceroute destination.
+	 * @param capacity The initial number of hops.
+	 * @param table The address table, or null to store the addresses in the result.
+	 */
+	public CompactTracerouteResult(InetAddress destination, int capacity, AddressTable table)
+	{
+		super(destination);
+		this.table = table;
+		capacity = Math.max(1, capacity);
+		this.ttls = new byte[capacity];
+		this.flags = new byte[capacity];
+		this.addresses = new int[capacity];
+		this.rttEnds = new char[capacity];
+		this.rtts = new float[capacity * 3];
+	}
+
+	/**
+	 * Converts a traceroute result into a compact result.
+	 * @param result The traceroute result.
+	 * @return The compact result, which is the same instance if the result is already compact.
+	 */
+	public static CompactTracerouteResult valueOf(TracerouteResult result)
+	{
+		if (result instanceof CompactTracerouteResult) return (CompactTracerouteResult)result;
+		return CompactTracerouteResult.valueOf(result, null);
+	}
+
+	/**
+	 * Converts a traceroute result into a compact result, where the hops refer to their addresses by identifier.
+	 * @param result The traceroute result.
+	 * @param table The address table, or null to store the addresses in the result.
+	 * @return The compact result.
+	 */
+	public static CompactTracerouteResult valueOf(TracerouteResult result, AddressTable table)
+	{
+		CompactTracerouteResult compact = new CompactTracerouteResult(result.getDestination(), CompactTracerouteResult.defaultCapacity, table);
+		for (TracerouteHop hop : result.getHops()) {
+			compact.add(hop);
+		}
+		compact.setStatus(result.getStatus());
+		compact.trimToSize();
+		return compact;
+	}
+
+	/**
+	 * Converts the compact result into a traceroute result with one object per hop.
+	 * @return The traceroute result.
+	 */
+	public TracerouteResult toResult()
+	{
+		TracerouteResult result = new TracerouteResult(this.getDestination());
+		for (int index = 0; index < this.count; index++) {
+			result.add(new TracerouteHop(this.getTimeToLive(index), this.getAddress(index), this.getRoundTripTimes(index)));
+		}
+		result.setStatus(this.getStatus());
+		return result;
+	}
+
+	/**
+	 * Gets the list of hops, as views over the compact arrays.
+	 * @return The list.
+	 */
+	@Override
+	public Iterable<TracerouteHop> getHops() {
+		return new Iterable<TracerouteHop>() {
+			@Override
+			public Iterator<TracerouteHop> iterator() {
+				return new Iterator<TracerouteHop>() {
+					private int index = 0;
+
+					@Override
+					public boolean hasNext() {
+						return this.index < CompactTracerouteResult.this.count;
+					}
+
+					@Override
+					public TracerouteHop next() {
+						if (this.index >= CompactTracerouteResult.this.count) throw new NoSuchElementException();
+						return new Hop(this.index++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Adds a new hop result to the traceroute result.
+	 * @param hop The hop result.
+	 */
+	@Override
+	public void add(TracerouteHop hop)
+	{
+		this.add(hop.getTimeToLive(), null != hop.getAddress() ? hop.getAddress().getAddress() : null, hop.getRoundTripTimes());
+	}
+
+	/**
+	 * Adds a new hop result to the traceroute result.
+	 * @param ttl The time-to-live, between 0 and 255.
+	 * @param address The IPv4 or IPv6 address bytes, or null if the hop did not reply.
+	 * @param rtts The round-trip times in milliseconds.
+	 */
+	public void add(int ttl, byte[] address, float[] rtts)
+	{
+		// If the address is IPv6, widen the addresses to four integers per hop, unless stored by identifier.
+		if ((null != address) && (address.length == 16) && (this.stride == 1) && (null == this.table)) {
+			int[] addresses = new int[this.ttls.length * 4];
+			for (int index = 0; index < this.count; index++) {
+				addresses[index * 4] = this.addresses[index];
+			}
+			this.addresses = addresses;
+			this.stride = 4;
+		}
+		// Grow the arrays.
+		this.ensureCapacity(this.count + 1, this.rttCount + rtts.length);
+
+		int index = this.count;
+		this.ttls[index] = (byte)ttl;
+		if (null == address) {
+			this.flags[index] = 0;
+		}
+		else if (null != this.table) {
+			this.flags[index] = address.length == 4 ? CompactTracerouteResult.flagReply : CompactTracerouteResult.flagReply | CompactTracerouteResult.flagInet6;
+			this.addresses[index] = this.table.intern(address);
+		}
+		else if (address.length == 4) {
+			this.flags[index] = CompactTracerouteResult.flagReply;
+			this.addresses[index * this.stride] = CompactTracerouteResult.pack(address, 0);
+		}
+		else {
+			this.flags[index] = CompactTracerouteResult.flagReply | CompactTracerouteResult.flagInet6;
+			for (int word = 0; word < 4; word++) {
+				this.addresses[index * 4 + word] = CompactTracerouteResult.pack(address, word * 4);
+			}
+		}
+		System.arraycopy(rtts, 0, this.rtts, this.rttCount, rtts.length);
+		this.rttCount += rtts.length;
+		this.rttEnds[index] = (char)this.rttCount;
+		this.count++;
+
+		// Add the hop to the fingerprint.
+		this.addFingerprint(ttl, address);
+	}
+
+	/**
+	 * Gets the address table.
+	 * @return The address table, or null if the addresses are stored in the result.
+	 */
+	public AddressTable getTable() {
+		return this.table;
+	}
+
+	/**
+	 * Gets the number of hops.
+	 * @return The number of hops.
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the time-to-live of a hop.
+	 * @param index The hop index.
+	 * @return The time-to-live.
+	 */
+	public int getTimeToLive(int index) {
+		this.check(index);
+		return this.ttls[index] & 0xFF;
+	}
+
+	/**
+	 * Indicates whether a hop replied.
+	 * @param index The hop index.
+	 * @return True if the hop has an address, false otherwise.
+	 */
+	public boolean hasAddress(int index) {
+		this.check(index);
+		return (this.flags[index] & CompactTracerouteResult.flagReply) != 0;
+	}
+
+	/**
+	 * Indicates whether the address of a hop is an IPv6 address.
+	 * @param index The hop index.
+	 * @return True if the address is IPv6, false otherwise.
+	 */
+	public boolean isInet6(int index) {
+		this.check(index);
+		return (this.flags[index] & CompactTracerouteResult.flagInet6) != 0;
+	}
+
+	/**
+	 * Gets the packed IPv4 address of a hop, without creating an address object.
+	 * @param index The hop index.
+	 * @return The packed address, in network order.
+	 */
+	public int getInet4Address(int index) {
+		if (!this.hasAddress(index) || this.isInet6(index)) throw new IllegalStateException("The hop does not have an IPv4 address.");
+		if (null != this.table) return this.table.getInet4Address(this.addresses[index]);
+		return this.addresses[index * this.stride];
+	}
+
+	/**
+	 * Gets the identifier of the address of a hop in the address table.
+	 * @param index The hop index.
+	 * @return The identifier, or -1 if the hop did not reply.
+	 */
+	public int getAddressId(int index) {
+		if (null == this.table) throw new IllegalStateException("The result does not have an address table.");
+		return this.hasAddress(index) ? this.addresses[index] : -1;
+	}
+
+	/**
+	 * Gets the address of a hop.
+	 * @param index The hop index.
+	 * @return The address, or null if the hop did not reply.
+	 */
+	public InetAddress getAddress(int index) {
+		if (!this.hasAddress(index)) return null;
+		if (null != this.table) return this.table.get(this.addresses[index]);
+
+		byte[] address = new byte[this.isInet6(index) ? 16 : 4];
+		for (int word = 0; word < address.length / 4; word++) {
+			int value = this.addresses[index * this.stride + word];
+			address[word * 4] = (byte)(value >>> 24);
+			address[word * 4 + 1] = (byte)(value >>> 16);
+			address[word * 4 + 2] = (byte)(value >>> 8);
+			address[word * 4 + 3] = (byte)value;
+		}
+		try {
+			return InetAddress.getByAddress(address);
+		}
+		catch (UnknownHostException e) {
+			// Never thrown for an address of valid length.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the number of round-trip times of a hop.
+	 * @param index The hop index.
+	 * @return The number of round-trip times.
+	 */
+	public int getRoundTripTimeCount(int index) {
+		this.check(index);
+		return this.rttEnds[index] - (index > 0 ? this.rttEnds[index - 1] : 0);
+	}
+
+	/**
+	 * Gets a round-trip time of a hop.
+	 * @param index The hop index.
+	 * @param rtt The round-trip time index.
+	 * @return The round-trip time in milliseconds.
+	 */
+	public float getRoundTripTime(int index, int rtt) {
+		if ((rtt < 0) || (rtt >= this.getRoundTripTimeCount(index))) throw new IndexOutOfBoundsException();
+		return this.rtts[(index > 0 ? this.rttEnds[index - 1] : 0) + rtt];
+	}
+
+	/**
+	 * Gets a copy of the round-trip times of a hop.
+	 * @param index The hop index.
+	 * @return The round-trip times in milliseconds.
+	 */
+	public float[] getRoundTripTimes(int index) {
+		int start = index > 0 ? this.rttEnds[index - 1] : 0;
+		return Arrays.copyOfRange(this.rtts, start, start + this.getRoundTripTimeCount(index));
+	}
+
+	/**
+	 * Trims the arrays to the number of hops and round-trip times.
+	 */
+	public void trimToSize()
+	{
+		int capacity = Math.max(1, this.count);
+		this.ttls = Arrays.copyOf(this.ttls, capacity);
+		this.flags = Arrays.copyOf(this.flags, capacity);
+		this.addresses = Arrays.copyOf(this.addresses, capacity * this.stride);
+		this.rttEnds = Arrays.copyOf(this.rttEnds, capacity);
+		this.rtts = Arrays.copyOf(this.rtts, this.rttCount);
+	}
+
+	/**
+	 * Grows the arrays to the specified number of hops and round-trip times.
+	 * @param hops The number of hops.
+	 * @param rtts The number of round-trip times.
+	 */
+	private void ensureCapacity(int hops, int rtts)
+	{
+		if (hops > this.ttls.length) {
+			int capacity = Math.max(hops, this.ttls.length * 2);
+			this.ttls = Arrays.copyOf(this.ttls, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+			this.addresses = Arrays.copyOf(this.addresses, capacity * this.stride);
+			this.rttEnds = Arrays.copyOf(this.rttEnds, capacity);
+		}
+		if (rtts > this.rtts.length) {
+			this.rtts = Arrays.copyOf(this.rtts, Math.max(rtts, this.rtts.length * 2));
+		}
+		if (rtts > Character.MAX_VALUE) {
+			throw new IllegalStateException("The result has too many round-trip times.");
+		}
+	}
+
+	/**
+	 * Checks a hop index.
+	 * @param index The hop index.
+	 */
+	private void check(int index)
+	{
+		if ((index < 0) || (index >= this.count)) throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Packs four address bytes into an integer, in network order.
+	 * @param address The address bytes.
+	 * @param offset The offset.
+	 * @return The packed bytes.
+	 */
+	private static int pack(byte[] address, int offset)
+	{
+		return ((address[offset] & 0xFF) << 24) | ((address[offset + 1] & 0xFF) << 16) | ((address[offset + 2] & 0xFF) << 8) | (address[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * A class representing a view of a hop in the compact result, which reads the arrays on demand.
+	 */
+	private final class Hop extends TracerouteHop
+	{
+		private final int index;
+
+		/**
+		 * Creates a new hop view instance.
+		 * @param index The hop index.
+		 */
+		private Hop(int index)
+		{
+			super(0, null);
+			this.index = index;
+		}
+
+		@Override
+		public int getTimeToLive() {
+			return CompactTracerouteResult.this.getTimeToLive(this.index);
+		}
+
+		@Override
+		public InetAddress getAddress() {
+			return CompactTracerouteResult.this.getAddress(this.index);
+		}
+
+		@Override
+		public float[] getRoundTripTimes() {
+			return CompactTracerouteResult.this.getRoundTripTimes(this.index);
+		}
+	}
+}
@@ -0,0 +1,390 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing a traceroute backend that sends the destinations to a
+ * single long-running helper process. The helper multiplexes the hop records
+ * of the concurrent traceroutes, tagged by a request identifier. When the helper
+ * is not running, the backend falls back to the traceroute command of the
+ * operating system.
+ * <p>
+ * The helper runs the in-process traceroute where it is supported, that is on
+ * Linux, in which case it sends the probes of all destinations without starting
+ * a process for each. Elsewhere, the helper itself starts the traceroute command
+ * for each destination, and only moves the processes out of the client.
+ * <p>
+ * The helper receives a copy of the traceroute settings when it starts, such
+ * that later changes of the settings, such as the reduced effort near a
+ * campaign deadline, do not apply to the helper.
+ * @author agent
+ *
+ */
+public final class HelperTracerouteBackend implements TracerouteBackend
+{
+	private final TracerouteSettings settings;
+	private final TracerouteBackend fallback;
+	private final Process process;
+	private final Writer writer;
+	private final HashMap<Integer, Request> requests = new HashMap<Integer, Request>();
+	private int id = 0;
+	private volatile boolean alive = true;
+
+	private static final int cancellationInterval = 100;
+
+	/**
+	 * Creates a new helper backend instance, starting the bundled helper in a new virtual machine.
+	 * @param settings The traceroute settings.
+	 * @throws IOException
+	 */
+	public HelperTracerouteBackend(TracerouteSettings settings) throws IOException
+	{
+		this(settings, HelperTracerouteBackend.getDefaultCommand(settings));
+	}
+
+	/**
+	 * Creates a new helper backend instance, starting the specified helper command.
+	 * @param settings The traceroute settings.
+	 * @param command The helper command, which must implement the protocol of the traceroute helper.
+	 * @throws IOException
+	 */
+	public HelperTracerouteBackend(TracerouteSettings settings, String[] command) throws IOException
+	{
+		this.settings = settings;
+		this.fallback = new ProcessTracerouteBackend(settings);
+
+		// Start the helper process.
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		this.process = builder.start();
+		this.writer = new OutputStreamWriter(this.process.getOutputStream());
+
+		// Start the thread reading the helper records.
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(this.process.getInputStream()));
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				HelperTracerouteBackend.this.read(reader);
+			}
+		}, "Traceroute helper");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Gets the command that starts the bundled traceroute helper, using the current virtual machine and class path.
+	 * @param settings The traceroute settings.
+	 * @return The command.
+	 */
+	public static String[] getDefaultCommand(TracerouteSettings settings)
+	{
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		// Forward the feature switches, such as those required by the in-process traceroute.
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (argument.startsWith("--enable-")) command.add(argument);
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(TracerouteHelper.class.getName());
+		command.add("-m");
+		command.add(Byte.toString(settings.getMaximumHops()));
+		command.add("-q");
+		command.add(Integer.toString(settings.getProbesPerHop()));
+		command.add("-w");
+		command.add(Integer.toString(settings.getTimeout()));
+		command.add("-g");
+		command.add(Integer.toString(settings.getGapLimit()));
+		command.add("-l");
+		command.add(Integer.toString(settings.getLoopLimit()));
+		if (settings.isAdaptiveTimeout()) command.add("-a");
+		if (!settings.isStopOnUnreachable()) command.add("-u");
+		if (null != settings.getPacer()) {
+			// The helper sends the probes, and paces them with its own pacer.
+			ProbePacer pacer = settings.getPacer();
+			command.add("-p");
+			command.add(String.format(Locale.US, "%f:%f:%f:%f",
+					pacer.getGlobal().getRate(),
+					pacer.getGlobal().getCapacity(),
+					pacer.getPrefixRate(),
+					pacer.getPrefixCapacity()));
+		}
+		return command.toArray(new String[command.size()]);
+	}
+
+	/**
+	 * Gets whether the helper process is running.
+	 * @return True if the helper is running, false otherwise.
+	 */
+	public boolean isAlive() {
+		return this.alive;
+	}
+
+	/**
+	 * Runs a traceroute to the specified destination using the helper process.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation, or null if the operation is cancelled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Override
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		// If the helper is not running, use the fallback backend.
+		if (!this.alive) {
+			return this.fallback.run(destination, cancellationToken, listener);
+		}
+
+		// Register the request.
+		Request request = new Request(destination, listener);
+		int id;
+		synchronized (this.requests) {
+			id = this.id++;
+			this.requests.put(id, request);
+		}
+
+		try {
+			// Send the destination to the helper.
+			this.write(String.format("trace %d %s", id, destination.getHostAddress()));
+
+			// Wait for the traceroute to complete.
+			while (!request.latch.await(HelperTracerouteBackend.cancellationInterval, TimeUnit.MILLISECONDS)) {
+				// If the operation is cancelled.
+				if (cancellationToken.isCanceled()) {
+					// Cancel the traceroute in the helper.
+					this.write(String.format("cancel %d", id));
+					// Return null.
+					return null;
+				}
+			}
+		}
+		catch (IOException exception) {
+			// The helper has stopped.
+			this.alive = false;
+		}
+		finally {
+			synchronized (this.requests) {
+				this.requests.remove(id);
+			}
+		}
+
+		// If the listener failed, throw the exception.
+		if (null != request.exception) {
+			throw request.exception;
+		}
+
+		// If the helper failed, use the fallback backend, without notifying again the hops already received from the helper.
+		if (null == request.status) {
+			return this.fallback.run(destination, cancellationToken, HelperTracerouteBackend.skip(listener, request.lastTtl));
+		}
+
+		// Return the result.
+		request.result.setStatus(request.status);
+		return request.result;
+	}
+
+	/**
+	 * Creates a listener that ignores the hops up to a time-to-live, and notifies the others to the specified listener.
+	 * @param listener The listener, or null.
+	 * @param ttl The last time-to-live to ignore.
+	 * @return The listener, or null.
+	 */
+	private static TracerouteListener skip(final TracerouteListener listener, final int ttl)
+	{
+		if ((null == listener) || (0 == ttl)) return listener;
+		return new TracerouteListener() {
+			@Override
+			public boolean hopReceived(TracerouteResult result, TracerouteHop hop) {
+				return hop.getTimeToLive() <= ttl || listener.hopReceived(result, hop);
+			}
+		};
+	}
+
+	/**
+	 * Stops the helper process.
+	 */
+	public void close()
+	{
+		try {
+			// Closing the standard input stops the helper.
+			synchronized (this.writer) {
+				this.writer.close();
+			}
+		}
+		catch (IOException exception) { }
+	}
+
+	/**
+	 * Sends a command to the helper process.
+	 * @param command The command.
+	 * @throws IOException
+	 */
+	private void write(String command) throws IOException
+	{
+		synchronized (this.writer) {
+			this.writer.write(command);
+			this.writer.write('\n');
+			this.writer.flush();
+		}
+	}
+
+	/**
+	 * Reads the helper records and dispatches them to the requests, until the helper stops.
+	 * @param reader The record reader.
+	 */
+	private void read(BufferedReader reader)
+	{
+		try {
+			for (String line = null; (line = reader.readLine()) != null; ) {
+				String[] tokens = line.split(" ");
+				if (tokens.length < 3) continue;
+
+				// Get the request.
+				Request request;
+				try {
+					synchronized (this.requests) {
+						request = this.requests.get(Integer.parseInt(tokens[1]));
+					}
+				}
+				catch (NumberFormatException exception) {
+					continue;
+				}
+				// Ignore the records of cancelled and completed requests.
+				if ((null == request) || (0 == request.latch.getCount())) continue;
+
+				if (tokens[0].equals("hop") && (tokens.length >= 4)) {
+					// Create the hop, skipping a malformed record.
+					TracerouteHop hop;
+					try {
+						float[] rtts = new float[tokens.length - 4];
+						for (int index = 0; index < rtts.length; index++) {
+							rtts[index] = Float.parseFloat(tokens[index + 4]);
+						}
+						hop = new TracerouteHop(Integer.parseInt(tokens[2]), this.parseAddress(tokens[3]), rtts);
+					}
+					catch (NumberFormatException exception) {
+						continue;
+					}
+					// Add the hop to the traceroute result.
+					request.result.add(hop);
+					request.lastTtl = Math.max(request.lastTtl, hop.getTimeToLive());
+					// Notify the listener, which may stop the traceroute.
+					boolean stop;
+					try {
+						stop = (null != request.listener) && !request.listener.hopReceived(request.result, hop);
+					}
+					catch (RuntimeException exception) {
+						// Fail only the request whose listener failed.
+						request.exception = new IOException(exception);
+						stop = true;
+					}
+					if (stop) {
+						// Cancel the traceroute in the helper, and complete the request.
+						this.write(String.format("cancel %s", tokens[1]));
+						request.status = TracerouteStatus.STOPPED;
+						request.latch.countDown();
+					}
+				}
+				else if (tokens[0].equals("done")) {
+					// Complete the request, where the record has at least three tokens.
+					try {
+						request.status = TracerouteStatus.valueOf(tokens[2]);
+					}
+					catch (IllegalArgumentException exception) {
+						request.status = TracerouteStatus.UNKNOWN;
+					}
+					request.latch.countDown();
+				}
+				else if (tokens[0].equals("error")) {
+					// Fail the request, such that it falls back.
+					request.latch.countDown();
+				}
+			}
+		}
+		catch (Exception exception) { }
+
+		// The helper has stopped: fail the pending requests, such that they fall back.
+		this.alive = false;
+		synchronized (this.requests) {
+			for (Request request : this.requests.values()) {
+				request.latch.countDown();
+			}
+		}
+		this.process.destroy();
+	}
+
+	/**
+	 * Parses the address of a hop record.
+	 * @param address The literal address, or an asterisk if the hop did not reply.
+	 * @return The address, or null if the hop did not reply.
+	 */
+	private InetAddress parseAddress(String address)
+	{
+		if (address.equals("*")) return null;
+		try {
+			AddressTable table = this.settings.getAddressTable();
+			return table.get(table.intern(InetAddress.getByName(address)));
+		}
+		catch (IOException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * A class representing a pending traceroute request.
+	 */
+	private static final class Request
+	{
+		private final TracerouteResult result;
+		private final TracerouteListener listener;
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile TracerouteStatus status = null;
+		private volatile int lastTtl = 0;
+		private volatile IOException exception = null;
+
+		/**
+		 * Creates a new request instance.
+		 * @param destination The destination.
+		 * @param listener The listener, or null.
+		 */
+		private Request(InetAddress destination, TracerouteListener listener)
+		{
+			this.result = new TracerouteResult(destination);
+			this.listener = listener;
+		}
+	}
+}
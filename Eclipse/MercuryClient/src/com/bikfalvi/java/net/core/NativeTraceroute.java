@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+
+/**
+ * A class that loads the in-process Linux traceroute and the stateless
+ * traceroute. Both use the foreign function API, which requires JDK 22 or
+ * JDK 21 with --enable-preview, and are therefore compiled separately from
+ * the src-linux source folder, against the classes of the client. The client
+ * does not reference their classes, such that it builds and runs without
+ * them, and uses the other backends when they are missing or cannot be loaded
+ * by the running virtual machine.
+ * @author agent
+ *
+ */
+public final class NativeTraceroute
+{
+	private static final String tracerouteClassName = "com.bikfalvi.java.net.core.LinuxTraceroute";
+	private static final String batchClassName = "com.bikfalvi.java.net.core.StatelessTraceroute";
+
+	private static Class<?> tracerouteClass = null;
+	private static boolean loaded = false;
+
+	/**
+	 * Private constructor.
+	 */
+	private NativeTraceroute() { }
+
+	/**
+	 * Gets whether the in-process traceroute is available and supported on the current platform.
+	 * @return True if the traceroute is supported, false otherwise.
+	 */
+	public static boolean isSupported()
+	{
+		Class<?> tracerouteClass = NativeTraceroute.getTracerouteClass();
+		if (null == tracerouteClass) return false;
+		try {
+			return (Boolean)tracerouteClass.getMethod("isSupported").invoke(null);
+		}
+		catch (Exception exception) {
+			return false;
+		}
+		catch (LinkageError error) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a new in-process traceroute.
+	 * @param settings The traceroute settings.
+	 * @param stopSet The Doubletree stop set shared by the traceroutes of a session, or null to probe every hop.
+	 * @return The traceroute backend.
+	 * @throws IOException The in-process traceroute is not supported.
+	 */
+	public static TracerouteBackend create(TracerouteSettings settings, TracerouteStopSet stopSet) throws IOException
+	{
+		// Check the traceroute.
+		if (!NativeTraceroute.isSupported()) {
+			throw new IOException("The in-process traceroute is not supported on this platform.");
+		}
+
+		try {
+			// Create the traceroute.
+			Class<?> tracerouteClass = NativeTraceroute.getTracerouteClass();
+			Object traceroute = tracerouteClass.getConstructor(TracerouteSettings.class).newInstance(settings);
+			// Set the stop set.
+			if (null != stopSet) {
+				tracerouteClass.getMethod("setStopSet", TracerouteStopSet.class).invoke(traceroute, stopSet);
+			}
+			return (TracerouteBackend)traceroute;
+		}
+		catch (Exception exception) {
+			throw new IOException("The in-process traceroute could not be created.", exception);
+		}
+		catch (LinkageError error) {
+			throw new IOException("The in-process traceroute could not be created.", error);
+		}
+	}
+
+	/**
+	 * Creates a new stateless traceroute, which sends the probes of many destinations from a single socket at the probe rate of the settings.
+	 * @param settings The traceroute settings.
+	 * @return The stateless traceroute.
+	 * @throws IOException The in-process traceroute is not supported.
+	 */
+	public static TracerouteBatch createBatch(TracerouteSettings settings) throws IOException
+	{
+		// Check the traceroute.
+		if (!NativeTraceroute.isSupported()) {
+			throw new IOException("The in-process traceroute is not supported on this platform.");
+		}
+
+		try {
+			// Create the traceroute.
+			return (TracerouteBatch)Class.forName(NativeTraceroute.batchClassName).getConstructor(TracerouteSettings.class).newInstance(settings);
+		}
+		catch (Exception exception) {
+			throw new IOException("The stateless traceroute could not be created.", exception);
+		}
+		catch (LinkageError error) {
+			throw new IOException("The stateless traceroute could not be created.", error);
+		}
+	}
+
+	/**
+	 * Loads the class of the in-process traceroute, on first use.
+	 * @return The class, or null if the class is missing or cannot be loaded.
+	 */
+	private static synchronized Class<?> getTracerouteClass()
+	{
+		if (!NativeTraceroute.loaded) {
+			NativeTraceroute.loaded = true;
+			try {
+				NativeTraceroute.tracerouteClass = Class.forName(NativeTraceroute.tracerouteClassName);
+			}
+			catch (ClassNotFoundException exception) { }
+			catch (LinkageError error) { }
+		}
+		return NativeTraceroute.tracerouteClass;
+	}
+}
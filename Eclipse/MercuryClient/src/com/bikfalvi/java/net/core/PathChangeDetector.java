@@ -0,0 +1,151 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class representing a store of the path fingerprints of the traceroute
+ * destinations, which detects whether the path to a destination changed since
+ * the last stored result by comparing the fingerprints. On disk, the store
+ * is a sequence of binary records, one per destination.
+ * @author agent
+ *
+ */
+public final class PathChangeDetector
+{
+	private static final int magic = 0x4D504346;
+
+	private final HashMap<InetAddress, Long> fingerprints = new HashMap<InetAddress, Long>();
+
+	/**
+	 * Creates an empty path change detector.
+	 */
+	public PathChangeDetector()
+	{
+	}
+
+	/**
+	 * Reads the stored fingerprints from the specified file. A partial last record is ignored.
+	 * @param file The file.
+	 * @return The path change detector.
+	 * @throws IOException
+	 */
+	public static PathChangeDetector read(File file) throws IOException
+	{
+		PathChangeDetector detector = new PathChangeDetector();
+
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			// Check the header.
+			if (stream.readInt() != PathChangeDetector.magic) {
+				throw new IOException(String.format("The file %s is not a path fingerprint store.", file));
+			}
+			// Read the records.
+			for (;;) {
+				InetAddress address;
+				long fingerprint;
+				try {
+					byte[] bytes = new byte[stream.readUnsignedByte()];
+					stream.readFully(bytes);
+					address = InetAddress.getByAddress(bytes);
+					fingerprint = stream.readLong();
+				}
+				catch (EOFException e) {
+					break;
+				}
+				detector.fingerprints.put(address, fingerprint);
+			}
+		}
+		finally {
+			stream.close();
+		}
+
+		return detector;
+	}
+
+	/**
+	 * Writes the stored fingerprints to the specified file. The fingerprints are written to a temporary
+	 * file first, which then replaces the file, such that a failed write keeps the previous fingerprints.
+	 * @param file The file.
+	 * @throws IOException
+	 */
+	public synchronized void write(File file) throws IOException
+	{
+		File temporary = new File(file.getPath() + ".tmp");
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			stream.writeInt(PathChangeDetector.magic);
+			for (Map.Entry<InetAddress, Long> entry : this.fingerprints.entrySet()) {
+				byte[] address = entry.getKey().getAddress();
+				stream.writeByte(address.length);
+				stream.write(address);
+				stream.writeLong(entry.getValue());
+			}
+		}
+		finally {
+			stream.close();
+		}
+		// Replace the file.
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Indicates whether the path of a traceroute result differs from the stored path to the same destination.
+	 * @param result The traceroute result.
+	 * @return True if the path changed or no path is stored for the destination, false otherwise.
+	 */
+	public synchronized boolean isChanged(TracerouteResult result)
+	{
+		Long fingerprint = this.fingerprints.get(result.getDestination());
+		return (null == fingerprint) || (fingerprint.longValue() != result.getFingerprint());
+	}
+
+	/**
+	 * Stores the path of a traceroute result, replacing the stored path to the same destination.
+	 * @param result The traceroute result.
+	 * @return True if the path changed or no path was stored for the destination, false otherwise.
+	 */
+	public synchronized boolean add(TracerouteResult result)
+	{
+		Long fingerprint = this.fingerprints.put(result.getDestination(), result.getFingerprint());
+		return (null == fingerprint) || (fingerprint.longValue() != result.getFingerprint());
+	}
+
+	/**
+	 * Gets the number of stored paths.
+	 * @return The number of paths.
+	 */
+	public synchronized int size() {
+		return this.fingerprints.size();
+	}
+}
@@ -0,0 +1,213 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing the probe pacing of a traceroute session. The pacer has
+ * a global token bucket limiting the probes leaving the host, and a smaller
+ * token bucket for each destination prefix (/24 for IPv4, /48 for IPv6), such
+ * that concurrent traceroutes towards the same network do not send bursts that
+ * trigger the ICMP rate limiting of the shared routers.
+ * <p>
+ * The in-process backends acquire a token for each probe. The process backends
+ * cannot pace the probes of the command, and instead acquire the tokens of the
+ * initial burst of the command before launching it.
+ * @author agent
+ *
+ */
+public final class ProbePacer
+{
+	private static final long sleepInterval = 100000000L;
+
+	private final TokenBucket global;
+	private final double prefixRate;
+	private final double prefixCapacity;
+	private final HashMap<Integer, TokenBucket> prefixes = new HashMap<Integer, TokenBucket>();
+
+	/**
+	 * Creates a new probe pacer, where the bucket capacities allow a burst of a tenth of a second.
+	 * @param globalRate The global rate in probes per second.
+	 * @param prefixRate The rate for each destination prefix in probes per second.
+	 */
+	public ProbePacer(double globalRate, double prefixRate)
+	{
+		this(globalRate, Math.max(1, globalRate / 10), prefixRate, Math.max(1, prefixRate / 10));
+	}
+
+	/**
+	 * Creates a new probe pacer.
+	 * @param globalRate The global rate in probes per second.
+	 * @param globalCapacity The global burst in probes.
+	 * @param prefixRate The rate for each destination prefix in probes per second.
+	 * @param prefixCapacity The burst for each destination prefix in probes.
+	 */
+	public ProbePacer(double globalRate, double globalCapacity, double prefixRate, double prefixCapacity)
+	{
+		this.global = new TokenBucket(globalRate, globalCapacity);
+		this.prefixRate = prefixRate;
+		this.prefixCapacity = prefixCapacity;
+	}
+
+	/**
+	 * Gets the global token bucket.
+	 * @return The token bucket.
+	 */
+	public TokenBucket getGlobal() {
+		return this.global;
+	}
+
+	/**
+	 * Gets the rate of each destination prefix.
+	 * @return The rate in probes per second.
+	 */
+	public double getPrefixRate() {
+		return this.prefixRate;
+	}
+
+	/**
+	 * Gets the burst of each destination prefix.
+	 * @return The burst in probes.
+	 */
+	public double getPrefixCapacity() {
+		return this.prefixCapacity;
+	}
+
+	/**
+	 * Gets the token bucket of the prefix of the specified destination.
+	 * @param destination The destination.
+	 * @return The token bucket.
+	 */
+	public TokenBucket getPrefix(InetAddress destination) {
+		return this.getBucket(ProbePacer.getPrefixKey(destination));
+	}
+
+	/**
+	 * Gets the token bucket of the prefix of the specified IPv4 destination.
+	 * @param destination The packed IPv4 destination.
+	 * @return The token bucket.
+	 */
+	public TokenBucket getPrefix(int destination) {
+		return this.getBucket(destination & 0xFFFFFF00);
+	}
+
+	/**
+	 * Gets the token bucket of the specified prefix, creating it if needed.
+	 * @param key The prefix key.
+	 * @return The token bucket.
+	 */
+	private synchronized TokenBucket getBucket(int key)
+	{
+		Integer prefix = Integer.valueOf(key);
+		TokenBucket bucket = this.prefixes.get(prefix);
+		if (null == bucket) {
+			bucket = new TokenBucket(this.prefixRate, this.prefixCapacity);
+			this.prefixes.put(prefix, bucket);
+		}
+		return bucket;
+	}
+
+	/**
+	 * Gets the number of destination prefixes.
+	 * @return The number of prefixes.
+	 */
+	public synchronized int getPrefixCount() {
+		return this.prefixes.size();
+	}
+
+	/**
+	 * Gets the total time the reservations waited for the prefix buckets.
+	 * @return The time in nanoseconds.
+	 */
+	public synchronized long getPrefixWaitTime()
+	{
+		long waitTime = 0;
+		for (TokenBucket bucket : this.prefixes.values()) {
+			waitTime += bucket.getWaitTime();
+		}
+		return waitTime;
+	}
+
+	/**
+	 * Waits until the specified number of probes can be sent to the destination.
+	 * @param destination The destination.
+	 * @param count The number of probes.
+	 * @param cancellationToken The cancellation token, or null.
+	 * @return True if the probes can be sent, false if the operation was canceled.
+	 * @throws InterruptedException
+	 */
+	public boolean acquire(InetAddress destination, int count, CancellationToken cancellationToken) throws InterruptedException {
+		return this.acquire(this.getPrefix(destination), count, cancellationToken);
+	}
+
+	/**
+	 * Waits until the specified number of probes can be sent to the IPv4 destination.
+	 * @param destination The packed IPv4 destination.
+	 * @param count The number of probes.
+	 * @param cancellationToken The cancellation token, or null.
+	 * @return True if the probes can be sent, false if the operation was canceled.
+	 * @throws InterruptedException
+	 */
+	public boolean acquire(int destination, int count, CancellationToken cancellationToken) throws InterruptedException {
+		return this.acquire(this.getPrefix(destination), count, cancellationToken);
+	}
+
+	/**
+	 * Waits until the specified number of probes can be sent using the prefix bucket.
+	 * @param prefix The prefix token bucket.
+	 * @param count The number of probes.
+	 * @param cancellationToken The cancellation token, or null.
+	 * @return True if the probes can be sent, false if the operation was canceled.
+	 * @throws InterruptedException
+	 */
+	private boolean acquire(TokenBucket prefix, int count, CancellationToken cancellationToken) throws InterruptedException
+	{
+		// Reserve the tokens from both buckets, and wait for the later of the two.
+		long wait = Math.max(prefix.reserve(count), this.global.reserve(count));
+		long deadline = System.nanoTime() + wait;
+
+		for (; wait > 0; wait = deadline - System.nanoTime()) {
+			// If the operation is canceled, return.
+			if ((null != cancellationToken) && cancellationToken.isCanceled()) return false;
+			long sleep = Math.min(wait, ProbePacer.sleepInterval);
+			Thread.sleep(sleep / 1000000L, (int)(sleep % 1000000L));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the key of the prefix of the specified destination.
+	 * @param destination The destination.
+	 * @return The prefix key.
+	 */
+	private static int getPrefixKey(InetAddress destination)
+	{
+		byte[] bytes = destination.getAddress();
+		if (bytes.length == 4) {
+			return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8);
+		}
+		int hash = 1;
+		for (int index = 0; index < 6; index++) hash = 31 * hash + bytes[index];
+		return hash;
+	}
+}
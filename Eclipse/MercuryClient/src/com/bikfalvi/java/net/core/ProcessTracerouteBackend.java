@@ -0,0 +1,327 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.util.Locale;
+
+import com.bikfalvi.java.async.AsyncResult;
+import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.threading.ProcessListener;
+import com.bikfalvi.java.threading.ProcessReactor;
+
+/**
+ * A class representing a traceroute backend that runs the traceroute
+ * command of the operating system in a new process, for each destination.
+ * The output of all processes is read by a single process reactor, such that
+ * a running traceroute does not need a thread of its own.
+ * <p>
+ * When the settings have a probe pacer, the backend spaces the launches of the
+ * commands by the probes of their initial burst: the Linux command sends up to
+ * sixteen probes at once, while the other commands send the probes of a hop in
+ * sequence.
+ * @author agent
+ *
+ */
+public final class ProcessTracerouteBackend implements TracerouteBackend
+{
+	private final TracerouteSettings settings;
+	private final TracerouteTimeout timeouts;
+	private final ProcessReactor reactor = new ProcessReactor();
+
+	private static final int cancellationInterval = 100;
+	private static final int simultaneousBurst = 16;
+	private static final int sequentialBurst = 3;
+
+	/**
+	 * Creates a new process traceroute backend instance.
+	 * @param settings The traceroute settings.
+	 */
+	public ProcessTracerouteBackend(TracerouteSettings settings)
+	{
+		this.settings = settings;
+		this.timeouts = new TracerouteTimeout(settings);
+	}
+
+	/**
+	 * Gets the timeout estimator, used when the settings enable the adaptive timeout.
+	 * @return The timeout estimator.
+	 */
+	public TracerouteTimeout getTimeouts() {
+		return this.timeouts;
+	}
+
+	/**
+	 * Gets the process reactor, which reads the output of the running traceroutes.
+	 * @return The process reactor.
+	 */
+	public ProcessReactor getReactor() {
+		return this.reactor;
+	}
+
+	/**
+	 * Runs a traceroute to the specified destination, parsing each hop as soon as it is output by the process.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation, or null if the operation is cancelled.
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	@Override
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		// Begin the traceroute.
+		Trace trace = this.start(destination, cancellationToken, listener, null);
+
+		// Wait for the traceroute to complete, checking the cancellation while the process is silent.
+		while (!trace.state.waitOne(ProcessTracerouteBackend.cancellationInterval)) {
+			if (cancellationToken.isCanceled()) {
+				// Kill the process, which would otherwise probe until its next output line.
+				trace.destroy();
+				trace.state.complete(null);
+				break;
+			}
+		}
+
+		// End the traceroute.
+		return this.end(trace.state);
+	}
+
+	/**
+	 * Begins an asynchronous traceroute to the specified destination. The listener and
+	 * the callback are called on the reactor thread, and must not block.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @param callback The callback of the asynchronous operation, or null.
+	 * @return The state of the asynchronous operation.
+	 * @throws IOException
+	 */
+	public TracerouteState begin(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener, TracerouteCallback callback) throws IOException
+	{
+		return this.start(destination, cancellationToken, listener, callback).state;
+	}
+
+	/**
+	 * Starts the traceroute process to the specified destination, and registers it with the reactor.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @param callback The callback of the asynchronous operation, or null.
+	 * @return The running traceroute, without a process if the operation was canceled before the start.
+	 * @throws IOException
+	 */
+	private Trace start(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener, TracerouteCallback callback) throws IOException
+	{
+		// Read the effort once, since a campaign deadline may change the settings while the traceroute runs.
+		final byte maximumHops = this.settings.getMaximumHops();
+		final int probesPerHop = this.settings.getProbesPerHop();
+		final int maximumTimeout = this.settings.getTimeout();
+
+		// Get the probe timeout.
+		int timeout = this.settings.isAdaptiveTimeout() ? Math.min(maximumTimeout, this.timeouts.getTimeout(destination)) : maximumTimeout;
+
+		// Create the traceroute command.
+		String osName = System.getProperty("os.name").toLowerCase();
+		String[] command;
+		int burst;
+		if (osName.indexOf("windows") != -1) {
+			// Windows.
+			command = new String[] { "tracert", "-d", "-w", Integer.toString(timeout), "-h", Byte.toString(maximumHops), destination.getHostAddress() }; 
+			burst = ProcessTracerouteBackend.sequentialBurst;
+		} else if (osName.indexOf("mac os x") != -1) {
+			// Mac OS, where the wait time is in whole seconds.
+			command = new String[] { "traceroute", "-n", "-w", Integer.toString((int)Math.ceil(timeout / 1000.0)), "-m", Byte.toString(maximumHops), "-q", Integer.toString(probesPerHop), destination.getHostAddress() };
+			burst = ProcessTracerouteBackend.sequentialBurst;
+		} else {
+			// Other, where only the Linux command accepts a fractional wait time, and the others take whole seconds.
+			String wait = osName.indexOf("linux") != -1 ?
+				String.format(Locale.US, "%.3f", timeout / 1000.0) : Integer.toString((int)Math.ceil(timeout / 1000.0));
+			command = new String[] { "traceroute", "-n", "-w", wait, "-m", Byte.toString(maximumHops), "-q", Integer.toString(probesPerHop), destination.getHostAddress() }; 
+			burst = ProcessTracerouteBackend.simultaneousBurst;
+		}
+
+		// Create the traceroute state.
+		final TracerouteState state = new TracerouteState(destination, callback);
+
+		// Space the launch of the command by the probes of its initial burst.
+		if (null != this.settings.getPacer()) {
+			try {
+				if (!this.settings.getPacer().acquire(destination, burst, cancellationToken)) {
+					// If the operation is canceled, complete with a null result.
+					state.complete(null);
+					return new Trace(null, state, maximumHops, cancellationToken, listener);
+				}
+			}
+			catch (InterruptedException exception) {
+				throw new InterruptedIOException("The traceroute was interrupted while waiting for the probe pacer.");
+			}
+		}
+		
+		// Create a process builder.
+		final ProcessBuilder builder = new ProcessBuilder(command);
+		final Process process = builder.start();
+
+		// Register the process with the reactor.
+		Trace trace = new Trace(process, state, maximumHops, cancellationToken, listener);
+		this.reactor.register(process, trace);
+
+		// Return the running traceroute.
+		return trace;
+	}
+
+	/**
+	 * Ends an asynchronous traceroute.
+	 * @param result The state of the asynchronous operation, which must be completed.
+	 * @return The result of the traceroute operation, or null if the operation is cancelled.
+	 * @throws IOException
+	 */
+	public TracerouteResult end(AsyncResult result) throws IOException
+	{
+		TracerouteState state = (TracerouteState)result;
+		// If the traceroute failed, throw the exception.
+		if (null != state.getException()) {
+			throw state.getException();
+		}
+		// Else, return the result.
+		return state.getResult();
+	}
+
+	/**
+	 * A class representing a running traceroute process, which parses the output lines dispatched by the reactor.
+	 */
+	private final class Trace implements ProcessListener
+	{
+		private final Process process;
+		private final TracerouteState state;
+		private final CancellationToken cancellationToken;
+		private final TracerouteListener listener;
+		private final TracerouteResult result;
+		private final TracerouteParser parser = new TracerouteParser();
+		private final TracerouteTermination termination;
+		private final AddressTable addresses;
+
+		/**
+		 * Creates a new trace instance.
+		 * @param process The traceroute process, or null if the traceroute did not start.
+		 * @param state The traceroute state.
+		 * @param maximumHops The maximum hops of the traceroute.
+		 * @param cancellationToken The cancellation token.
+		 * @param listener The listener notified of each hop, or null.
+		 */
+		private Trace(Process process, TracerouteState state, int maximumHops, CancellationToken cancellationToken, TracerouteListener listener)
+		{
+			this.process = process;
+			this.state = state;
+			this.cancellationToken = cancellationToken;
+			this.listener = listener;
+			this.result = new TracerouteResult(state.getDestination());
+			this.termination = new TracerouteTermination(ProcessTracerouteBackend.this.settings, state.getDestination(), maximumHops);
+			this.addresses = ProcessTracerouteBackend.this.settings.getAddressTable();
+		}
+
+		@Override
+		public void outputReceived(String line)
+		{
+			// If the traceroute is completed, ignore the remaining output.
+			if (this.state.isCompleted()) {
+				this.destroy();
+				return;
+			}
+
+			// If the operation is cancelled.
+			if (this.cancellationToken.isCanceled()) {
+				// Kill the process.
+				this.destroy();
+				// Complete with a null result.
+				this.state.complete(null);
+				return;
+			}
+
+			// Parse the process output line.
+			if (this.parser.parse(line)) {
+				// Create the hop.
+				float[] rtts = new float[this.parser.getRttCount()];
+				for (int index = 0; index < rtts.length; index++) {
+					rtts[index] = this.parser.getRtt(index);
+					// Add the round-trip time to the timeout estimator.
+					ProcessTracerouteBackend.this.timeouts.add(this.parser.getTimeToLive(), this.state.getDestination(), rtts[index]);
+				}
+				TracerouteHop hop = new TracerouteHop(this.parser.getTimeToLive(), this.parser.hasAddress() ? this.addresses.get(this.addresses.intern(this.parser.getAddress())) : null, rtts);
+				// Add the hop to the traceroute result.
+				this.result.add(hop);
+				// Notify the listener, which may stop the traceroute; else, evaluate the stop rules.
+				TracerouteStatus status = (null != this.listener) && !this.listener.hopReceived(this.result, hop) ?
+					TracerouteStatus.STOPPED : this.termination.add(hop, this.parser.isUnreachable());
+				if (null != status) {
+					// If the traceroute must stop, kill the process, such that the remaining hops are not probed.
+					this.destroy();
+					// Complete the result.
+					this.result.setStatus(status);
+					this.state.complete(this.result);
+				}
+			}
+		}
+
+		/**
+		 * Kills the process and closes its standard input. The reactor closes the output streams once read to the end.
+		 */
+		private void destroy()
+		{
+			if (null == this.process) return;
+			try {
+				this.process.getOutputStream().close();
+			}
+			catch (IOException exception) { }
+			this.process.destroy();
+		}
+
+		@Override
+		public void errorReceived(String line)
+		{
+			// The standard error is drained, but not parsed.
+		}
+
+		@Override
+		public void processExited(int code)
+		{
+			// If the operation is cancelled, complete with a null result.
+			if (this.cancellationToken.isCanceled()) {
+				this.state.complete(null);
+			}
+			// If the output could not be read or parsed, fail.
+			else if (code == -1) {
+				this.state.fail(new IOException("The traceroute output could not be read."));
+			}
+			// If the command was not successfull, complete with the hops parsed so far.
+			else if (code != 0) {
+				this.result.setStatus(TracerouteStatus.FAILED);
+				this.state.complete(this.result);
+			}
+			// Else, complete with the result.
+			else {
+				this.result.setStatus(this.termination.getStatus());
+				this.state.complete(this.result);
+			}
+		}
+	}
+}
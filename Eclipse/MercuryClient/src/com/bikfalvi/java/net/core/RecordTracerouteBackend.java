@@ -0,0 +1,88 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing a traceroute backend that records the results of
+ * another backend to a corpus file, for later replay.
+ * @author agent
+ *
+ */
+public final class RecordTracerouteBackend implements TracerouteBackend
+{
+	private final TracerouteBackend backend;
+	private final DataOutputStream stream;
+
+	/**
+	 * Creates a new record backend instance, appending to the specified corpus file.
+	 * @param backend The backend that performs the traceroutes.
+	 * @param file The corpus file.
+	 * @throws IOException
+	 */
+	public RecordTracerouteBackend(TracerouteBackend backend, File file) throws IOException
+	{
+		boolean empty = !file.exists() || (file.length() == 0);
+
+		this.backend = backend;
+		this.stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+
+		// Write the header to a new corpus.
+		if (empty) {
+			TracerouteCorpus.writeHeader(this.stream);
+			this.stream.flush();
+		}
+	}
+
+	@Override
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		// Run the traceroute.
+		TracerouteResult result = this.backend.run(destination, cancellationToken, listener);
+
+		// Record the result.
+		if (null != result) {
+			synchronized (this.stream) {
+				TracerouteCorpus.write(this.stream, result);
+				this.stream.flush();
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Closes the corpus file.
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		synchronized (this.stream) {
+			this.stream.close();
+		}
+	}
+}
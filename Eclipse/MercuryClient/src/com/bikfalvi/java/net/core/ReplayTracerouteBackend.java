@@ -0,0 +1,127 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * A class representing a traceroute backend that replays recorded results
+ * from a corpus, without sending any probes. Each hop is delayed by its
+ * recorded round-trip time, or by the timeout if the hop did not reply, such
+ * that the timing of a campaign is close to that of real measurements.
+ * @author agent
+ *
+ */
+public final class ReplayTracerouteBackend implements TracerouteBackend
+{
+	private final TracerouteSettings settings;
+	private final TracerouteCorpus corpus;
+	private double timeScale = 1.0;
+
+	/**
+	 * Creates a new replay backend instance.
+	 * @param settings The traceroute settings.
+	 * @param corpus The corpus of recorded results.
+	 */
+	public ReplayTracerouteBackend(TracerouteSettings settings, TracerouteCorpus corpus)
+	{
+		this.settings = settings;
+		this.corpus = corpus;
+	}
+
+	/**
+	 * Gets the scale applied to the replay delays.
+	 * @return The time scale, where 1 is real time and 0 is no delay.
+	 */
+	public double getTimeScale() {
+		return this.timeScale;
+	}
+
+	/**
+	 * Sets the scale applied to the replay delays.
+	 * @param timeScale The time scale, where 1 is real time and 0 is no delay.
+	 */
+	public void setTimeScale(double timeScale) {
+		this.timeScale = timeScale;
+	}
+
+	@Override
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		// Get the recorded result.
+		TracerouteResult recorded = this.corpus.get(destination);
+		if (null == recorded) {
+			throw new IOException("The traceroute corpus is empty.");
+		}
+
+		// Read the timeout once, since a campaign deadline may change the settings while the traceroute runs.
+		final int timeout = this.settings.getTimeout();
+
+		// Create the traceroute result.
+		TracerouteResult result = new TracerouteResult(destination);
+		// Create the stop rules.
+		final TracerouteTermination termination = new TracerouteTermination(this.settings, destination);
+
+		for (TracerouteHop recordedHop : recorded.getHops()) {
+			// If the operation is cancelled, return null.
+			if (cancellationToken.isCanceled()) return null;
+
+			// Compute the hop delay.
+			float[] rtts = recordedHop.getRoundTripTimes();
+			double delay = 0;
+			if (null == recordedHop.getAddress()) {
+				delay = timeout;
+			}
+			else {
+				for (float rtt : rtts) delay += rtt;
+			}
+			long millis = Math.round(delay * this.timeScale);
+			if (millis > 0) Thread.sleep(millis);
+
+			// The recorded destination is replaced by the requested destination.
+			InetAddress address = recordedHop.getAddress();
+			if ((null != address) && address.equals(recorded.getDestination())) {
+				address = destination;
+			}
+
+			// Add the hop to the traceroute result.
+			TracerouteHop hop = new TracerouteHop(recordedHop.getTimeToLive(), address, rtts);
+			result.add(hop);
+			// Notify the listener, which may stop the traceroute.
+			if ((null != listener) && !listener.hopReceived(result, hop)) {
+				result.setStatus(TracerouteStatus.STOPPED);
+				return result;
+			}
+
+			// If a stop rule fires, stop.
+			TracerouteStatus status = termination.add(hop, false);
+			if (null != status) {
+				result.setStatus(status);
+				return result;
+			}
+		}
+
+		// Return the result.
+		result.setStatus(termination.getStatus());
+		return result;
+	}
+}
@@ -0,0 +1,120 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+/**
+ * A class representing a token bucket, which limits the rate of probes while
+ * allowing a burst up to the bucket capacity. A caller reserves tokens and
+ * waits for the returned time; the tokens may go negative, such that later
+ * callers wait behind the earlier reservations. The bucket records the number
+ * of reservations and the time the callers had to wait.
+ * @author agent
+ *
+ */
+public final class TokenBucket
+{
+	private final double rate;
+	private final double capacity;
+	private double tokens;
+	private long timestamp;
+	private long reservations = 0;
+	private long waits = 0;
+	private long waitTime = 0;
+
+	/**
+	 * Creates a new token bucket, which is initially full.
+	 * @param rate The rate in tokens per second.
+	 * @param capacity The capacity in tokens.
+	 */
+	public TokenBucket(double rate, double capacity)
+	{
+		if ((rate <= 0) || (capacity < 1)) {
+			throw new IllegalArgumentException("The token bucket rate and capacity must be positive.");
+		}
+		this.rate = rate / 1000000000.0;
+		this.capacity = capacity;
+		this.tokens = capacity;
+		this.timestamp = System.nanoTime();
+	}
+
+	/**
+	 * Gets the rate.
+	 * @return The rate in tokens per second.
+	 */
+	public double getRate() {
+		return this.rate * 1000000000.0;
+	}
+
+	/**
+	 * Gets the capacity.
+	 * @return The capacity in tokens.
+	 */
+	public double getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Reserves the specified number of tokens.
+	 * @param count The number of tokens.
+	 * @return The time in nanoseconds the caller must wait before using the tokens.
+	 */
+	public synchronized long reserve(int count)
+	{
+		// Refill the bucket for the time elapsed since the last reservation.
+		long now = System.nanoTime();
+		this.tokens = Math.min(this.capacity, this.tokens + (now - this.timestamp) * this.rate);
+		this.timestamp = now;
+
+		// Take the tokens, and compute the time until the bucket is no longer in debt.
+		this.tokens -= count;
+		long wait = this.tokens >= 0 ? 0 : (long)Math.ceil(-this.tokens / this.rate);
+
+		// Update the statistics.
+		this.reservations++;
+		if (wait > 0) {
+			this.waits++;
+			this.waitTime += wait;
+		}
+		return wait;
+	}
+
+	/**
+	 * Gets the number of reservations.
+	 * @return The number of reservations.
+	 */
+	public synchronized long getReservations() {
+		return this.reservations;
+	}
+
+	/**
+	 * Gets the number of reservations that had to wait.
+	 * @return The number of reservations.
+	 */
+	public synchronized long getWaits() {
+		return this.waits;
+	}
+
+	/**
+	 * Gets the total time the reservations had to wait.
+	 * @return The time in nanoseconds.
+	 */
+	public synchronized long getWaitTime() {
+		return this.waitTime;
+	}
+}
@@ -0,0 +1,82 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+
+/**
+ * A class representing a link of the topology graph, copied from the graph
+ * such that it does not change as more traceroutes are added.
+ * @author agent
+ *
+ */
+public final class TopologyEdge
+{
+	private final InetAddress from;
+	private final InetAddress to;
+	private final int observations;
+	private final float minimumRtt;
+
+	/**
+	 * Creates a new topology edge instance.
+	 * @param from The address of the first hop.
+	 * @param to The address of the second hop.
+	 * @param observations The number of times the link was observed.
+	 * @param minimumRtt The minimum round-trip time to the second hop in milliseconds, or Float.MAX_VALUE if no time was measured.
+	 */
+	public TopologyEdge(InetAddress from, InetAddress to, int observations, float minimumRtt)
+	{
+		this.from = from;
+		this.to = to;
+		this.observations = observations;
+		this.minimumRtt = minimumRtt;
+	}
+
+	/**
+	 * Gets the address of the first hop.
+	 * @return The address.
+	 */
+	public InetAddress getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * Gets the address of the second hop.
+	 * @return The address.
+	 */
+	public InetAddress getTo() {
+		return this.to;
+	}
+
+	/**
+	 * Gets the number of times the link was observed.
+	 * @return The number of observations.
+	 */
+	public int getObservations() {
+		return this.observations;
+	}
+
+	/**
+	 * Gets the minimum round-trip time to the second hop.
+	 * @return The round-trip time in milliseconds, or Float.MAX_VALUE if no time was measured.
+	 */
+	public float getMinimumRtt() {
+		return this.minimumRtt;
+	}
+}
@@ -0,0 +1,499 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A class representing the router-level topology discovered by the traceroutes
+ * of a session. The nodes are the identifiers of the hop addresses in an address
+ * table, and the edges are the pairs of consecutive replying hops, with the
+ * number of observations and the minimum round-trip time to the second hop.
+ * <p>
+ * The edges are stored in parallel primitive arrays, with a linked list of the
+ * outgoing edges for each node, and an open addressing table from the node pair
+ * to the edge. The writers are serialized by a stamped lock, while the readers
+ * use optimistic reads, and only take the read lock if a write happened during
+ * the read.
+ * @author agent
+ *
+ */
+public final class TopologyGraph
+{
+	private final AddressTable addresses;
+	private final StampedLock lock = new StampedLock();
+
+	private int[] first = new int[TopologyGraph.defaultCapacity];
+	private int edges = 0;
+	private int[] from = new int[TopologyGraph.defaultCapacity];
+	private int[] to = new int[TopologyGraph.defaultCapacity];
+	private int[] next = new int[TopologyGraph.defaultCapacity];
+	private int[] observations = new int[TopologyGraph.defaultCapacity];
+	private float[] minimumRtts = new float[TopologyGraph.defaultCapacity];
+	private long[] keys = new long[TopologyGraph.defaultCapacity * 2];
+	private int[] slots = new int[TopologyGraph.defaultCapacity * 2];
+
+	private static final int defaultCapacity = 1024;
+
+	private static final int fieldFrom = 0;
+	private static final int fieldTo = 1;
+	private static final int fieldObservations = 2;
+
+	/**
+	 * Creates a new topology graph instance.
+	 * @param addresses The address table, which assigns the node identifiers.
+	 */
+	public TopologyGraph(AddressTable addresses)
+	{
+		this.addresses = addresses;
+		Arrays.fill(this.first, -1);
+	}
+
+	/**
+	 * Gets the address table, which assigns the node identifiers.
+	 * @return The address table.
+	 */
+	public AddressTable getAddresses() {
+		return this.addresses;
+	}
+
+	/**
+	 * Adds the links of a traceroute result to the graph. A link is added between two hops that
+	 * replied at consecutive time-to-live values.
+	 * @param result The traceroute result.
+	 */
+	public void add(TracerouteResult result)
+	{
+		// Get the address identifiers and the minimum round-trip times of the hops, outside the lock.
+		int count = 0;
+		if (result instanceof CompactTracerouteResult) count = ((CompactTracerouteResult)result).size();
+		else for (@SuppressWarnings("unused") TracerouteHop hop : result.getHops()) count++;
+		int[] ttls = new int[count];
+		int[] ids = new int[count];
+		float[] rtts = new float[count];
+		int index = 0;
+		if ((result instanceof CompactTracerouteResult) && (((CompactTracerouteResult)result).getTable() == this.addresses)) {
+			// Read the identifiers from a compact result on the same table, without creating the hops.
+			CompactTracerouteResult compact = (CompactTracerouteResult)result;
+			for (; index < count; index++) {
+				ttls[index] = compact.getTimeToLive(index);
+				ids[index] = compact.getAddressId(index);
+				rtts[index] = Float.MAX_VALUE;
+				for (int rtt = 0; rtt < compact.getRoundTripTimeCount(index); rtt++) rtts[index] = Math.min(rtts[index], compact.getRoundTripTime(index, rtt));
+			}
+		}
+		else {
+			for (TracerouteHop hop : result.getHops()) {
+				ttls[index] = hop.getTimeToLive();
+				ids[index] = null != hop.getAddress() ? this.addresses.intern(hop.getAddress()) : -1;
+				rtts[index] = Float.MAX_VALUE;
+				for (float rtt : hop.getRoundTripTimes()) rtts[index] = Math.min(rtts[index], rtt);
+				index++;
+			}
+		}
+
+		// Add the links.
+		long stamp = this.lock.writeLock();
+		try {
+			for (index = 1; index < count; index++) {
+				if ((ids[index - 1] < 0) || (ids[index] < 0) || (ttls[index] != ttls[index - 1] + 1) || (ids[index - 1] == ids[index])) continue;
+				this.addEdge(ids[index - 1], ids[index], rtts[index]);
+			}
+		}
+		finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the number of edges.
+	 * @return The number of edges, which is also the next edge identifier.
+	 */
+	public int getEdgeCount() {
+		long stamp = this.lock.tryOptimisticRead();
+		int edges = this.edges;
+		if (this.lock.validate(stamp)) return edges;
+
+		stamp = this.lock.readLock();
+		try {
+			return this.edges;
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Finds the edge between two nodes.
+	 * @param from The identifier of the first node.
+	 * @param to The identifier of the second node.
+	 * @return The edge identifier, or -1 if the nodes are not linked.
+	 */
+	public int findEdge(int from, int to)
+	{
+		long stamp = this.lock.tryOptimisticRead();
+		try {
+			int edge = this.find(from, to);
+			if (this.lock.validate(stamp)) return edge;
+		}
+		catch (RuntimeException exception) {
+			// The arrays changed during the optimistic read.
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.find(from, to);
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Gets the first node of an edge.
+	 * @param edge The edge identifier.
+	 * @return The node identifier.
+	 */
+	public int getFrom(int edge) {
+		return this.read(TopologyGraph.fieldFrom, edge);
+	}
+
+	/**
+	 * Gets the second node of an edge.
+	 * @param edge The edge identifier.
+	 * @return The node identifier.
+	 */
+	public int getTo(int edge) {
+		return this.read(TopologyGraph.fieldTo, edge);
+	}
+
+	/**
+	 * Gets the number of times an edge was observed.
+	 * @param edge The edge identifier.
+	 * @return The number of observations.
+	 */
+	public int getObservations(int edge) {
+		return this.read(TopologyGraph.fieldObservations, edge);
+	}
+
+	/**
+	 * Gets the minimum round-trip time to the second node of an edge.
+	 * @param edge The edge identifier.
+	 * @return The round-trip time in milliseconds, or Float.MAX_VALUE if no time was measured.
+	 */
+	public float getMinimumRtt(int edge)
+	{
+		long stamp = this.lock.tryOptimisticRead();
+		try {
+			float[] minimumRtts = this.minimumRtts;
+			int edges = this.edges;
+			if ((edge >= 0) && (edge < edges)) {
+				float value = minimumRtts[edge];
+				if (this.lock.validate(stamp)) return value;
+			}
+		}
+		catch (RuntimeException exception) {
+			// The arrays changed during the optimistic read.
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			if ((edge < 0) || (edge >= this.edges)) throw new IndexOutOfBoundsException();
+			return this.minimumRtts[edge];
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Gets the nodes linked from a node.
+	 * @param node The node identifier.
+	 * @return The identifiers of the linked nodes.
+	 */
+	public int[] getSuccessors(int node)
+	{
+		long stamp = this.lock.tryOptimisticRead();
+		try {
+			int[] successors = this.successors(node);
+			if (this.lock.validate(stamp)) return successors;
+		}
+		catch (RuntimeException exception) {
+			// The arrays changed during the optimistic read.
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.successors(node);
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Copies the edges of the graph under the read lock, such that the copy is consistent.
+	 * @return The edges, in the order of their identifiers.
+	 */
+	public TopologyEdge[] snapshot()
+	{
+		// Copy the edge arrays.
+		int[] from;
+		int[] to;
+		int[] observations;
+		float[] minimumRtts;
+		long stamp = this.lock.readLock();
+		try {
+			from = Arrays.copyOf(this.from, this.edges);
+			to = Arrays.copyOf(this.to, this.edges);
+			observations = Arrays.copyOf(this.observations, this.edges);
+			minimumRtts = Arrays.copyOf(this.minimumRtts, this.edges);
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+
+		// Create the edges, resolving the addresses outside the lock.
+		TopologyEdge[] edges = new TopologyEdge[from.length];
+		for (int edge = 0; edge < edges.length; edge++) {
+			edges[edge] = new TopologyEdge(this.addresses.get(from[edge]), this.addresses.get(to[edge]), observations[edge], minimumRtts[edge]);
+		}
+		return edges;
+	}
+
+	/**
+	 * Writes the edges of the graph to the specified file, one per line, as the two addresses, the number
+	 * of observations and the minimum round-trip time in milliseconds, where a dash means no time was measured.
+	 * The edges are written to a temporary file first, which then replaces the file.
+	 * @param file The file.
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException
+	{
+		TopologyEdge[] edges = this.snapshot();
+
+		File temporary = new File(file.getPath() + ".tmp");
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary), Charset.forName("UTF-8")));
+		try {
+			for (TopologyEdge edge : edges) {
+				writer.write(String.format(Locale.US, "%s %s %d %s\n",
+						edge.getFrom().getHostAddress(),
+						edge.getTo().getHostAddress(),
+						edge.getObservations(),
+						edge.getMinimumRtt() != Float.MAX_VALUE ? String.format(Locale.US, "%.3f", edge.getMinimumRtt()) : "-"));
+			}
+		}
+		finally {
+			writer.close();
+		}
+		// Replace the file.
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads an edge value, with an optimistic read.
+	 * @param field The field of the edge.
+	 * @param edge The edge identifier.
+	 * @return The value.
+	 */
+	private int read(int field, int edge)
+	{
+		long stamp = this.lock.tryOptimisticRead();
+		try {
+			int[] values = this.select(field);
+			int edges = this.edges;
+			if ((edge >= 0) && (edge < edges)) {
+				int value = values[edge];
+				if (this.lock.validate(stamp)) return value;
+			}
+		}
+		catch (RuntimeException exception) {
+			// The arrays changed during the optimistic read.
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			if ((edge < 0) || (edge >= this.edges)) throw new IndexOutOfBoundsException();
+			return this.select(field)[edge];
+		}
+		finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Selects the current array of an edge field, which is replaced when the edges grow.
+	 * @param field The field of the edge.
+	 * @return The array.
+	 */
+	private int[] select(int field)
+	{
+		switch (field) {
+		case TopologyGraph.fieldFrom: return this.from;
+		case TopologyGraph.fieldTo: return this.to;
+		default: return this.observations;
+		}
+	}
+
+	/**
+	 * Gets the nodes linked from a node, without locking.
+	 * @param node The node identifier.
+	 * @return The identifiers of the linked nodes.
+	 */
+	private int[] successors(int node)
+	{
+		int[] first = this.first;
+		int[] next = this.next;
+		int[] to = this.to;
+		if ((node < 0) || (node >= first.length)) return new int[0];
+
+		// Count the edges, bounded such that an inconsistent optimistic read cannot loop forever.
+		int count = 0;
+		for (int edge = first[node]; (edge >= 0) && (count <= this.edges); edge = next[edge]) count++;
+
+		int[] successors = new int[count];
+		int index = 0;
+		for (int edge = first[node]; (edge >= 0) && (index < count); edge = next[edge]) successors[index++] = to[edge];
+		return successors;
+	}
+
+	/**
+	 * Finds the edge between two nodes, without locking.
+	 * @param from The identifier of the first node.
+	 * @param to The identifier of the second node.
+	 * @return The edge identifier, or -1 if the nodes are not linked.
+	 */
+	private int find(int from, int to)
+	{
+		long[] keys = this.keys;
+		int[] slots = this.slots;
+		long key = TopologyGraph.key(from, to);
+		int mask = slots.length - 1;
+		for (int slot = TopologyGraph.hash(key) & mask, probes = 0; probes < slots.length; slot = (slot + 1) & mask, probes++) {
+			if (0 == slots[slot]) return -1;
+			if (keys[slot] == key) return slots[slot] - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds an observation of an edge, under the write lock.
+	 * @param from The identifier of the first node.
+	 * @param to The identifier of the second node.
+	 * @param rtt The round-trip time to the second node.
+	 */
+	private void addEdge(int from, int to, float rtt)
+	{
+		// If the edge exists, update it.
+		int edge = this.find(from, to);
+		if (edge >= 0) {
+			this.observations[edge]++;
+			this.minimumRtts[edge] = Math.min(this.minimumRtts[edge], rtt);
+			return;
+		}
+
+		// Grow the arrays.
+		edge = this.edges;
+		if (edge == this.from.length) {
+			int capacity = this.from.length * 2;
+			this.from = Arrays.copyOf(this.from, capacity);
+			this.to = Arrays.copyOf(this.to, capacity);
+			this.next = Arrays.copyOf(this.next, capacity);
+			this.observations = Arrays.copyOf(this.observations, capacity);
+			this.minimumRtts = Arrays.copyOf(this.minimumRtts, capacity);
+		}
+		int nodes = Math.max(from, to) + 1;
+		if (nodes > this.first.length) {
+			int capacity = Math.max(nodes, this.first.length * 2);
+			int length = this.first.length;
+			this.first = Arrays.copyOf(this.first, capacity);
+			Arrays.fill(this.first, length, capacity, -1);
+		}
+
+		// Add the edge, and link it to the first node.
+		this.from[edge] = from;
+		this.to[edge] = to;
+		this.observations[edge] = 1;
+		this.minimumRtts[edge] = rtt;
+		this.next[edge] = this.first[from];
+		this.first[from] = edge;
+		this.edges++;
+
+		// Index the edge, growing the table when more than half full.
+		if (this.edges * 2 > this.slots.length) {
+			this.keys = new long[this.slots.length * 2];
+			this.slots = new int[this.slots.length * 2];
+			for (int index = 0; index < this.edges; index++) {
+				this.index(TopologyGraph.key(this.from[index], this.to[index]), index);
+			}
+		}
+		else {
+			this.index(TopologyGraph.key(from, to), edge);
+		}
+	}
+
+	/**
+	 * Inserts an edge in the first empty slot for its key.
+	 * @param key The key.
+	 * @param edge The edge identifier.
+	 */
+	private void index(long key, int edge)
+	{
+		int mask = this.slots.length - 1;
+		int slot = TopologyGraph.hash(key) & mask;
+		while (this.slots[slot] != 0) slot = (slot + 1) & mask;
+		this.keys[slot] = key;
+		this.slots[slot] = edge + 1;
+	}
+
+	/**
+	 * Gets the key of a node pair.
+	 * @param from The identifier of the first node.
+	 * @param to The identifier of the second node.
+	 * @return The key.
+	 */
+	private static long key(int from, int to)
+	{
+		return ((long)from << 32) | (to & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Hashes a key.
+	 * @param key The key.
+	 * @return The hash.
+	 */
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+}
@@ -18,32 +18,44 @@
 
 package com.bikfalvi.java.net.core;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.bikfalvi.java.async.AsyncResult;
 import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.threading.ThreadPool;
 
 /**
  * A class representing a traceroute for the Internet Protocol.
  */
 public final class Traceroute
 {
-	private final TracerouteSettings settings;
+	private final TracerouteBackend backend;
 
 	/**
-	 * Creates a new traceroute instance.
+	 * Creates a new traceroute instance, which runs the traceroute command of the operating system.
 	 * @param settings The traceroute settings.
 	 */
 	public Traceroute(TracerouteSettings settings)
 	{
-		this.settings = settings;
+		this(new ProcessTracerouteBackend(settings));
+	}
+
+	/**
+	 * Creates a new traceroute instance using the specified backend.
+	 * @param backend The traceroute backend.
+	 */
+	public Traceroute(TracerouteBackend backend)
+	{
+		this.backend = backend;
+	}
+
+	/**
+	 * Gets the traceroute backend.
+	 * @return The backend.
+	 */
+	public TracerouteBackend getBackend() {
+		return this.backend;
 	}
 
 	/**
@@ -56,85 +68,81 @@ public final class Traceroute
 	 */
 	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken) throws IOException, InterruptedException
 	{
-		// Create the traceroute command.
-		String osName = System.getProperty("os.name").toLowerCase();
-		String[] command;
-		if (osName.indexOf("windows") != -1) {
-			// Windows.
-			command = new String[] { "tracert", "-d", "-w", Integer.toString(this.settings.getTimeout()), "-h", Byte.toString(this.settings.getMaximumHops()), destination.getHostAddress() }; 
-		} else if (osName.indexOf("mac os x") != -1) {
-			// Mac OS.
-			command = new String[] { "traceroute", "-n", "-w", Integer.toString((int)Math.ceil(this.settings.getTimeout() / 1000.0)), "-m", Byte.toString(this.settings.getMaximumHops()), destination.getHostAddress() };
-		} else {
-			// Other.
-			command = new String[] { "traceroute", "-n", "-w", Integer.toString((int)Math.ceil(this.settings.getTimeout() / 1000.0)), "-m", Byte.toString(this.settings.getMaximumHops()), destination.getHostAddress() }; 
-		}
-		
-		// Create a process builder.
-		final ProcessBuilder builder = new ProcessBuilder(command);
-		final Process process = builder.start();
-		
-		final InputStream stream = process.getInputStream();
-		final InputStreamReader reader = new InputStreamReader(stream);
-		final BufferedReader bufferedReader = new BufferedReader(reader);
-		final ArrayList<String> lines = new ArrayList<String>();
-		
-		// Read the lines from the process output.
-		for (String line = null; (line = bufferedReader.readLine()) != null; ) {
-			
-			// If the operation is cancelled.
-			if (cancellationToken.isCanceled()) {
-				// Kill the process.
-				process.destroy();
-				// Return null.
-				return null;
-			}
-			
-			// Add the process output line.
-			lines.add(line);
+		return this.backend.run(destination, cancellationToken, null);
+	}
+
+	/**
+	 * Runs a traceroute to the specified destination, notifying each hop as soon as it is available.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation.
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException
+	{
+		return this.backend.run(destination, cancellationToken, listener);
+	}
+
+	/**
+	 * Begins an asynchronous traceroute to the specified destination. The process backend
+	 * runs the traceroute without a thread of its own, while the other backends run it
+	 * on the thread pool.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @param callback The callback of the asynchronous operation, or null.
+	 * @return The state of the asynchronous operation.
+	 * @throws IOException
+	 */
+	public TracerouteState begin(final InetAddress destination, final CancellationToken cancellationToken, final TracerouteListener listener, TracerouteCallback callback) throws IOException
+	{
+		// If the backend reads the process output with a reactor, begin the traceroute on the backend.
+		if (this.backend instanceof ProcessTracerouteBackend) {
+			return ((ProcessTracerouteBackend)this.backend).begin(destination, cancellationToken, listener, callback);
 		}
-		
-		// Wait for the process to complete.
-		int code = process.waitFor();
 
-		// Create the traceroute result.
-		TracerouteResult result = new TracerouteResult(destination);
-		
-		// Patterns
-		final String patternHop = "(^\\s+\\d{1,2}|^\\d{1,2})";
-		final String patternIp = "([0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3})";
+		// Create the traceroute state.
+		final TracerouteState state = new TracerouteState(destination, callback);
 
-		Matcher matcherReply;
-		
-		// If the command was successfull.
-		if (code == 0) {
-			// Parse all lines.
-			for (String line : lines) {
-				// If the line matches a hop.
-				if ((matcherReply = Pattern.compile(patternHop).matcher(line)).find()) {
-					try {
-						// Parse the TTL.
-						int ttl = Integer.parseInt(matcherReply.group(0).trim());
-						InetAddress address = null; 
-						
-						try {
-							// Parse the address.
-							if ((matcherReply = Pattern.compile(patternIp).matcher(line)).find()) {
-								address = InetAddress.getByName(matcherReply.group(0));
-							}
-						}
-						catch (UnknownHostException e) {							
-						}
-						
-						// Add the hop to the traceroute result.
-						result.add(new TracerouteHop(ttl, address));
-					} catch(NumberFormatException e) {
-					}
+		// Execute the traceroute on the thread pool.
+		ThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					state.complete(Traceroute.this.backend.run(destination, cancellationToken, listener));
+				}
+				catch (IOException exception) {
+					state.fail(exception);
+				}
+				catch (InterruptedException exception) {
+					state.complete(null);
+				}
+				catch (RuntimeException exception) {
+					// Fail the traceroute, such that the caller does not wait forever.
+					state.fail(new IOException(exception));
 				}
 			}
-		}
+		});
+		// Return the traceroute state.
+		return state;
+	}
 
-		// Return the result.
-		return result;
+	/**
+	 * Ends an asynchronous traceroute.
+	 * @param result The state of the asynchronous operation, which must be completed.
+	 * @return The result of the traceroute operation, or null if the operation is cancelled.
+	 * @throws IOException
+	 */
+	public TracerouteResult end(AsyncResult result) throws IOException
+	{
+		TracerouteState state = (TracerouteState)result;
+		// If the traceroute failed, throw the exception.
+		if (null != state.getException()) {
+			throw state.getException();
+		}
+		// Else, return the result.
+		return state.getResult();
 	}
 }
@@ -0,0 +1,43 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * An interface for a traceroute backend, which performs the traceroute
+ * measurements on behalf of a traceroute.
+ * @author agent
+ *
+ */
+public interface TracerouteBackend {
+	/**
+	 * Runs a traceroute to the specified destination.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 * @param listener The listener notified of each hop, or null.
+	 * @return The result of the traceroute operation, or null if the operation is cancelled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public TracerouteResult run(InetAddress destination, CancellationToken cancellationToken, TracerouteListener listener) throws IOException, InterruptedException;
+}
@@ -0,0 +1,44 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+
+import com.bikfalvi.java.threading.CancellationToken;
+
+/**
+ * An interface for a traceroute that measures many destinations at once,
+ * such that its throughput is limited by the probe rate rather than by the
+ * number of concurrent traceroutes.
+ * @author agent
+ *
+ */
+public interface TracerouteBatch {
+	/**
+	 * Runs a traceroute to each of the specified destinations.
+	 * @param destinations The destinations.
+	 * @param cancellationToken The cancellation token.
+	 * @return The list of results, in the order of the destinations, where the result for an unsupported destination is null; or null if the operation is cancelled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public List<TracerouteResult> run(List<InetAddress> destinations, CancellationToken cancellationToken) throws IOException, InterruptedException;
+}
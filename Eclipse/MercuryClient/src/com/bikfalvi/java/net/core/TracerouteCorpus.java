@@ -0,0 +1,233 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A class representing a corpus of recorded traceroute results. On disk, the
+ * corpus is a sequence of binary records, one per result, with the
+ * round-trip times stored as unsigned tenths of a millisecond.
+ * @author agent
+ *
+ */
+public final class TracerouteCorpus
+{
+	private static final int magic = 0x4D545243;
+	private static final int maximumCount = 255;
+
+	private final ArrayList<TracerouteResult> results = new ArrayList<TracerouteResult>();
+	private final HashMap<InetAddress, TracerouteResult> destinations = new HashMap<InetAddress, TracerouteResult>();
+	private final AddressTable addresses = new AddressTable();
+
+	/**
+	 * Creates an empty corpus.
+	 */
+	public TracerouteCorpus()
+	{
+	}
+
+	/**
+	 * Reads a corpus from the specified file.
+	 * @param file The file.
+	 * @return The corpus.
+	 * @throws IOException
+	 */
+	public static TracerouteCorpus read(File file) throws IOException
+	{
+		TracerouteCorpus corpus = new TracerouteCorpus();
+
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			// Check the header.
+			if (stream.readInt() != TracerouteCorpus.magic) {
+				throw new IOException(String.format("The file %s is not a traceroute corpus.", file));
+			}
+			// Read the records.
+			for (TracerouteResult result; null != (result = TracerouteCorpus.read(stream, corpus.addresses)); ) {
+				corpus.add(result);
+			}
+		}
+		finally {
+			stream.close();
+		}
+
+		return corpus;
+	}
+
+	/**
+	 * Writes the corpus header to an empty stream.
+	 * @param stream The stream.
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutputStream stream) throws IOException
+	{
+		stream.writeInt(TracerouteCorpus.magic);
+	}
+
+	/**
+	 * Writes a traceroute result record to the specified stream. The record
+	 * keeps at most 255 hops and 255 round-trip times per hop.
+	 * @param stream The stream.
+	 * @param result The traceroute result.
+	 * @throws IOException
+	 */
+	public static void write(DataOutputStream stream, TracerouteResult result) throws IOException
+	{
+		// Count the hops, up to the maximum of the one byte count.
+		int count = 0;
+		for (@SuppressWarnings("unused") TracerouteHop hop : result.getHops()) count++;
+		count = Math.min(count, TracerouteCorpus.maximumCount);
+
+		TracerouteCorpus.writeAddress(stream, result.getDestination());
+		stream.writeByte(count);
+		for (TracerouteHop hop : result.getHops()) {
+			if (count-- == 0) break;
+			stream.writeByte(hop.getTimeToLive());
+			TracerouteCorpus.writeAddress(stream, hop.getAddress());
+			float[] rtts = hop.getRoundTripTimes();
+			int rttCount = Math.min(rtts.length, TracerouteCorpus.maximumCount);
+			stream.writeByte(rttCount);
+			for (int index = 0; index < rttCount; index++) {
+				stream.writeChar(Math.min(65535, Math.max(0, Math.round(rtts[index] * 10))));
+			}
+		}
+	}
+
+	/**
+	 * Adds a traceroute result to the corpus.
+	 * @param result The traceroute result.
+	 */
+	public void add(TracerouteResult result)
+	{
+		this.results.add(result);
+		this.destinations.put(result.getDestination(), result);
+	}
+
+	/**
+	 * Gets the number of results in the corpus.
+	 * @return The number of results.
+	 */
+	public int size() {
+		return this.results.size();
+	}
+
+	/**
+	 * Gets the recorded result for the specified destination. If the destination was not recorded,
+	 * the method returns a result selected by the destination hash, such that any number of
+	 * destinations can be served from a small corpus.
+	 * @param destination The destination.
+	 * @return The traceroute result, or null if the corpus is empty.
+	 */
+	public TracerouteResult get(InetAddress destination)
+	{
+		TracerouteResult result = this.destinations.get(destination);
+		if ((null == result) && (this.results.size() > 0)) {
+			result = this.results.get((destination.hashCode() & 0x7FFFFFFF) % this.results.size());
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a traceroute result record from the specified stream.
+	 * @param stream The stream.
+	 * @param addresses The address table of the corpus.
+	 * @return The traceroute result, or null at the end of the stream, including
+	 * a partial last record left by an interrupted recording.
+	 * @throws IOException
+	 */
+	private static TracerouteResult read(DataInputStream stream, AddressTable addresses) throws IOException
+	{
+		try {
+			InetAddress destination = TracerouteCorpus.readAddress(stream);
+
+			// Store the result in the compact form, since a corpus holds many results.
+			int count = stream.readUnsignedByte();
+			CompactTracerouteResult result = new CompactTracerouteResult(destination, count, addresses);
+			for (int index = 0; index < count; index++) {
+				int ttl = stream.readUnsignedByte();
+				byte[] address = TracerouteCorpus.readAddressBytes(stream);
+				float[] rtts = new float[stream.readUnsignedByte()];
+				for (int rtt = 0; rtt < rtts.length; rtt++) {
+					rtts[rtt] = stream.readChar() / 10f;
+				}
+				result.add(ttl, address, rtts);
+			}
+			result.trimToSize();
+			return result;
+		}
+		catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes an address, prefixed by its length.
+	 * @param stream The stream.
+	 * @param address The address, or null.
+	 * @throws IOException
+	 */
+	private static void writeAddress(DataOutputStream stream, InetAddress address) throws IOException
+	{
+		if (null == address) {
+			stream.writeByte(0);
+		}
+		else {
+			byte[] bytes = address.getAddress();
+			stream.writeByte(bytes.length);
+			stream.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads an address, prefixed by its length.
+	 * @param stream The stream.
+	 * @return The address, or null.
+	 * @throws IOException
+	 */
+	private static InetAddress readAddress(DataInputStream stream) throws IOException
+	{
+		byte[] bytes = TracerouteCorpus.readAddressBytes(stream);
+		return null != bytes ? InetAddress.getByAddress(bytes) : null;
+	}
+
+	/**
+	 * Reads the bytes of an address, prefixed by its length.
+	 * @param stream The stream.
+	 * @return The address bytes, or null.
+	 * @throws IOException
+	 */
+	private static byte[] readAddressBytes(DataInputStream stream) throws IOException
+	{
+		int length = stream.readUnsignedByte();
+		if (0 == length) return null;
+		byte[] bytes = new byte[length];
+		stream.readFully(bytes);
+		return bytes;
+	}
+}
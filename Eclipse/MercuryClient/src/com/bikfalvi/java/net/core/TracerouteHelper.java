@@ -0,0 +1,221 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.HashMap;
+
+import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.threading.ThreadPool;
+
+/**
+ * A class representing the long-running helper process used by the helper
+ * traceroute backend. The helper reads commands from the standard input and
+ * writes hop records tagged by the request identifier to the standard output.
+ * <p>
+ * The commands are <code>trace &lt;id&gt; &lt;address&gt;</code> and
+ * <code>cancel &lt;id&gt;</code>. The records are
+ * <code>hop &lt;id&gt; &lt;ttl&gt; &lt;address|*&gt; [&lt;rtt&gt; ...]</code>,
+ * <code>done &lt;id&gt; &lt;status&gt;</code> and
+ * <code>error &lt;id&gt; &lt;message&gt;</code>. The helper exits when the
+ * standard input is closed.
+ * @author agent
+ *
+ */
+public final class TracerouteHelper
+{
+	private final TracerouteBackend backend;
+	private final PrintStream output;
+	private final HashMap<Integer, CancellationToken> tokens = new HashMap<Integer, CancellationToken>();
+
+	/**
+	 * Creates a new helper instance.
+	 * @param backend The backend that performs the traceroutes.
+	 * @param output The output stream for the records.
+	 */
+	public TracerouteHelper(TracerouteBackend backend, PrintStream output)
+	{
+		this.backend = backend;
+		this.output = output;
+	}
+
+	/**
+	 * Runs the helper process.
+	 * @param args The arguments: <code>-m &lt;maximum hops&gt;</code>, <code>-q &lt;probes per hop&gt;</code>, <code>-w &lt;timeout&gt;</code>,
+	 * <code>-g &lt;gap limit&gt;</code>, <code>-l &lt;loop limit&gt;</code>, <code>-a</code> for the adaptive
+	 * timeout, <code>-u</code> to continue after an unreachable, and <code>-p &lt;global rate&gt;:&lt;global
+	 * burst&gt;:&lt;prefix rate&gt;:&lt;prefix burst&gt;</code> to pace the probes.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		// Parse the settings.
+		TracerouteSettings settings = new TracerouteSettings();
+		for (int index = 0; index < args.length; index++) {
+			if (args[index].equals("-m") && (index + 1 < args.length)) {
+				settings.setMaximumHops(Byte.parseByte(args[++index]));
+			}
+			else if (args[index].equals("-q") && (index + 1 < args.length)) {
+				settings.setProbesPerHop(Integer.parseInt(args[++index]));
+			}
+			else if (args[index].equals("-w") && (index + 1 < args.length)) {
+				settings.setTimeout(Integer.parseInt(args[++index]));
+			}
+			else if (args[index].equals("-g") && (index + 1 < args.length)) {
+				settings.setGapLimit(Integer.parseInt(args[++index]));
+			}
+			else if (args[index].equals("-l") && (index + 1 < args.length)) {
+				settings.setLoopLimit(Integer.parseInt(args[++index]));
+			}
+			else if (args[index].equals("-a")) {
+				settings.setAdaptiveTimeout(true);
+			}
+			else if (args[index].equals("-u")) {
+				settings.setStopOnUnreachable(false);
+			}
+			else if (args[index].equals("-p") && (index + 1 < args.length)) {
+				String[] rates = args[++index].split(":");
+				settings.setPacer(new ProbePacer(
+						Double.parseDouble(rates[0]),
+						Double.parseDouble(rates[1]),
+						Double.parseDouble(rates[2]),
+						Double.parseDouble(rates[3])));
+			}
+		}
+
+		// Use the in-process traceroute when available, and the traceroute command otherwise.
+		TracerouteBackend backend;
+		try {
+			backend = NativeTraceroute.create(settings, null);
+		}
+		catch (IOException exception) {
+			backend = new ProcessTracerouteBackend(settings);
+		}
+
+		// Run the helper until the standard input is closed.
+		new TracerouteHelper(backend, System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+		System.exit(0);
+	}
+
+	/**
+	 * Reads and executes the commands until the end of the input.
+	 * @param reader The command reader.
+	 * @throws IOException
+	 */
+	public void run(BufferedReader reader) throws IOException
+	{
+		for (String line = null; (line = reader.readLine()) != null; ) {
+			String[] tokens = line.split(" ");
+			if (tokens.length < 2) continue;
+
+			final int id;
+			try {
+				id = Integer.parseInt(tokens[1]);
+			}
+			catch (NumberFormatException exception) {
+				continue;
+			}
+
+			if (tokens[0].equals("trace") && (tokens.length == 3)) {
+				// Resolve the destination, which must be a literal address.
+				final InetAddress destination;
+				try {
+					destination = InetAddress.getByName(tokens[2]);
+				}
+				catch (IOException exception) {
+					this.write(String.format("error %d %s", id, exception.getMessage()));
+					continue;
+				}
+				// Register the cancellation token.
+				final CancellationToken cancellationToken = new CancellationToken();
+				synchronized (this.tokens) {
+					this.tokens.put(id, cancellationToken);
+				}
+				// Run the traceroute on the thread pool.
+				ThreadPool.execute(new Runnable() {
+					@Override
+					public void run() {
+						TracerouteHelper.this.trace(id, destination, cancellationToken);
+					}
+				});
+			}
+			else if (tokens[0].equals("cancel")) {
+				// Cancel the traceroute.
+				synchronized (this.tokens) {
+					CancellationToken cancellationToken = this.tokens.get(id);
+					if (null != cancellationToken) cancellationToken.cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a traceroute and writes its records.
+	 * @param id The request identifier.
+	 * @param destination The destination.
+	 * @param cancellationToken The cancellation token.
+	 */
+	private void trace(final int id, InetAddress destination, CancellationToken cancellationToken)
+	{
+		try {
+			// Run the traceroute, writing each hop as soon as it is received.
+			TracerouteResult result = this.backend.run(destination, cancellationToken, new TracerouteListener() {
+				@Override
+				public boolean hopReceived(TracerouteResult result, TracerouteHop hop) {
+					StringBuilder builder = new StringBuilder();
+					builder.append("hop ").append(id).append(' ').append(hop.getTimeToLive()).append(' ');
+					builder.append(null != hop.getAddress() ? hop.getAddress().getHostAddress() : "*");
+					for (float rtt : hop.getRoundTripTimes()) {
+						builder.append(' ').append(rtt);
+					}
+					TracerouteHelper.this.write(builder.toString());
+					return true;
+				}
+			});
+			// Write the completion, unless the traceroute was cancelled.
+			if (null != result) {
+				this.write(String.format("done %d %s", id, result.getStatus()));
+			}
+		}
+		catch (Exception exception) {
+			this.write(String.format("error %d %s", id, exception.getMessage()));
+		}
+		finally {
+			synchronized (this.tokens) {
+				this.tokens.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Writes a record to the output.
+	 * @param record The record.
+	 */
+	private void write(String record)
+	{
+		synchronized (this.output) {
+			this.output.println(record);
+			this.output.flush();
+		}
+	}
+}
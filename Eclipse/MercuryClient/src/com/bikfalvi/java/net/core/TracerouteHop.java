@@ -27,6 +27,9 @@ public class TracerouteHop
 {
 	private final int ttl;
 	private final InetAddress address;
+	private final float[] rtts;
+
+	private static final float[] empty = new float[0];
 
 	/**
 	 * Creates a new traceroute hop result instance.
@@ -34,9 +37,21 @@ public class TracerouteHop
 	 * @param address The hop Internet address.
 	 */
 	public TracerouteHop(int ttl, InetAddress address)
+	{
+		this(ttl, address, TracerouteHop.empty);
+	}
+
+	/**
+	 * Creates a new traceroute hop result instance.
+	 * @param ttl The time-to-live.
+	 * @param address The hop Internet address.
+	 * @param rtts The round-trip times in milliseconds.
+	 */
+	public TracerouteHop(int ttl, InetAddress address, float[] rtts)
 	{
 		this.ttl = ttl;
 		this.address = address;
+		this.rtts = rtts;
 	}
 
 	/**
@@ -54,5 +69,13 @@ public class TracerouteHop
 	public InetAddress getAddress() {
 		return this.address;
 	}
+
+	/**
+	 * Gets the round-trip times for this hop.
+	 * @return The round-trip times in milliseconds, which must not be modified.
+	 */
+	public float[] getRoundTripTimes() {
+		return this.rtts;
+	}
 }
 
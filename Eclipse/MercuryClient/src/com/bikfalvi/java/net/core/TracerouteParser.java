@@ -0,0 +1,308 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+/**
+ * A class representing a parser for the lines of the traceroute process
+ * output. The parser scans the characters of a line without regular
+ * expressions or allocations, and stores the hop time-to-live, the packed
+ * IPv4 address and the round-trip times in primitive fields that are reused
+ * for every line. It supports the Linux and Mac OS traceroute formats, with
+ * the address before the round-trip times, and the Windows tracert format,
+ * with the address after the round-trip times.
+ * <p>
+ * An unreachable destination is detected from the language-independent
+ * markers: the <code>!H</code>, <code>!N</code>, <code>!P</code> and similar
+ * annotations of the Linux and Mac OS traceroute, and the Windows tracert
+ * reply, where the address of the router is followed by a localized word
+ * ending with a colon, such as <code>reports:</code>, and the message.
+ * @author agent
+ *
+ */
+public final class TracerouteParser
+{
+	private static final String annotations = "HNPSFXVCUWIAZQT";
+
+	private final float[] rtts;
+	private int ttl;
+	private int address;
+	private boolean hasAddress;
+	private int rttCount;
+	private boolean unreachable;
+
+	/**
+	 * Creates a new parser instance, keeping up to three round-trip times per hop.
+	 */
+	public TracerouteParser()
+	{
+		this(3);
+	}
+
+	/**
+	 * Creates a new parser instance.
+	 * @param maximumRtts The maximum number of round-trip times kept per hop.
+	 */
+	public TracerouteParser(int maximumRtts)
+	{
+		this.rtts = new float[maximumRtts];
+	}
+
+	/**
+	 * Parses a line of the traceroute process output.
+	 * @param line The line.
+	 * @return True if the line is a hop, false otherwise.
+	 */
+	public boolean parse(CharSequence line)
+	{
+		final int length = line.length();
+
+		this.ttl = 0;
+		this.address = 0;
+		this.hasAddress = false;
+		this.rttCount = 0;
+		this.unreachable = false;
+
+		// Skip the leading whitespace.
+		int index = TracerouteParser.skipWhitespace(line, 0, length);
+
+		// Parse the time-to-live, which must be followed by whitespace.
+		int start = index;
+		while ((index < length) && TracerouteParser.isDigit(line.charAt(index)) && (index - start < 3)) {
+			this.ttl = this.ttl * 10 + (line.charAt(index++) - '0');
+		}
+		if ((index == start) || (index == length) || !TracerouteParser.isWhitespace(line.charAt(index))) {
+			return false;
+		}
+
+		// Scan the remaining tokens.
+		for (index = TracerouteParser.skipWhitespace(line, index, length); index < length; index = TracerouteParser.skipWhitespace(line, index, length)) {
+			// Find the token end.
+			start = index;
+			while ((index < length) && !TracerouteParser.isWhitespace(line.charAt(index))) index++;
+			int end = index;
+
+			// Strip the parentheses around an address.
+			if (line.charAt(start) == '(') start++;
+			if ((end > start) && (line.charAt(end - 1) == ')')) end--;
+			if (end <= start) continue;
+
+			char first = line.charAt(start);
+			if (first == '!') {
+				// A Linux or Mac OS unreachable annotation, such as !H, !N, !P or !<code>.
+				if (TracerouteParser.isAnnotation(line, start, end)) this.unreachable = true;
+			}
+			else if ((first == '<') || TracerouteParser.isDigit(first)) {
+				// An address or a round-trip time.
+				if (!this.parseAddress(line, start, end)) {
+					this.parseRtt(line, first == '<' ? start + 1 : start, end);
+				}
+			}
+			else if (this.hasAddress && (line.charAt(end - 1) == ':')) {
+				// A Windows reply from a router, which reports the destination as unreachable in the local language.
+				this.unreachable = true;
+				break;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the time-to-live of the last parsed hop.
+	 * @return The time-to-live.
+	 */
+	public int getTimeToLive() {
+		return this.ttl;
+	}
+
+	/**
+	 * Gets whether the last parsed hop has an address.
+	 * @return True if the hop has an address, false otherwise.
+	 */
+	public boolean hasAddress() {
+		return this.hasAddress;
+	}
+
+	/**
+	 * Gets the packed IPv4 address of the last parsed hop.
+	 * @return The address, in network order.
+	 */
+	public int getAddress() {
+		return this.address;
+	}
+
+	/**
+	 * Gets the number of round-trip times of the last parsed hop.
+	 * @return The number of round-trip times.
+	 */
+	public int getRttCount() {
+		return this.rttCount;
+	}
+
+	/**
+	 * Gets a round-trip time of the last parsed hop.
+	 * @param index The round-trip time index.
+	 * @return The round-trip time in milliseconds.
+	 */
+	public float getRtt(int index) {
+		return this.rtts[index];
+	}
+
+	/**
+	 * Gets whether the last parsed hop reported the destination as unreachable.
+	 * @return True if the destination is unreachable, false otherwise.
+	 */
+	public boolean isUnreachable() {
+		return this.unreachable;
+	}
+
+	/**
+	 * Parses a dotted IPv4 address token.
+	 * @param line The line.
+	 * @param start The token start.
+	 * @param end The token end.
+	 * @return True if the token is an IPv4 address, false otherwise.
+	 */
+	private boolean parseAddress(CharSequence line, int start, int end)
+	{
+		int value = 0;
+		int octet = 0;
+		int digits = 0;
+		int dots = 0;
+		for (int index = start; index < end; index++) {
+			char c = line.charAt(index);
+			if (TracerouteParser.isDigit(c)) {
+				octet = octet * 10 + (c - '0');
+				if ((++digits > 3) || (octet > 255)) return false;
+			}
+			else if ((c == '.') && (digits > 0) && (dots < 3)) {
+				value = (value << 8) | octet;
+				octet = 0;
+				digits = 0;
+				dots++;
+			}
+			else return false;
+		}
+		if ((dots != 3) || (digits == 0)) return false;
+
+		// Keep the first address of the hop.
+		if (!this.hasAddress) {
+			this.address = (value << 8) | octet;
+			this.hasAddress = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Parses a round-trip time token, in milliseconds.
+	 * @param line The line.
+	 * @param start The token start.
+	 * @param end The token end.
+	 */
+	private void parseRtt(CharSequence line, int start, int end)
+	{
+		long value = 0;
+		long divisor = 0;
+		int index = start;
+		for (; index < end; index++) {
+			char c = line.charAt(index);
+			if (TracerouteParser.isDigit(c) && (value < 100000000L)) {
+				value = value * 10 + (c - '0');
+				divisor *= 10;
+			}
+			else if ((c == '.') && (divisor == 0)) {
+				divisor = 1;
+			}
+			else break;
+		}
+		// The token is a round-trip time if it ends with the unit, or has no unit.
+		if ((index == start) || ((index < end) && !TracerouteParser.regionMatches(line, index, end, "ms"))) return;
+
+		if (this.rttCount < this.rtts.length) {
+			this.rtts[this.rttCount++] = divisor > 1 ? (float)((double)value / divisor) : value;
+		}
+	}
+
+	/**
+	 * Skips the whitespace.
+	 * @param line The line.
+	 * @param index The start index.
+	 * @param length The line length.
+	 * @return The index of the first non-whitespace character.
+	 */
+	private static int skipWhitespace(CharSequence line, int index, int length)
+	{
+		while ((index < length) && TracerouteParser.isWhitespace(line.charAt(index))) index++;
+		return index;
+	}
+
+	/**
+	 * Indicates whether a token is an unreachable annotation: an exclamation mark followed by a code letter or number, such as !H or !&lt;10&gt;.
+	 * @param line The line.
+	 * @param start The token start, at the exclamation mark.
+	 * @param end The token end.
+	 * @return True if the token is an unreachable annotation, false otherwise.
+	 */
+	private static boolean isAnnotation(CharSequence line, int start, int end)
+	{
+		if (end - start < 2) return false;
+		char code = line.charAt(start + 1);
+		return (TracerouteParser.annotations.indexOf(code) >= 0) || (code == '<') || TracerouteParser.isDigit(code);
+	}
+
+	/**
+	 * Compares a token with an ASCII word, ignoring the case and any trailing punctuation of the token.
+	 * @param line The line.
+	 * @param start The token start.
+	 * @param end The token end.
+	 * @param word The word in lower case.
+	 * @return True if the token matches the word, false otherwise.
+	 */
+	private static boolean regionMatches(CharSequence line, int start, int end, String word)
+	{
+		if (end - start < word.length()) return false;
+		for (int index = 0; index < word.length(); index++) {
+			if (Character.toLowerCase(line.charAt(start + index)) != word.charAt(index)) return false;
+		}
+		for (int index = start + word.length(); index < end; index++) {
+			if (Character.isLetterOrDigit(line.charAt(index))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates whether the character is a decimal digit.
+	 * @param c The character.
+	 * @return True if the character is a digit, false otherwise.
+	 */
+	private static boolean isDigit(char c)
+	{
+		return (c >= '0') && (c <= '9');
+	}
+
+	/**
+	 * Indicates whether the character is whitespace.
+	 * @param c The character.
+	 * @return True if the character is whitespace, false otherwise.
+	 */
+	private static boolean isWhitespace(char c)
+	{
+		return (c == ' ') || (c == '\t') || (c == '\r') || (c == '\n');
+	}
+}
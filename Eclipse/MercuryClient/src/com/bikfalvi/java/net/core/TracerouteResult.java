@@ -30,6 +30,12 @@ public class TracerouteResult
 {
 	private final InetAddress destination;
 	private final ArrayList<TracerouteHop> hops = new ArrayList<TracerouteHop>();
+	private TracerouteStatus status = TracerouteStatus.UNKNOWN;
+	private long fingerprint = TracerouteResult.fingerprintSeed;
+	private int fingerprintLength = 0;
+	private long[] prefixFingerprints = null;
+
+	private static final long fingerprintSeed = 0x6A09E667F3BCC909L;
 
 	/**
 	 * Creates a new traceroute result instance.
@@ -56,6 +62,22 @@ public class TracerouteResult
 		return this.hops;
 	}
 
+	/**
+	 * Gets the reason why the traceroute stopped.
+	 * @return The status.
+	 */
+	public TracerouteStatus getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Sets the reason why the traceroute stopped.
+	 * @param status The status.
+	 */
+	public void setStatus(TracerouteStatus status) {
+		this.status = status;
+	}
+
 	/**
 	 * Adds a new hop result to the traceroute result.
 	 * @param hop The hop result.
@@ -63,5 +85,90 @@ public class TracerouteResult
 	public void add(TracerouteHop hop)
 	{
 		this.hops.add(hop);
+		this.addFingerprint(hop.getTimeToLive(), null != hop.getAddress() ? hop.getAddress().getAddress() : null);
+	}
+
+	/**
+	 * Gets the fingerprint of the hop sequence, which is computed incrementally as the hops are added.
+	 * Two results with the same time-to-live and address for every hop have the same fingerprint.
+	 * @return The 64-bit fingerprint.
+	 */
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * Gets the fingerprint of the first hops. The fingerprints of all prefixes are computed on
+	 * the first call, and kept until a hop is added.
+	 * @param length The number of hops, at most the number of hops of the result.
+	 * @return The 64-bit fingerprint.
+	 */
+	public long getFingerprint(int length)
+	{
+		if ((length < 0) || (length > this.fingerprintLength)) throw new IndexOutOfBoundsException();
+		if (length == this.fingerprintLength) return this.fingerprint;
+
+		// Compute the prefix fingerprints, if not computed for the current hops.
+		if ((null == this.prefixFingerprints) || (this.prefixFingerprints.length != this.fingerprintLength + 1)) {
+			long[] prefixFingerprints = new long[this.fingerprintLength + 1];
+			long fingerprint = TracerouteResult.fingerprintSeed;
+			int index = 0;
+			prefixFingerprints[index++] = fingerprint;
+			for (TracerouteHop hop : this.getHops()) {
+				if (index > this.fingerprintLength) break;
+				fingerprint = TracerouteResult.fingerprint(fingerprint, hop.getTimeToLive(), null != hop.getAddress() ? hop.getAddress().getAddress() : null);
+				prefixFingerprints[index++] = fingerprint;
+			}
+			this.prefixFingerprints = prefixFingerprints;
+		}
+		return this.prefixFingerprints[length];
+	}
+
+	/**
+	 * Adds a hop to the fingerprint. The subclasses that store the hops themselves must call this method for each hop.
+	 * @param ttl The time-to-live.
+	 * @param address The IPv4 or IPv6 address bytes, or null if the hop did not reply.
+	 */
+	protected final void addFingerprint(int ttl, byte[] address)
+	{
+		this.fingerprint = TracerouteResult.fingerprint(this.fingerprint, ttl, address);
+		this.fingerprintLength++;
+	}
+
+	/**
+	 * Adds a hop to a fingerprint.
+	 * @param fingerprint The fingerprint of the previous hops.
+	 * @param ttl The time-to-live.
+	 * @param address The address bytes, or null.
+	 * @return The fingerprint including the hop.
+	 */
+	private static long fingerprint(long fingerprint, int ttl, byte[] address)
+	{
+		int length = null != address ? address.length : 0;
+		fingerprint = TracerouteResult.mix(fingerprint, ((long)length << 32) | (ttl & 0xFFFFFFFFL));
+		for (int offset = 0; offset < length; offset += 8) {
+			long value = 0;
+			for (int index = offset; index < Math.min(length, offset + 8); index++) {
+				value = (value << 8) | (address[index] & 0xFF);
+			}
+			fingerprint = TracerouteResult.mix(fingerprint, value);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Mixes a value into a hash.
+	 * @param hash The hash.
+	 * @param value The value.
+	 * @return The mixed hash.
+	 */
+	private static long mix(long hash, long value)
+	{
+		hash ^= value;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
 	}
 }
@@ -19,12 +19,22 @@
 package com.bikfalvi.java.net.core;
 
 /**
- * A class representing the traceroute settings.
+ * A class representing the traceroute settings. The maximum hops, the probes
+ * per hop and the timeout may change while the traceroutes run, and each
+ * traceroute reads them once when it starts.
  */
 public final class TracerouteSettings
 {
-	private byte maximumHops;
-	private int timeout;
+	private volatile byte maximumHops;
+	private volatile int probesPerHop;
+	private volatile int timeout;
+	private int probeRate;
+	private boolean adaptiveTimeout;
+	private int gapLimit;
+	private int loopLimit;
+	private boolean stopOnUnreachable;
+	private AddressTable addressTable;
+	private ProbePacer pacer;
 	
 	/// <summary>
 	/// Creates a traceroute settings instance with the default values.
@@ -32,7 +42,15 @@ public final class TracerouteSettings
 	public TracerouteSettings()
 	{
 		this.maximumHops = 30;
+		this.probesPerHop = 3;
 		this.timeout = 1000;
+		this.probeRate = 1000;
+		this.adaptiveTimeout = false;
+		this.gapLimit = 0;
+		this.loopLimit = 0;
+		this.stopOnUnreachable = true;
+		this.addressTable = new AddressTable();
+		this.pacer = null;
 	}
 
 	/**
@@ -51,6 +69,22 @@ public final class TracerouteSettings
 		this.maximumHops = maximumHops;
 	}	
 	
+	/**
+	 * Gets the number of probes sent to each hop, where supported by the traceroute backend.
+	 * @return The number of probes.
+	 */
+	public int getProbesPerHop() {
+		return this.probesPerHop;
+	}
+
+	/**
+	 * Sets the number of probes sent to each hop, where supported by the traceroute backend.
+	 * @param probesPerHop The number of probes.
+	 */
+	public void setProbesPerHop(int probesPerHop) {
+		this.probesPerHop = probesPerHop;
+	}
+
 	/**
 	 * Gets the timeout for a traceroute hop.
 	 * @return The timeout in milliseconds.
@@ -66,4 +100,116 @@ public final class TracerouteSettings
 	public void setTimeout(int timeout) {
 		this.timeout = timeout;
 	}
+
+	/**
+	 * Gets the probe rate for traceroutes sharing a socket.
+	 * @return The rate in packets per second.
+	 */
+	public int getProbeRate() {
+		return this.probeRate;
+	}
+
+	/**
+	 * Sets the probe rate for traceroutes sharing a socket.
+	 * @param probeRate The rate in packets per second.
+	 */
+	public void setProbeRate(int probeRate) {
+		this.probeRate = probeRate;
+	}
+
+	/**
+	 * Gets whether the timeout of each probe adapts to the observed round-trip times.
+	 * @return True if the timeout is adaptive, false if it is fixed.
+	 */
+	public boolean isAdaptiveTimeout() {
+		return this.adaptiveTimeout;
+	}
+
+	/**
+	 * Sets whether the timeout of each probe adapts to the observed round-trip times.
+	 * @param adaptiveTimeout True if the timeout is adaptive, false if it is fixed.
+	 */
+	public void setAdaptiveTimeout(boolean adaptiveTimeout) {
+		this.adaptiveTimeout = adaptiveTimeout;
+	}
+
+	/**
+	 * Gets the number of consecutive hops without reply after which a traceroute stops.
+	 * @return The gap limit, or zero if the limit is disabled.
+	 */
+	public int getGapLimit() {
+		return this.gapLimit;
+	}
+
+	/**
+	 * Sets the number of consecutive hops without reply after which a traceroute stops.
+	 * @param gapLimit The gap limit, or zero to disable the limit.
+	 */
+	public void setGapLimit(int gapLimit) {
+		this.gapLimit = gapLimit;
+	}
+
+	/**
+	 * Gets the number of consecutive hops with the same address after which a traceroute stops.
+	 * @return The loop limit, or zero if the limit is disabled.
+	 */
+	public int getLoopLimit() {
+		return this.loopLimit;
+	}
+
+	/**
+	 * Sets the number of consecutive hops with the same address after which a traceroute stops.
+	 * @param loopLimit The loop limit, or zero to disable the limit.
+	 */
+	public void setLoopLimit(int loopLimit) {
+		this.loopLimit = loopLimit;
+	}
+
+	/**
+	 * Gets whether a traceroute stops when a router reports the destination as unreachable.
+	 * @return True if the traceroute stops, false otherwise.
+	 */
+	public boolean isStopOnUnreachable() {
+		return this.stopOnUnreachable;
+	}
+
+	/**
+	 * Sets whether a traceroute stops when a router reports the destination as unreachable.
+	 * @param stopOnUnreachable True if the traceroute stops, false otherwise.
+	 */
+	public void setStopOnUnreachable(boolean stopOnUnreachable) {
+		this.stopOnUnreachable = stopOnUnreachable;
+	}
+
+	/**
+	 * Gets the table of the hop addresses, shared by the traceroutes using these settings.
+	 * @return The address table.
+	 */
+	public AddressTable getAddressTable() {
+		return this.addressTable;
+	}
+
+	/**
+	 * Sets the table of the hop addresses, shared by the traceroutes using these settings.
+	 * @param addressTable The address table.
+	 */
+	public void setAddressTable(AddressTable addressTable) {
+		this.addressTable = addressTable;
+	}
+
+	/**
+	 * Gets the probe pacer, shared by the traceroutes using these settings.
+	 * @return The probe pacer, or null if the probes are not paced.
+	 */
+	public ProbePacer getPacer() {
+		return this.pacer;
+	}
+
+	/**
+	 * Sets the probe pacer, shared by the traceroutes using these settings.
+	 * @param pacer The probe pacer, or null if the probes are not paced.
+	 */
+	public void setPacer(ProbePacer pacer) {
+		this.pacer = pacer;
+	}
 }
@@ -0,0 +1,136 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.bikfalvi.java.async.AsyncResult;
+
+/**
+ * A class representing the state of an asynchronous traceroute.
+ * @author agent
+ *
+ */
+public final class TracerouteState implements AsyncResult
+{
+	private final InetAddress destination;
+	private final TracerouteCallback callback;
+	private final CountDownLatch latch = new CountDownLatch(1);
+	private TracerouteResult result = null;
+	private IOException exception = null;
+
+	/**
+	 * Creates a new traceroute state instance.
+	 * @param destination The destination.
+	 * @param callback The callback, or null.
+	 */
+	public TracerouteState(InetAddress destination, TracerouteCallback callback)
+	{
+		this.destination = destination;
+		this.callback = callback;
+	}
+
+	/**
+	 * Gets the destination.
+	 * @return The destination.
+	 */
+	public InetAddress getDestination() {
+		return this.destination;
+	}
+
+	/**
+	 * Gets the result of the traceroute.
+	 * @return The result, or null if the traceroute is not completed, has failed or was cancelled.
+	 */
+	public synchronized TracerouteResult getResult() {
+		return this.result;
+	}
+
+	/**
+	 * Gets the exception of the traceroute.
+	 * @return The exception, or null if the traceroute did not fail.
+	 */
+	public synchronized IOException getException() {
+		return this.exception;
+	}
+
+	@Override
+	public boolean isCompleted() {
+		return 0 == this.latch.getCount();
+	}
+
+	/**
+	 * Blocks the current thread until the traceroute is completed.
+	 * @throws InterruptedException
+	 */
+	public void waitOne() throws InterruptedException {
+		this.latch.await();
+	}
+
+	/**
+	 * Blocks the current thread until the traceroute is completed, or the timeout elapses.
+	 * @param timeout The timeout in milliseconds.
+	 * @return True if the traceroute is completed, false otherwise.
+	 * @throws InterruptedException
+	 */
+	public boolean waitOne(long timeout) throws InterruptedException {
+		return this.latch.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Completes the traceroute, and calls the callback.
+	 * @param result The result, or null if the traceroute was cancelled.
+	 * @return True if the traceroute was completed, false if it was already completed.
+	 */
+	public boolean complete(TracerouteResult result)
+	{
+		return this.complete(result, null);
+	}
+
+	/**
+	 * Fails the traceroute, and calls the callback.
+	 * @param exception The exception.
+	 * @return True if the traceroute was completed, false if it was already completed.
+	 */
+	public boolean fail(IOException exception)
+	{
+		return this.complete(null, exception);
+	}
+
+	/**
+	 * Completes the traceroute once, and calls the callback.
+	 * @param result The result.
+	 * @param exception The exception.
+	 * @return True if the traceroute was completed, false if it was already completed.
+	 */
+	private boolean complete(TracerouteResult result, IOException exception)
+	{
+		synchronized (this) {
+			if (this.isCompleted()) return false;
+			this.result = result;
+			this.exception = exception;
+			this.latch.countDown();
+		}
+		if (null != this.callback) this.callback.callback(this);
+		return true;
+	}
+}
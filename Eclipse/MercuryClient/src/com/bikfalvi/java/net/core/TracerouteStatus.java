@@ -0,0 +1,64 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+/**
+ * An enumeration of the reasons why a traceroute stopped.
+ * @author agent
+ *
+ */
+public enum TracerouteStatus {
+	/**
+	 * The traceroute has not completed.
+	 */
+	UNKNOWN,
+	/**
+	 * The traceroute reached the destination.
+	 */
+	COMPLETED,
+	/**
+	 * A router reported the destination as unreachable.
+	 */
+	UNREACHABLE,
+	/**
+	 * The traceroute stopped after too many consecutive hops without a reply.
+	 */
+	GAP_LIMIT,
+	/**
+	 * The traceroute stopped after the same address repeated over too many consecutive hops.
+	 */
+	LOOP,
+	/**
+	 * The traceroute reached the maximum hops.
+	 */
+	MAXIMUM_HOPS,
+	/**
+	 * The traceroute command failed.
+	 */
+	FAILED,
+	/**
+	 * The traceroute listener stopped the traceroute.
+	 */
+	STOPPED,
+	/**
+	 * The traceroute stopped at an interface of a known path to the destination prefix, and copied the
+	 * router hops that followed from that path, such that the destination itself was not probed.
+	 */
+	INFERRED
+}
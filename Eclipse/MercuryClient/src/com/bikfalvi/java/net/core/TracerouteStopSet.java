@@ -0,0 +1,202 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+
+import com.bikfalvi.java.net.InetAddressExtensions;
+
+/**
+ * A class representing the session-wide stop sets of the Doubletree
+ * algorithm. The local stop set contains the (time-to-live, interface)
+ * pairs seen near the source, with the path that led to them; backward
+ * probing stops at the first such interface. The global stop set contains
+ * the (interface, destination prefix) pairs of complete paths, with the path
+ * segment that followed; forward probing stops at the first such interface.
+ * In both cases, the skipped hops are copied from the known path.
+ * @author agent
+ *
+ */
+public final class TracerouteStopSet
+{
+	/**
+	 * A class representing a known path segment.
+	 */
+	private static final class Segment
+	{
+		private final TracerouteHop[] hops;
+		private final int index;
+
+		/**
+		 * Creates a new segment instance.
+		 * @param hops The path hops, indexed by the time-to-live minus one.
+		 * @param index The index of the hop that identifies the segment.
+		 */
+		public Segment(TracerouteHop[] hops, int index)
+		{
+			this.hops = hops;
+			this.index = index;
+		}
+	}
+
+	private final Object sync = new Object();
+	private final int startHop;
+	private final int prefixLength;
+	private final HashMap<Long, Segment> local = new HashMap<Long, Segment>();
+	private final HashMap<Long, Segment> global = new HashMap<Long, Segment>();
+	private long savedProbes = 0;
+
+	/**
+	 * Creates a new stop set instance, starting at hop 6 and with /24 destination prefixes.
+	 */
+	public TracerouteStopSet()
+	{
+		this(6, 24);
+	}
+
+	/**
+	 * Creates a new stop set instance.
+	 * @param startHop The time-to-live where the traceroutes start probing.
+	 * @param prefixLength The destination prefix length of the global stop set.
+	 */
+	public TracerouteStopSet(int startHop, int prefixLength)
+	{
+		this.startHop = startHop;
+		this.prefixLength = prefixLength;
+	}
+
+	/**
+	 * Gets the time-to-live where the traceroutes start probing.
+	 * @return The start hop.
+	 */
+	public int getStartHop() {
+		return this.startHop;
+	}
+
+	/**
+	 * Gets the number of probes saved by the stop sets.
+	 * @return The number of probes.
+	 */
+	public long getSavedProbes() {
+		synchronized (this.sync) {
+			return this.savedProbes;
+		}
+	}
+
+	/**
+	 * Gets the known hops preceding an interface of the local stop set.
+	 * @param ttl The time-to-live of the interface.
+	 * @param address The packed interface address.
+	 * @return The hops with a time-to-live from 1 to ttl - 1, or null if the interface is not in the stop set.
+	 */
+	public TracerouteHop[] getLocal(int ttl, int address)
+	{
+		synchronized (this.sync) {
+			Segment segment = this.local.get(TracerouteStopSet.key(ttl, address));
+			if (null == segment) return null;
+
+			TracerouteHop[] hops = new TracerouteHop[segment.index];
+			System.arraycopy(segment.hops, 0, hops, 0, segment.index);
+			this.savedProbes += hops.length;
+			return hops;
+		}
+	}
+
+	/**
+	 * Gets the known router hops following an interface of the global stop set, which exclude the final hop of the
+	 * known path, since that hop is the destination of the known path and not of the traceroute.
+	 * @param address The packed interface address.
+	 * @param destination The packed destination address.
+	 * @return The hops following the interface, with the time-to-live of the known path, or null if the pair is not in the stop set.
+	 */
+	public TracerouteHop[] getGlobal(int address, int destination)
+	{
+		synchronized (this.sync) {
+			Segment segment = this.global.get(TracerouteStopSet.key(address, this.getPrefix(destination)));
+			if (null == segment) return null;
+
+			TracerouteHop[] hops = new TracerouteHop[Math.max(0, segment.hops.length - segment.index - 2)];
+			System.arraycopy(segment.hops, segment.index + 1, hops, 0, hops.length);
+			this.savedProbes += hops.length;
+			return hops;
+		}
+	}
+
+	/**
+	 * Adds the hops of a traceroute result to the stop sets.
+	 * @param result The traceroute result.
+	 */
+	public void add(TracerouteResult result)
+	{
+		if (!InetAddressExtensions.isInet4(result.getDestination())) return;
+
+		// Get the hops, indexed by the time-to-live minus one.
+		int count = 0;
+		for (TracerouteHop hop : result.getHops()) count = Math.max(count, hop.getTimeToLive());
+		TracerouteHop[] hops = new TracerouteHop[count];
+		for (TracerouteHop hop : result.getHops()) hops[hop.getTimeToLive() - 1] = hop;
+		for (TracerouteHop hop : hops) if (null == hop) return;
+
+		// Only complete paths are added to the global stop set.
+		InetAddress last = count > 0 ? hops[count - 1].getAddress() : null;
+		boolean complete = result.getDestination().equals(last);
+		int prefix = this.getPrefix(InetAddressExtensions.toInt(result.getDestination()));
+
+		synchronized (this.sync) {
+			for (int index = 0; index < count; index++) {
+				InetAddress address = hops[index].getAddress();
+				if (!InetAddressExtensions.isInet4(address)) continue;
+				int packed = InetAddressExtensions.toInt(address);
+
+				// Add the interfaces before the start hop to the local stop set.
+				if (index + 1 < this.startHop) {
+					Long key = TracerouteStopSet.key(index + 1, packed);
+					if (!this.local.containsKey(key)) this.local.put(key, new Segment(hops, index));
+				}
+				// Add the interfaces of complete paths to the global stop set.
+				if (complete && (index + 1 < count)) {
+					Long key = TracerouteStopSet.key(packed, prefix);
+					if (!this.global.containsKey(key)) this.global.put(key, new Segment(hops, index));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the prefix of a destination address.
+	 * @param destination The packed destination address.
+	 * @return The prefix.
+	 */
+	private int getPrefix(int destination)
+	{
+		return this.prefixLength == 0 ? 0 : destination & (0xFFFFFFFF << (32 - this.prefixLength));
+	}
+
+	/**
+	 * Creates a stop set key from two integers.
+	 * @param high The high integer.
+	 * @param low The low integer.
+	 * @return The key.
+	 */
+	private static Long key(int high, int low)
+	{
+		return Long.valueOf(((long)high << 32) | (low & 0xFFFFFFFFL));
+	}
+}
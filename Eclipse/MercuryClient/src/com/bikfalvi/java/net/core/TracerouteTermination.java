@@ -0,0 +1,117 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+
+/**
+ * A class representing the stop rules of a traceroute, evaluated hop by hop
+ * as the hops are received, such that a backend can stop probing as soon as
+ * a rule fires.
+ * @author agent
+ *
+ */
+public final class TracerouteTermination
+{
+	private final TracerouteSettings settings;
+	private final InetAddress destination;
+	private final int maximumHops;
+	private int gap = 0;
+	private InetAddress lastAddress = null;
+	private int repeat = 0;
+	private int lastTtl = 0;
+
+	/**
+	 * Creates a new termination instance for a traceroute.
+	 * @param settings The traceroute settings.
+	 * @param destination The traceroute destination.
+	 */
+	public TracerouteTermination(TracerouteSettings settings, InetAddress destination)
+	{
+		this(settings, destination, settings.getMaximumHops());
+	}
+
+	/**
+	 * Creates a new termination instance for a traceroute, with the maximum hops read by the traceroute when it started.
+	 * @param settings The traceroute settings.
+	 * @param destination The traceroute destination.
+	 * @param maximumHops The maximum hops of the traceroute.
+	 */
+	public TracerouteTermination(TracerouteSettings settings, InetAddress destination, int maximumHops)
+	{
+		this.settings = settings;
+		this.destination = destination;
+		this.maximumHops = maximumHops;
+	}
+
+	/**
+	 * Adds the next hop of the traceroute, in the order of the time-to-live.
+	 * @param hop The hop.
+	 * @param unreachable True if the hop reported the destination as unreachable, false otherwise.
+	 * @return The status if the traceroute must stop, or null if the traceroute continues.
+	 */
+	public TracerouteStatus add(TracerouteHop hop, boolean unreachable)
+	{
+		InetAddress address = hop.getAddress();
+		this.lastTtl = hop.getTimeToLive();
+
+		// If the destination was reached.
+		if ((null != address) && address.equals(this.destination)) {
+			return TracerouteStatus.COMPLETED;
+		}
+		// If the destination is unreachable.
+		if (unreachable && this.settings.isStopOnUnreachable()) {
+			return TracerouteStatus.UNREACHABLE;
+		}
+
+		// Update the consecutive hops without reply.
+		if (null == address) {
+			this.gap++;
+			if ((this.settings.getGapLimit() > 0) && (this.gap >= this.settings.getGapLimit())) {
+				return TracerouteStatus.GAP_LIMIT;
+			}
+		}
+		else {
+			this.gap = 0;
+		}
+
+		// Update the consecutive hops with the same address.
+		if ((null != address) && address.equals(this.lastAddress)) {
+			this.repeat++;
+			if ((this.settings.getLoopLimit() > 0) && (this.repeat >= this.settings.getLoopLimit())) {
+				return TracerouteStatus.LOOP;
+			}
+		}
+		else {
+			this.lastAddress = address;
+			this.repeat = null != address ? 1 : 0;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the status of a traceroute that ended without a stop rule firing.
+	 * @return The status.
+	 */
+	public TracerouteStatus getStatus()
+	{
+		return this.lastTtl >= this.maximumHops ? TracerouteStatus.MAXIMUM_HOPS : TracerouteStatus.UNKNOWN;
+	}
+}
@@ -0,0 +1,256 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.net.core;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+
+/**
+ * A class representing a session-wide estimator of the traceroute probe
+ * timeouts. The estimator keeps a decaying histogram of the observed
+ * round-trip times per hop distance and per destination prefix, and sets
+ * the timeout of a probe to a high quantile of the matching histograms plus
+ * a margin, bounded by the timeout of the traceroute settings. Until enough
+ * round-trip times are observed, the estimator uses the settings timeout.
+ * @author agent
+ *
+ */
+public final class TracerouteTimeout
+{
+	private static final int buckets = 32;
+	private static final int minimumSamples = 10;
+	private static final int decaySamples = 256;
+
+	private final TracerouteSettings settings;
+	private final HashMap<Integer, int[]> distances = new HashMap<Integer, int[]>();
+	private final HashMap<Integer, int[]> prefixes = new HashMap<Integer, int[]>();
+	private double quantile = 0.95;
+	private int margin = 20;
+	private int minimum = 50;
+
+	/**
+	 * Creates a new timeout estimator instance.
+	 * @param settings The traceroute settings, whose timeout is the maximum timeout.
+	 */
+	public TracerouteTimeout(TracerouteSettings settings)
+	{
+		this.settings = settings;
+	}
+
+	/**
+	 * Gets the round-trip time quantile used for the timeout.
+	 * @return The quantile.
+	 */
+	public double getQuantile() {
+		return this.quantile;
+	}
+
+	/**
+	 * Sets the round-trip time quantile used for the timeout.
+	 * @param quantile The quantile, between 0 and 1.
+	 */
+	public void setQuantile(double quantile) {
+		this.quantile = quantile;
+	}
+
+	/**
+	 * Gets the margin added to the round-trip time quantile.
+	 * @return The margin in milliseconds.
+	 */
+	public int getMargin() {
+		return this.margin;
+	}
+
+	/**
+	 * Sets the margin added to the round-trip time quantile.
+	 * @param margin The margin in milliseconds.
+	 */
+	public void setMargin(int margin) {
+		this.margin = margin;
+	}
+
+	/**
+	 * Gets the minimum timeout.
+	 * @return The minimum timeout in milliseconds.
+	 */
+	public int getMinimum() {
+		return this.minimum;
+	}
+
+	/**
+	 * Sets the minimum timeout.
+	 * @param minimum The minimum timeout in milliseconds.
+	 */
+	public void setMinimum(int minimum) {
+		this.minimum = minimum;
+	}
+
+	/**
+	 * Adds an observed round-trip time.
+	 * @param ttl The hop distance.
+	 * @param destination The traceroute destination.
+	 * @param rtt The round-trip time in milliseconds.
+	 */
+	public void add(int ttl, InetAddress destination, float rtt)
+	{
+		int bucket = TracerouteTimeout.getBucket(rtt);
+		Integer prefix = Integer.valueOf(TracerouteTimeout.getPrefix(destination));
+
+		synchronized (this.distances) {
+			TracerouteTimeout.add(this.distances, Integer.valueOf(ttl), bucket);
+			TracerouteTimeout.add(this.prefixes, prefix, bucket);
+		}
+	}
+
+	/**
+	 * Gets the timeout for a probe.
+	 * @param ttl The hop distance.
+	 * @param destination The traceroute destination.
+	 * @return The timeout in milliseconds.
+	 */
+	public int getTimeout(int ttl, InetAddress destination)
+	{
+		Integer prefix = Integer.valueOf(TracerouteTimeout.getPrefix(destination));
+
+		double estimate;
+		synchronized (this.distances) {
+			// The timeout is the largest of the distance and prefix estimates.
+			estimate = Math.max(
+				this.getQuantile(this.distances.get(Integer.valueOf(ttl))),
+				this.getQuantile(this.prefixes.get(prefix)));
+		}
+		return this.getTimeout(estimate);
+	}
+
+	/**
+	 * Gets the timeout for all probes of a traceroute.
+	 * @param destination The traceroute destination.
+	 * @return The timeout in milliseconds.
+	 */
+	public int getTimeout(InetAddress destination)
+	{
+		Integer prefix = Integer.valueOf(TracerouteTimeout.getPrefix(destination));
+
+		double estimate;
+		synchronized (this.distances) {
+			// The timeout is the largest of the prefix estimate and all distance estimates.
+			estimate = this.getQuantile(this.prefixes.get(prefix));
+			for (int ttl = 1; (ttl <= this.settings.getMaximumHops()) && (estimate >= 0); ttl++) {
+				estimate = Math.max(estimate, this.getQuantile(this.distances.get(Integer.valueOf(ttl))));
+			}
+		}
+		return this.getTimeout(estimate);
+	}
+
+	/**
+	 * Converts a round-trip time estimate to a timeout.
+	 * @param estimate The estimate in milliseconds, or a negative value if unknown.
+	 * @return The timeout in milliseconds.
+	 */
+	private int getTimeout(double estimate)
+	{
+		final int maximum = this.settings.getTimeout();
+		if (estimate < 0) return maximum;
+		return (int)Math.min(maximum, Math.max(this.minimum, Math.ceil(estimate) + this.margin));
+	}
+
+	/**
+	 * Gets the round-trip time quantile of a histogram.
+	 * @param histogram The histogram, or null.
+	 * @return The upper bound of the quantile bucket in milliseconds, or -1 if there are not enough samples.
+	 */
+	private double getQuantile(int[] histogram)
+	{
+		if (null == histogram) return -1;
+
+		int total = 0;
+		for (int count : histogram) total += count;
+		if (total < TracerouteTimeout.minimumSamples) return -1;
+
+		int target = (int)Math.ceil(total * this.quantile);
+		int sum = 0;
+		for (int bucket = 0; bucket < TracerouteTimeout.buckets; bucket++) {
+			sum += histogram[bucket];
+			if (sum >= target) return TracerouteTimeout.getBound(bucket);
+		}
+		return TracerouteTimeout.getBound(TracerouteTimeout.buckets - 1);
+	}
+
+	/**
+	 * Adds a sample to a histogram, halving the histogram when it has too many samples.
+	 * @param histograms The histograms.
+	 * @param key The histogram key.
+	 * @param bucket The sample bucket.
+	 */
+	private static void add(HashMap<Integer, int[]> histograms, Integer key, int bucket)
+	{
+		int[] histogram = histograms.get(key);
+		if (null == histogram) {
+			histogram = new int[TracerouteTimeout.buckets + 1];
+			histograms.put(key, histogram);
+		}
+		histogram[bucket]++;
+
+		// The last element is the sample count since the last decay.
+		if (++histogram[TracerouteTimeout.buckets] >= TracerouteTimeout.decaySamples) {
+			for (int index = 0; index < TracerouteTimeout.buckets; index++) {
+				histogram[index] >>= 1;
+			}
+			histogram[TracerouteTimeout.buckets] = 0;
+		}
+	}
+
+	/**
+	 * Gets the histogram bucket of a round-trip time, where the bucket bounds grow by a factor of square root of two.
+	 * @param rtt The round-trip time in milliseconds.
+	 * @return The bucket.
+	 */
+	private static int getBucket(float rtt)
+	{
+		if (rtt <= 1) return 0;
+		int bucket = (int)Math.ceil(2 * Math.log(rtt) / Math.log(2));
+		return Math.min(bucket, TracerouteTimeout.buckets - 1);
+	}
+
+	/**
+	 * Gets the upper bound of a histogram bucket.
+	 * @param bucket The bucket.
+	 * @return The upper bound in milliseconds.
+	 */
+	private static double getBound(int bucket)
+	{
+		return Math.pow(2, bucket / 2.0);
+	}
+
+	/**
+	 * Gets the prefix key of a destination: the /24 prefix for IPv4 and a hash of the /48 prefix for IPv6.
+	 * @param destination The destination.
+	 * @return The prefix key.
+	 */
+	private static int getPrefix(InetAddress destination)
+	{
+		byte[] bytes = destination.getAddress();
+		if (bytes.length == 4) {
+			return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8);
+		}
+		int hash = 1;
+		for (int index = 0; index < 6; index++) hash = 31 * hash + bytes[index];
+		return hash;
+	}
+}
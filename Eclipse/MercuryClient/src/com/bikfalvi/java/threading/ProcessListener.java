@@ -0,0 +1,45 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.threading;
+
+/**
+ * An interface for a listener of the output of a process registered with a process reactor.
+ * The methods are called on the reactor thread, and must not block.
+ * @author agent
+ *
+ */
+public interface ProcessListener {
+	/**
+	 * Called when the process writes a complete line to the standard output.
+	 * @param line The line, without the line terminator.
+	 */
+	public void outputReceived(String line);
+
+	/**
+	 * Called when the process writes a complete line to the standard error.
+	 * @param line The line, without the line terminator.
+	 */
+	public void errorReceived(String line);
+
+	/**
+	 * Called once, after the process exited and its output has been read.
+	 * @param code The exit code of the process, or -1 if the output could not be read or the listener failed.
+	 */
+	public void processExited(int code);
+}
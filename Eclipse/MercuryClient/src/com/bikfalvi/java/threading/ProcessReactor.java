@@ -0,0 +1,252 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.threading;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * A class representing a reactor that reads the standard output and standard
+ * error of many processes from a single thread, and dispatches the complete
+ * lines to a listener for each process. Both streams are always drained, such
+ * that a process cannot block on a full pipe.
+ * <p>
+ * The process pipes cannot be selected in Java, so the reactor polls the
+ * bytes available on each stream, and sleeps briefly when no process has
+ * written anything. The thread is started with the first process, and stops
+ * when no processes remain. The streams of a process are closed when it is
+ * removed from the reactor.
+ * @author agent
+ *
+ */
+public final class ProcessReactor
+{
+	private final ArrayList<Registration> registrations = new ArrayList<Registration>();
+	private final byte[] buffer = new byte[4096];
+	private Thread thread = null;
+
+	private static final int idleInterval = 5;
+
+	/**
+	 * Creates a new process reactor instance.
+	 */
+	public ProcessReactor()
+	{
+	}
+
+	/**
+	 * Registers a process with the reactor.
+	 * @param process The process.
+	 * @param listener The listener for the process output.
+	 */
+	public void register(Process process, ProcessListener listener)
+	{
+		synchronized (this.registrations) {
+			// Add the process.
+			this.registrations.add(new Registration(process, listener));
+
+			// If the reactor thread is not running, start it.
+			if (null == this.thread) {
+				this.thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						ProcessReactor.this.loop();
+					}
+				}, "Process reactor");
+				this.thread.setDaemon(true);
+				this.thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of processes registered with the reactor.
+	 * @return The number of processes.
+	 */
+	public int size() {
+		synchronized (this.registrations) {
+			return this.registrations.size();
+		}
+	}
+
+	/**
+	 * Reads the output of the registered processes until no processes remain.
+	 */
+	private void loop()
+	{
+		ArrayList<Registration> active = new ArrayList<Registration>();
+		for (;;) {
+			// Copy the registered processes, or stop if there are none.
+			synchronized (this.registrations) {
+				if (this.registrations.isEmpty()) {
+					this.thread = null;
+					return;
+				}
+				active.clear();
+				active.addAll(this.registrations);
+			}
+
+			boolean idle = true;
+			for (Registration registration : active) {
+				try {
+					// Check whether the process exited before reading, such that no output is missed.
+					boolean alive = registration.process.isAlive();
+
+					// Read the available output.
+					if (this.read(registration.process.getInputStream(), registration.output, registration.listener, false, alive)) idle = false;
+					if (this.read(registration.process.getErrorStream(), registration.error, registration.listener, true, alive)) idle = false;
+
+					// If the process exited, its output has been read to the end.
+					if (!alive) {
+						this.remove(registration);
+						registration.listener.processExited(registration.process.exitValue());
+					}
+				}
+				catch (IOException exception) {
+					// Stop the process, whose output can no longer be read.
+					registration.process.destroy();
+					this.remove(registration);
+					registration.listener.processExited(-1);
+				}
+				catch (RuntimeException exception) {
+					// Stop the process, whose listener failed.
+					registration.process.destroy();
+					this.remove(registration);
+					// Complete the listener with a failure, unless the listener fails again.
+					try {
+						registration.listener.processExited(-1);
+					}
+					catch (RuntimeException e) { }
+				}
+			}
+
+			// If no process wrote anything, wait before polling again.
+			if (idle) {
+				try {
+					Thread.sleep(ProcessReactor.idleInterval);
+				}
+				catch (InterruptedException exception) { }
+			}
+		}
+	}
+
+	/**
+	 * Reads the output of a process stream, and dispatches the complete lines.
+	 * @param stream The stream.
+	 * @param line The partial line of the stream.
+	 * @param listener The listener.
+	 * @param error True if the stream is the standard error, false otherwise.
+	 * @param alive True if the process is running, in which case only the available bytes are read; otherwise, the stream is read to the end.
+	 * @return True if any bytes were read, false otherwise.
+	 * @throws IOException
+	 */
+	private boolean read(InputStream stream, StringBuilder line, ProcessListener listener, boolean error, boolean alive) throws IOException
+	{
+		boolean read = false;
+		for (;;) {
+			// Get the number of bytes to read without blocking.
+			int count = alive ? Math.min(stream.available(), this.buffer.length) : this.buffer.length;
+			if (0 == count) return read;
+
+			count = stream.read(this.buffer, 0, count);
+			if (count < 0) {
+				// Dispatch the last line, if not terminated.
+				if (line.length() > 0) this.dispatch(line, listener, error);
+				return read;
+			}
+			read = true;
+
+			// Split the lines.
+			for (int index = 0; index < count; index++) {
+				char c = (char)(this.buffer[index] & 0xFF);
+				if (c == '\n') {
+					this.dispatch(line, listener, error);
+				}
+				else if (c != '\r') {
+					line.append(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dispatches a complete line to the listener.
+	 * @param line The line, which is cleared.
+	 * @param listener The listener.
+	 * @param error True if the line is from the standard error, false otherwise.
+	 */
+	private void dispatch(StringBuilder line, ProcessListener listener, boolean error)
+	{
+		String text = line.toString();
+		line.setLength(0);
+		if (error) listener.errorReceived(text);
+		else listener.outputReceived(text);
+	}
+
+	/**
+	 * Removes a process from the reactor, and closes its streams.
+	 * @param registration The process registration.
+	 */
+	private void remove(Registration registration)
+	{
+		synchronized (this.registrations) {
+			this.registrations.remove(registration);
+		}
+		// Close the streams, which are no longer read.
+		ProcessReactor.close(registration.process.getInputStream());
+		ProcessReactor.close(registration.process.getErrorStream());
+		ProcessReactor.close(registration.process.getOutputStream());
+	}
+
+	/**
+	 * Closes a process stream, ignoring the errors.
+	 * @param stream The stream.
+	 */
+	private static void close(Closeable stream)
+	{
+		try {
+			stream.close();
+		}
+		catch (IOException exception) { }
+	}
+
+	/**
+	 * A class representing a process registered with the reactor.
+	 */
+	private static final class Registration
+	{
+		private final Process process;
+		private final ProcessListener listener;
+		private final StringBuilder output = new StringBuilder();
+		private final StringBuilder error = new StringBuilder();
+
+		/**
+		 * Creates a new registration instance.
+		 * @param process The process.
+		 * @param listener The listener.
+		 */
+		private Registration(Process process, ProcessListener listener)
+		{
+			this.process = process;
+			this.listener = listener;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package com.bikfalvi.java.threading;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A class representing a semaphore whose number of permits can change while
+ * threads hold or wait for permits. Reducing the permits does not interrupt the
+ * holders, but the new limit applies as they release their permits.
+ * @author agent
+ *
+ */
+public final class ResizableSemaphore extends Semaphore
+{
+	private static final long serialVersionUID = 1L;
+	private int permits;
+
+	/**
+	 * Creates a new resizable semaphore instance.
+	 * @param permits The number of permits.
+	 */
+	public ResizableSemaphore(int permits)
+	{
+		super(permits, true);
+		this.permits = permits;
+	}
+
+	/**
+	 * Gets the total number of permits.
+	 * @return The number of permits.
+	 */
+	public synchronized int getPermits() {
+		return this.permits;
+	}
+
+	/**
+	 * Sets the total number of permits.
+	 * @param permits The number of permits.
+	 */
+	public synchronized void setPermits(int permits)
+	{
+		// Compute the difference to the current permits.
+		int delta = permits - this.permits;
+		this.permits = permits;
+
+		if (delta > 0) {
+			// Add the new permits.
+			this.release(delta);
+		}
+		else if (delta < 0) {
+			// Remove the permits, which may leave the available permits negative.
+			this.reducePermits(-delta);
+		}
+	}
+}
@@ -22,12 +22,14 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
- * A class representing a cached thread pool.
+ * A class representing a cached thread pool. The class also executes tasks on
+ * virtual threads, created on demand, for tasks that mostly block.
  * @author Alex Bikfalvi
  *
  */
 public final class ThreadPool {
 	private static ExecutorService threadPool;
+	private static ExecutorService virtualThreadPool = null;
 	
 	/**
 	 * Initializes the static field.
@@ -44,4 +46,23 @@ public final class ThreadPool {
 	public static void execute(Runnable task) {
 		ThreadPool.threadPool.execute(task);
 	}
+
+	/**
+	 * Executes the specified task on a new virtual thread.
+	 * @param task
+	 */
+	public static void executeVirtual(Runnable task) {
+		ThreadPool.getVirtualThreadPool().execute(task);
+	}
+
+	/**
+	 * Gets the executor of virtual threads, creating it on first use.
+	 * @return The executor.
+	 */
+	private static synchronized ExecutorService getVirtualThreadPool() {
+		if (null == ThreadPool.virtualThreadPool) {
+			ThreadPool.virtualThreadPool = Executors.newVirtualThreadPerTaskExecutor();
+		}
+		return ThreadPool.virtualThreadPool;
+	}
 }
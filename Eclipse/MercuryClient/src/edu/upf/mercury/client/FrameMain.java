@@ -34,6 +34,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
@@ -41,9 +42,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Locale;
+import java.util.UUID;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -70,11 +70,21 @@ import com.bikfalvi.java.globalization.Territory;
 import com.bikfalvi.java.json.JsonArray;
 import com.bikfalvi.java.json.JsonObject;
 import com.bikfalvi.java.json.JsonProperty;
+import com.bikfalvi.java.net.core.HelperTracerouteBackend;
+import com.bikfalvi.java.net.core.NativeTraceroute;
+import com.bikfalvi.java.net.core.PathChangeDetector;
+import com.bikfalvi.java.net.core.ProbePacer;
+import com.bikfalvi.java.net.core.ProcessTracerouteBackend;
+import com.bikfalvi.java.net.core.RecordTracerouteBackend;
+import com.bikfalvi.java.net.core.ReplayTracerouteBackend;
+import com.bikfalvi.java.net.core.TopologyGraph;
 import com.bikfalvi.java.net.core.Traceroute;
+import com.bikfalvi.java.net.core.TracerouteBackend;
+import com.bikfalvi.java.net.core.TracerouteCorpus;
 import com.bikfalvi.java.net.core.TracerouteHop;
 import com.bikfalvi.java.net.core.TracerouteResult;
 import com.bikfalvi.java.net.core.TracerouteSettings;
-import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.net.core.TracerouteStopSet;
 import com.bikfalvi.java.threading.ManualResetEvent;
 import com.bikfalvi.java.threading.ThreadPool;
 import com.bikfalvi.java.web.WebCallback;
@@ -84,6 +94,19 @@ import com.bikfalvi.java.web.WebState;
 import com.bikfalvi.java.web.location.LocationRequest;
 import com.bikfalvi.java.web.location.LocationResult;
 
+import edu.upf.mercury.client.campaign.CampaignDeadline;
+import edu.upf.mercury.client.campaign.CampaignJournal;
+import edu.upf.mercury.client.campaign.CampaignListener;
+import edu.upf.mercury.client.campaign.CampaignState;
+import edu.upf.mercury.client.campaign.CampaignUploader;
+import edu.upf.mercury.client.campaign.ConcurrencyController;
+import edu.upf.mercury.client.campaign.DeadlineSummary;
+import edu.upf.mercury.client.campaign.ExecutionMode;
+import edu.upf.mercury.client.campaign.ShardCoordinator;
+import edu.upf.mercury.client.campaign.ShardWorker;
+import edu.upf.mercury.client.campaign.SiteHistory;
+import edu.upf.mercury.client.campaign.TracerouteCampaign;
+import edu.upf.mercury.client.campaign.UploadStage;
 import edu.upf.mercury.client.resources.Resources;
 import edu.upf.mercury.client.wizard.Wizard;
 import edu.upf.mercury.client.wizard.WizardEvent;
@@ -96,67 +119,6 @@ import edu.upf.mercury.client.wizard.WizardPage;
  *
  */
 public class FrameMain extends JFrame {
-	/**
-	 * A class representing the information for a traceroute.
-	 * @author Alex Bikfalvi
-	 *
-	 */
-	private final class TracerouteInfo
-	{
-		private String site;
-		private InetAddress address = null;
-		private int count = 0;
-		
-		/**
-		 * Creates a new traceroute information instance.
-		 * @param site The destination site.
-		 */
-		public TracerouteInfo(String site)
-		{
-			this.site = site;
-		}
-
-		/**
-		 * Gets the site for this traceroute.
-		 * @return The site.
-		 */
-		public String getSite() {
-			return site;
-		}
-
-		/**
-		 * Gets the Internet address for this traceroute.
-		 * @return The address.
-		 */
-		public InetAddress getAddress() {
-			return address;
-		}
-
-		/**
-		 * Sets the Internet address for this traceroute.
-		 * @param address The address.
-		 */
-		public void setAddress(InetAddress address) {
-			this.address = address;
-		}
-
-		/**
-		 * Gets the attempts for this traceroute.
-		 * @return The attempt count.
-		 */
-		public int getCount() {
-			return count;
-		}
-
-		/**
-		 * Sets the attempts for this traceroute.
-		 * @param count The attempt count.
-		 */
-		public void setCount(int count) {
-			this.count = count;
-		}		
-	}	
-	
 	/**
 	 * Private variables. 
 	 */
@@ -164,6 +126,20 @@ public class FrameMain extends JFrame {
 	private final Object sync = new Object();
 	
 	private static boolean saveToFile = false;
+	private static boolean tracerouteNative = false;
+	private static boolean tracerouteHelper = false;
+	private static boolean tracerouteDoubletree = false;
+	private static boolean tracerouteAdaptive = false;
+	private static boolean tracerouteVirtual = false;
+	private static int tracerouteStateless = 0;
+	private static File tracerouteRecord = null;
+	private static TracerouteCorpus tracerouteReplay = null;
+	private static File tracerouteChanges = null;
+	private static File tracerouteHistory = null;
+	private static File tracerouteTopology = null;
+	private static File tracerouteJournal = null;
+	private static double tracerouteGlobalRate = 400;
+	private static double traceroutePrefixRate = 40;
 	
 	private static final String[] locales = { "ca", "de", "en", "es", "fr", "pt", "ro" };
 	private static CultureCollection cultures;
@@ -191,17 +167,27 @@ public class FrameMain extends JFrame {
 
 	private final WebRequest webRequest = new WebRequest();
 	
-	private static final int tracerouteConcurrent = 20;
-	private static final int tracerouteRetries = 3;
+	private static int tracerouteConcurrent = 20;
+	private static int tracerouteConcurrentMinimum = 0;
+	private static int tracerouteConcurrentMaximum = 0;
+	private static final int tracerouteProbeRetries = 3;
+	private static final int tracerouteUploadRetries = 5;
+	private static int tracerouteUploadThreads = 4;
+	private static int tracerouteUploadCapacity = 64;
+	private static int tracerouteShardPort = 0;
+	private static int tracerouteShardSize = 50;
+	private static String tracerouteCoordinator = null;
+	private static String tracerouteShardAddress = "127.0.0.1";
+	private static String tracerouteShardToken = null;
+	private static int tracerouteDeadline = 0;
 
-	private final Traceroute traceroute;
+	private final TracerouteCampaign campaign;
+	private ShardCoordinator shardCoordinator = null;
+	private ShardWorker shardWorker = null;
+	private final PathChangeDetector tracerouteChangeDetector;
 	private final TracerouteSettings tracerouteSettings;
-	private final LinkedList<TracerouteInfo> traceroutePending = new LinkedList<TracerouteInfo>();
-	private final HashSet<TracerouteInfo> tracerouteRunning = new HashSet<TracerouteInfo>();
-	private final HashSet<TracerouteInfo> tracerouteCompleted = new HashSet<TracerouteInfo>();
-	private final HashSet<TracerouteInfo> tracerouteFailed = new HashSet<TracerouteInfo>();
-	private final CancellationToken tracerouteCancel = new CancellationToken(); 
 	private Date tracerouteTimestamp;
+	private int tracerouteRestored;
 	
 	private Date sessionTimestamp;
 	private String sessionId;
@@ -255,12 +241,114 @@ public class FrameMain extends JFrame {
 	 */
 	public static void main(String[] args) throws IOException, ParserConfigurationException, SAXException {
 		// Check the arguments.
-		if (args.length == 1) {
-			if (args[0].equals("--file")) {
+		for (int index = 0; index < args.length; index++) {
+			if (args[index].equals("--file")) {
 				FrameMain.saveToFile = true;
 			}
+			else if (args[index].equals("--native")) {
+				FrameMain.tracerouteNative = true;
+			}
+			else if (args[index].equals("--helper")) {
+				FrameMain.tracerouteHelper = true;
+			}
+			else if (args[index].equals("--adaptive")) {
+				FrameMain.tracerouteAdaptive = true;
+			}
+			else if (args[index].equals("--virtual")) {
+				FrameMain.tracerouteVirtual = true;
+			}
+			else if (args[index].equals("--stateless") && (index + 1 < args.length)) {
+				// The stateless traceroute measures the sites in batches, at the probe rate in probes per second.
+				FrameMain.tracerouteStateless = Integer.parseInt(args[++index]);
+			}
+			else if (args[index].equals("--doubletree")) {
+				FrameMain.tracerouteNative = true;
+				FrameMain.tracerouteDoubletree = true;
+			}
+			else if (args[index].equals("--record") && (index + 1 < args.length)) {
+				FrameMain.tracerouteRecord = new File(args[++index]);
+			}
+			else if (args[index].equals("--changes") && (index + 1 < args.length)) {
+				FrameMain.tracerouteChanges = new File(args[++index]);
+			}
+			else if (args[index].equals("--history") && (index + 1 < args.length)) {
+				FrameMain.tracerouteHistory = new File(args[++index]);
+			}
+			else if (args[index].equals("--topology") && (index + 1 < args.length)) {
+				FrameMain.tracerouteTopology = new File(args[++index]);
+			}
+			else if (args[index].equals("--journal") && (index + 1 < args.length)) {
+				FrameMain.tracerouteJournal = new File(args[++index]);
+			}
+			else if (args[index].equals("--uploads") && (index + 1 < args.length)) {
+				// The uploads are the number of uploader threads and the capacity of the upload queue.
+				String[] uploads = args[++index].split(":");
+				FrameMain.tracerouteUploadThreads = Integer.parseInt(uploads[0]);
+				if (uploads.length > 1) FrameMain.tracerouteUploadCapacity = Integer.parseInt(uploads[1]);
+			}
+			else if (args[index].equals("--coordinator") && (index + 1 < args.length)) {
+				// The coordinator is the port on which the shards are served, and the shard size.
+				String[] coordinator = args[++index].split(":");
+				FrameMain.tracerouteShardPort = Integer.parseInt(coordinator[0]);
+				if (coordinator.length > 1) FrameMain.tracerouteShardSize = Integer.parseInt(coordinator[1]);
+			}
+			else if (args[index].equals("--deadline") && (index + 1 < args.length)) {
+				// The deadline is the time budget of the campaign in minutes.
+				FrameMain.tracerouteDeadline = Integer.parseInt(args[++index]);
+			}
+			else if (args[index].equals("--coordinator-address") && (index + 1 < args.length)) {
+				// The local address on which the shards are served, which is the loopback address by default.
+				FrameMain.tracerouteShardAddress = args[++index];
+			}
+			else if (args[index].equals("--shard") && (index + 1 < args.length)) {
+				FrameMain.tracerouteCoordinator = args[++index];
+			}
+			else if (args[index].equals("--shard-token") && (index + 1 < args.length)) {
+				// The token shared by the coordinator and the worker clients.
+				FrameMain.tracerouteShardToken = args[++index];
+			}
+			else if (args[index].equals("--concurrency") && (index + 1 < args.length)) {
+				// The concurrency is either a fixed number, or the minimum and maximum between which it adapts.
+				String[] bounds = args[++index].split(":");
+				if (bounds.length > 1) {
+					FrameMain.tracerouteConcurrentMinimum = Integer.parseInt(bounds[0]);
+					FrameMain.tracerouteConcurrentMaximum = Integer.parseInt(bounds[1]);
+				}
+				else {
+					FrameMain.tracerouteConcurrent = Integer.parseInt(bounds[0]);
+				}
+			}
+			else if (args[index].equals("--pacing") && (index + 1 < args.length)) {
+				// The pacing is the global and per-prefix rate in probes per second, where zero disables the pacing.
+				String[] rates = args[++index].split(":");
+				FrameMain.tracerouteGlobalRate = Double.parseDouble(rates[0]);
+				FrameMain.traceroutePrefixRate = Double.parseDouble(rates[rates.length - 1]);
+			}
+			else if (args[index].equals("--replay") && (index + 1 < args.length)) {
+				FrameMain.tracerouteReplay = TracerouteCorpus.read(new File(args[++index]));
+			}
 		}
 		
+		// The shards must have at least one site.
+		if (FrameMain.tracerouteShardSize < 1) {
+			JOptionPane.showMessageDialog(
+				null,
+				"The shard size of the coordinator switch must be at least one site.",
+				"Mercury Client Options",
+				JOptionPane.ERROR_MESSAGE);
+			System.exit(1);
+		}
+
+		// The worker clients must authenticate with the coordinator.
+		if ((null != FrameMain.tracerouteCoordinator) && (null == FrameMain.tracerouteShardToken)) {
+			JOptionPane.showMessageDialog(
+				null,
+				"The shard switch requires the token of the coordinator, set with the shard token switch.",
+				"Mercury Client Options",
+				JOptionPane.ERROR_MESSAGE);
+			System.exit(1);
+		}
+
 		// Load the cultures.
 		FrameMain.loadCultures();
 		
@@ -548,9 +636,265 @@ public class FrameMain extends JFrame {
 		
 		// Create the traceroute settings.
 		this.tracerouteSettings = new TracerouteSettings();
+		this.tracerouteSettings.setAdaptiveTimeout(FrameMain.tracerouteAdaptive);
+		// Pace the probes, such that the concurrent traceroutes do not trigger the ICMP rate limiting.
+		if ((FrameMain.tracerouteGlobalRate > 0) && (FrameMain.traceroutePrefixRate > 0)) {
+			this.tracerouteSettings.setPacer(new ProbePacer(FrameMain.tracerouteGlobalRate, FrameMain.traceroutePrefixRate));
+		}
 
-		// Create the traceroute.
-		this.traceroute = new Traceroute(this.tracerouteSettings);
+		// Create the traceroute backend.
+		TracerouteBackend tracerouteBackend;
+		if (null != FrameMain.tracerouteReplay) {
+			// Replay the recorded traceroutes.
+			tracerouteBackend = new ReplayTracerouteBackend(this.tracerouteSettings, FrameMain.tracerouteReplay);
+		}
+		else if (FrameMain.tracerouteNative && NativeTraceroute.isSupported()) {
+			// Run the traceroutes in process, and if the Doubletree switch has been set, share the stop sets across the session.
+			try {
+				tracerouteBackend = NativeTraceroute.create(this.tracerouteSettings, FrameMain.tracerouteDoubletree ? new TracerouteStopSet() : null);
+			}
+			catch (IOException exception) {
+				tracerouteBackend = new ProcessTracerouteBackend(this.tracerouteSettings);
+			}
+		}
+		else if (FrameMain.tracerouteHelper) {
+			// Run the traceroutes in a single helper process.
+			try {
+				tracerouteBackend = new HelperTracerouteBackend(this.tracerouteSettings);
+			}
+			catch (IOException exception) {
+				tracerouteBackend = new ProcessTracerouteBackend(this.tracerouteSettings);
+			}
+		}
+		else {
+			// Run the traceroutes with the operating system command.
+			tracerouteBackend = new ProcessTracerouteBackend(this.tracerouteSettings);
+		}
+		
+		// If the record switch has been set, record the traceroutes.
+		if (null != FrameMain.tracerouteRecord) {
+			try {
+				tracerouteBackend = new RecordTracerouteBackend(tracerouteBackend, FrameMain.tracerouteRecord);
+			}
+			catch (IOException exception) {
+				JOptionPane.showMessageDialog(
+					null,
+					String.format("Mercury Client cannot record the traceroutes to the file %s. %s", FrameMain.tracerouteRecord, exception.getMessage()),
+					"Mercury Client Options",
+					JOptionPane.WARNING_MESSAGE);
+			}
+		}
+
+		// If the changes switch has been set, load the path fingerprints of the previous sessions.
+		PathChangeDetector tracerouteChangeDetector = null;
+		if (null != FrameMain.tracerouteChanges) {
+			tracerouteChangeDetector = new PathChangeDetector();
+			if (FrameMain.tracerouteChanges.exists()) {
+				try {
+					tracerouteChangeDetector = PathChangeDetector.read(FrameMain.tracerouteChanges);
+				}
+				catch (IOException exception) {
+					JOptionPane.showMessageDialog(
+						null,
+						String.format("Mercury Client cannot read the path fingerprints from the file %s. %s", FrameMain.tracerouteChanges, exception.getMessage()),
+						"Mercury Client Options",
+						JOptionPane.WARNING_MESSAGE);
+				}
+			}
+		}
+		this.tracerouteChangeDetector = tracerouteChangeDetector;
+		// Save the path fingerprints when the application exits, such that an interrupted session keeps them.
+		if (null != this.tracerouteChangeDetector) {
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					// If a campaign started, save the fingerprints, where the user can no longer be notified of a failure.
+					if (null == frame.campaign.getState()) return;
+					try {
+						frame.tracerouteChangeDetector.write(FrameMain.tracerouteChanges);
+					}
+					catch (IOException exception) {
+					}
+				}
+			});
+		}
+
+		// If the history switch has been set, load the traceroute durations of the previous sessions.
+		SiteHistory tracerouteHistory = null;
+		if (null != FrameMain.tracerouteHistory) {
+			tracerouteHistory = new SiteHistory();
+			if (FrameMain.tracerouteHistory.exists()) {
+				try {
+					tracerouteHistory = SiteHistory.read(FrameMain.tracerouteHistory);
+				}
+				catch (IOException exception) {
+					JOptionPane.showMessageDialog(
+						null,
+						String.format("Mercury Client cannot read the traceroute history from the file %s. %s", FrameMain.tracerouteHistory, exception.getMessage()),
+						"Mercury Client Options",
+						JOptionPane.WARNING_MESSAGE);
+				}
+			}
+			// Save the traceroute history when the application exits, such that an interrupted session keeps it.
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					// If a campaign started, save the history, where the user can no longer be notified of a failure.
+					if (null == frame.campaign.getState()) return;
+					try {
+						frame.campaign.getHistory().write(FrameMain.tracerouteHistory);
+					}
+					catch (IOException exception) {
+					}
+				}
+			});
+		}
+
+		// Create the traceroute campaign, which uploads the results to the Mercury web server.
+		this.campaign = new TracerouteCampaign(new Traceroute(tracerouteBackend), new CampaignUploader() {
+			@Override
+			public boolean upload(String site, TracerouteResult result) {
+				return frame.onUploadTraceroute(site, result);
+			}
+		});
+		this.campaign.setConcurrency(FrameMain.tracerouteConcurrent);
+		this.campaign.setProbeRetries(FrameMain.tracerouteProbeRetries);
+		this.campaign.setUploadRetries(FrameMain.tracerouteUploadRetries);
+		// Upload the results from a separate stage, such that a slow web server does not delay the traceroutes.
+		if (FrameMain.tracerouteUploadThreads > 0) {
+			this.campaign.setStage(new UploadStage(FrameMain.tracerouteUploadCapacity, FrameMain.tracerouteUploadThreads));
+		}
+		// Run each traceroute and upload on a virtual thread, if selected.
+		if (FrameMain.tracerouteVirtual) this.campaign.setMode(ExecutionMode.VIRTUAL);
+		// If the stateless switch has been set, measure the sites in batches from a single socket, at the probe rate.
+		if (FrameMain.tracerouteStateless > 0) {
+			this.tracerouteSettings.setProbeRate(FrameMain.tracerouteStateless);
+			try {
+				this.campaign.setBatch(NativeTraceroute.createBatch(this.tracerouteSettings));
+			}
+			catch (IOException exception) {
+				JOptionPane.showMessageDialog(
+					null,
+					String.format("Mercury Client cannot run the stateless traceroute, and runs a traceroute for each site. %s", exception.getMessage()),
+					"Mercury Client Options",
+					JOptionPane.WARNING_MESSAGE);
+			}
+		}
+		// If the concurrency switch has bounds, adapt the number of concurrent traceroutes between them.
+		if (FrameMain.tracerouteConcurrentMaximum > 0) {
+			this.campaign.setController(new ConcurrencyController(
+					FrameMain.tracerouteConcurrentMinimum,
+					FrameMain.tracerouteConcurrentMaximum,
+					FrameMain.tracerouteConcurrent));
+		}
+		this.campaign.setChangeDetector(this.tracerouteChangeDetector);
+		// Start the slowest sites first, according to the history.
+		this.campaign.setHistory(tracerouteHistory);
+		// If the deadline switch has been set, cover the most destination prefixes within the time budget.
+		if (FrameMain.tracerouteDeadline > 0) {
+			this.campaign.setDeadline(new CampaignDeadline(FrameMain.tracerouteDeadline * 60000L, this.tracerouteSettings));
+		}
+
+		// If the journal switch has been set, open the journal, from which an interrupted session resumes.
+		if (null != FrameMain.tracerouteJournal) {
+			try {
+				final CampaignJournal journal = CampaignJournal.open(FrameMain.tracerouteJournal);
+				this.campaign.setJournal(journal);
+				// Write the last records when the application exits.
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+					@Override
+					public void run() {
+						try {
+							journal.close();
+						}
+						catch (IOException exception) {
+						}
+					}
+				});
+			}
+			catch (IOException exception) {
+				JOptionPane.showMessageDialog(
+					null,
+					String.format("Mercury Client cannot open the campaign journal %s. %s", FrameMain.tracerouteJournal, exception.getMessage()),
+					"Mercury Client Options",
+					JOptionPane.WARNING_MESSAGE);
+			}
+		}
+		// If the topology switch has been set, create the topology graph of the session, which is exported to the file.
+		if (null != FrameMain.tracerouteTopology) {
+			this.campaign.setTopology(new TopologyGraph(this.tracerouteSettings.getAddressTable()));
+			// Export the topology when the application exits, such that an interrupted session keeps it.
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					// If a campaign started, export the topology, where the user can no longer be notified of a failure.
+					if (null == frame.campaign.getState()) return;
+					try {
+						frame.campaign.getTopology().write(FrameMain.tracerouteTopology);
+					}
+					catch (IOException exception) {
+					}
+				}
+			});
+		}
+		this.campaign.setListener(new CampaignListener() {
+			@Override
+			public void siteCompleted(final CampaignState state, int id, TracerouteResult result) {
+				// Update the progress.
+				EventQueue.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						if (!frame.campaign.isCanceled())
+						{
+							frame.progressBar.setMaximum(state.size());
+							frame.progressBar.setValue(state.getCompleted());
+							frame.textProgress.setText(String.format(FrameMain.translation.get("LabelProgressCompleted"),
+									state.getCompleted(),
+									state.size(),
+									frame.campaign.getLimit()));
+						}
+					}
+				});
+			}
+
+			@Override
+			public void siteFailed(CampaignState state, int id) {
+			}
+
+			@Override
+			public void campaignFinished(final CampaignState state) {
+				EventQueue.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						// If the wizard is not completed.
+						if (!frame.completed)
+						{
+							// Set the completed flag.
+							frame.completed = true;
+							// Enable the start button.
+							frame.pageRun.setAllowNext(true);
+							frame.pageRun.setAllowBack(true);
+							frame.progressBar.setVisible(false);
+							frame.textProgress.setText("");
+							frame.textTime.setText("");
+							frame.timer.stop();
+							// Stop the coordinator, whose shards are all completed.
+							frame.onStopCoordinator();
+							// Save the path fingerprints.
+							frame.onSavePathFingerprints();
+							// Save the traceroute history.
+							frame.onSaveHistory();
+							// Export the topology.
+							frame.onSaveTopology();
+							// Show the sites left out at the deadline.
+							frame.onShowDeadlineSummary(state);
+							// Switch to the finish page.
+							frame.wizard.next();
+						}	
+					}
+				});
+			}
+		});
 		
 		// Create the timer.
 		this.timer = new Timer(1000, new ActionListener() {
@@ -876,7 +1220,7 @@ public class FrameMain extends JFrame {
 			if (this.canceling) return false;
 
 			// If there are pending operations.
-			if (this.tracerouteRunning.size() > 0) {
+			if ((null != this.campaign.getState()) && (this.campaign.getState().getRunning() > 0)) {
 				// Ask the user whether to cancel.
 				if (JOptionPane.showConfirmDialog(this, FrameMain.translation.get("CancelMessageText"), FrameMain.translation.get("CancelMessageTitle"), JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE) == JOptionPane.YES_OPTION) {
 					// Set the canceling flag.
@@ -913,8 +1257,9 @@ public class FrameMain extends JFrame {
 	 */
 	private void onCancel()
 	{
-		// Cancel the traceroute.
-		this.tracerouteCancel.cancel();
+		// Cancel the shard worker and the traceroute campaign.
+		if (null != this.shardWorker) this.shardWorker.cancel();
+		this.campaign.cancel();
 		
 		// Get the main frame.
 		final FrameMain frame = this;
@@ -926,11 +1271,26 @@ public class FrameMain extends JFrame {
 				try {
 					// Wait for the asynchronous handle.
 					frame.waitAsync.waitOne();
+					// Cancel again a campaign that started while waiting.
+					frame.campaign.cancel();
+					// Wait for the running traceroutes.
+					frame.campaign.waitOne();
 				} catch (InterruptedException e) {
 				}
 				
-				// Close the form.
-				System.exit(0);
+				EventQueue.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						// Stop the coordinator.
+						frame.onStopCoordinator();
+						// Save the path fingerprints, the traceroute history and the topology of the cancelled session.
+						frame.onSavePathFingerprints();
+						frame.onSaveHistory();
+						frame.onSaveTopology();
+						// Close the form.
+						System.exit(0);
+					}
+				});
 			}
 		});
 	}
@@ -972,6 +1332,8 @@ public class FrameMain extends JFrame {
 		// Set the session identifier and timestamp.
 		this.sessionId = this.getSession();
 		this.sessionTimestamp = new Date();
+		// Start the deadline budget again with the first campaign of the session.
+		if (null != this.campaign.getDeadline()) this.campaign.getDeadline().reset();
 
 		// Disable the start button.
 		this.pageRun.setAllowNext(false);
@@ -1071,6 +1433,12 @@ public class FrameMain extends JFrame {
 	 */
 	private void onStartDownload()
 	{
+		// If the shard switch has been set, the coordinator provides the web sites.
+		if (null != FrameMain.tracerouteCoordinator) {
+			this.onStartShards(FrameMain.tracerouteCoordinator);
+			return;
+		}
+
 		// Update the progress.
 		this.textProgress.setText(FrameMain.translation.get("LabelProgressDownload"));
 
@@ -1159,286 +1527,218 @@ public class FrameMain extends JFrame {
 	 * Starts the wizard traceroute.
 	 * @param sites The list of sites.
 	 */
-	private void onStartTraceroute(ArrayList<String> sites) {
+	private void onStartTraceroute(final ArrayList<String> sites) {
+		// If the coordinator switch has been set, serve the sites in shards to the worker clients, including this one.
+		if (FrameMain.tracerouteShardPort > 0) {
+			// Stop the coordinator of a previous run.
+			this.onStopCoordinator();
+			// If the token switch has not been set, generate the token, which the worker clients need.
+			if (null == FrameMain.tracerouteShardToken) {
+				FrameMain.tracerouteShardToken = UUID.randomUUID().toString();
+				JOptionPane.showMessageDialog(
+					this,
+					String.format("The worker clients must use the shard token %s.", FrameMain.tracerouteShardToken),
+					"Mercury Client Options",
+					JOptionPane.INFORMATION_MESSAGE);
+			}
+			InetAddress address;
+			try {
+				address = InetAddress.getByName(FrameMain.tracerouteShardAddress);
+				this.shardCoordinator = new ShardCoordinator(sites, FrameMain.tracerouteShardSize, FrameMain.tracerouteShardToken);
+				this.shardCoordinator.start(address, FrameMain.tracerouteShardPort);
+			}
+			catch (IOException exception) {
+				// Show an error message.
+				JOptionPane.showMessageDialog(
+						this,
+						String.format(FrameMain.translation.get("MercuryMessageText"), exception.getMessage()),
+						FrameMain.translation.get("MercuryMessageTitle"),
+						JOptionPane.ERROR_MESSAGE);
+				// Enable the start button.
+				this.pageRun.setAllowNext(true);
+				this.progressBar.setVisible(false);
+				this.textProgress.setText("");
+				return;
+			}
+			// This client is a worker of its own coordinator, reached on the loopback address if the server is bound to all addresses.
+			if (address.isAnyLocalAddress()) address = InetAddress.getLoopbackAddress();
+			this.onStartShards(String.format(address instanceof Inet6Address ? "http://[%s]:%d" : "http://%s:%d",
+				address.getHostAddress(), this.shardCoordinator.getPort()));
+			return;
+		}
+
 		// Set the progress.
 		this.progressBar.setMaximum(sites.size());
 		this.progressBar.setValue(0);
 		this.textProgress.setText(String.format(FrameMain.translation.get("LabelProgressTraceroute"), sites.size()));
 
-		try {
-			// Initialize the traceroute state.
-			this.onTracerouteInitialize(sites);
-
-			// For all the concurrent traceroutes.
-			for (int index = 0; index < FrameMain.tracerouteConcurrent; index++) {
-				this.onStartTraceroute();
-			}			
-		}
-		catch (InterruptedException exception) {
-			// Set the wait handle.
-			this.waitAsync.set();
-			// Show an error message.
-			JOptionPane.showMessageDialog(
-					this,
-					String.format(FrameMain.translation.get("MercuryMessageText"), exception.getMessage()),
-					FrameMain.translation.get("MercuryMessageTitle"),
-					JOptionPane.ERROR_MESSAGE);
-			// Enable the start button.
-			this.pageRun.setAllowNext(true);
-			this.progressBar.setVisible(false);
-			this.textProgress.setText("");
+		// Begin the journal session, which resumes the session if it was interrupted.
+		if (null != this.campaign.getJournal()) {
+			try {
+				this.campaign.getJournal().begin(this.sessionId);
+			}
+			catch (Exception exception) {
+				// Continue without the journal.
+				this.campaign.setJournal(null);
+			}
 		}
-	}
-	
-	/**
-	 * Initializes the traceroute state.
-	 * @param sites The list of sites.
-	 * @throws InterruptedException 
-	 */
-	private void onTracerouteInitialize(Iterable<String> sites) throws InterruptedException {
-		synchronized (this.sync)
-		{
-			// Clear the traceroute lists.
-			this.traceroutePending.clear();
-			this.tracerouteRunning.clear();
-			this.tracerouteCompleted.clear();
-			this.tracerouteFailed.clear();
 
-			// Add the sites to the pending list.
-			for (String site : sites)
-			{
-				this.traceroutePending.add(new TracerouteInfo(site));
-			}
+		// Set the traceroute timestamp.
+		this.tracerouteTimestamp = new Date();
 
-			// Reset the wait handle.
-			this.waitAsync.reset();
-			// Reset the cancellation token.
-			this.tracerouteCancel.reset();
-			// Set the traceroute timestamp.
-			this.tracerouteTimestamp = new Date();
-			// Start the timer.
-			this.timer.start();
-		}
-	}
-	
-	/**
-	 * Starts a traceroute.
-	 */
-	private void onStartTraceroute() {
-		// Set the frame.
-		final FrameMain frame = this; 
-		
-		// Start the traceroute on the thread pool.
+		// Get the main frame.
+		final FrameMain frame = this;
+
+		// Reset the wait handle.
+		this.waitAsync.reset();
+		// Start the traceroute campaign on the thread pool, since a deadline resolves the sites first.
 		ThreadPool.execute(new Runnable() {
 			@Override
 			public void run() {
-				TracerouteInfo info = null;
-				
-				synchronized (frame.sync) {
-					// If the sites queue is empty.
-					if (frame.traceroutePending.size() == 0) {
-						if (frame.tracerouteRunning.size() == 0) {
-							EventQueue.invokeLater(new Runnable() {
-								@Override
-								public void run() {
-									// If the wizard is not completed.
-									if (!frame.completed)
-									{
-										// Set the completed flag.
-										frame.completed = true;
-										// Enable the start button.
-										frame.pageRun.setAllowNext(true);
-										frame.pageRun.setAllowBack(true);
-										frame.progressBar.setVisible(false);
-										frame.textProgress.setText("");
-										frame.textTime.setText("");
-										frame.timer.stop();
-										// Switch to the finish page.
-										frame.wizard.next();
-									}	
-								}
-							});
-						}
-						return;
-					}
-
-					try {
-						// Get a site from the pending list.
-						info = frame.onTraceroutePendingToRunning();
-					} catch (InterruptedException e) {
-					}
-				}
-				
-				if (null == info) return;
-
-				// Increment the traceroute information count.
-				info.setCount(info.getCount() + 1);
-
+				final CampaignState state;
 				try {
-					// If the IP address is null.
-					if (null == info.getAddress()) {
-						// Set the IP addresses.
-						info.setAddress(InetAddress.getByName(info.getSite()));
-					}
-
-					// Begin a traceroute for the specified destination.
-					final TracerouteResult result = frame.traceroute.run(info.getAddress(), frame.tracerouteCancel);
-
-					if (frame.tracerouteCancel.isCanceled()) {
-						// Set the traceroute as pending.
-						frame.onTracerouteRunningToPending(info);
-					}
-					else {
-						// Update the progress.
-						EventQueue.invokeAndWait(new Runnable() {
-							@Override
-							public void run() {
-								synchronized (frame.sync)
-								{
-									if (!frame.tracerouteCancel.isCanceled())
-									{
-										frame.progressBar.setValue(frame.tracerouteCompleted.size());
-										frame.textProgress.setText(String.format(FrameMain.translation.get("LabelProgressCompleted"),
-												frame.tracerouteCompleted.size(),
-												frame.traceroutePending.size() + frame.tracerouteRunning.size() + frame.tracerouteCompleted.size() + frame.tracerouteFailed.size()));
-									}
-								}
-							}
-						});
-
-						// Upload the result.
-						boolean success = false;
-
-						for (int attempt = 0; (attempt < 3) && (!success); attempt++) {
-							success = frame.onUploadTraceroute(info, result);
-						}
-
-						if (success) {
-							// Set the traceroute as completed.
-							frame.onTracerouteRunningToCompleted(info);
-						}
-						else {
-							throw new Exception();
-						}
-					}
-				}
-				catch (Exception exception) {
-					// If the traceroute count is less than the maximum retries.
-					if (info.getCount() < FrameMain.tracerouteRetries) {
-						// Add the traceroute to the pending list.
-						frame.onTracerouteRunningToPending(info);
-					}
-					else {
-						// Add the traceroute to the failed list.
-						frame.onTracerouteRunningToFailed(info);
-					}
+					state = frame.campaign.start(sites);
 				}
 				finally {
-					// If the wizard is not canceled.
-					if (!frame.tracerouteCancel.isCanceled()) {
-						// Start another traceroute.
-						frame.onStartTraceroute();
+					// Set the wait handle.
+					frame.waitAsync.set();
+				}
+
+				EventQueue.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						frame.progressBar.setValue(state.getCompleted());
+						frame.tracerouteRestored = state.getCompleted() + state.getFailed();
+						// Start the timer.
+						frame.timer.start();
 					}
-				}				
+				});
 			}
 		});
 	}
 	
 	/**
-	 * Changes the state of a traceroute information from pending to running.
-	 * @return The information of the next traceroute in the pending queue.
-	 * @throws InterruptedException 
+	 * Starts the traceroutes of the shards leased from the coordinator.
+	 * @param coordinator The address of the coordinator of this run.
 	 */
-	private TracerouteInfo onTraceroutePendingToRunning() throws InterruptedException {
-		synchronized (this.sync) {
-			// Get a traceroute from the pending list.
-			TracerouteInfo info = this.traceroutePending.remove();
-			// If there are no running traceroutes.
-			if (this.tracerouteRunning.size() == 0) {
-				// Reset the wait handle.
-				this.waitAsync.reset();
-			}
-			// Add the traceroute to the running list.
-			this.tracerouteRunning.add(info);
-			// Return the traceroute information.
-			return info;
-		}
+	private void onStartShards(String coordinator) {
+		// Set the progress.
+		this.progressBar.setValue(0);
+		this.textProgress.setText(FrameMain.translation.get("LabelProgressDownload"));
+
+		// The coordinator leases replace the journal, since a shard of a dead client is reassigned.
+		this.campaign.setJournal(null);
+
+		// Create the shard worker of this run, which is named after the session and a unique suffix, replacing the worker of a previous run.
+		if (null != this.shardWorker) this.shardWorker.detach();
+		this.shardWorker = new ShardWorker(this.campaign, coordinator,
+			String.format("%s-%s", this.sessionId, UUID.randomUUID()), FrameMain.tracerouteShardToken);
+
+		// Set the traceroute timestamp.
+		this.tracerouteTimestamp = new Date();
+		this.tracerouteRestored = 0;
+		// Start leasing the shards.
+		this.shardWorker.start();
+		// Start the timer.
+		this.timer.start();
 	}
 
 	/**
-	 * Changes the state of a traceroute information from running to pending.
-	 * @param info The traceroute information.
+	 * Stops the coordinator, if this client serves the shards.
 	 */
-	private void onTracerouteRunningToPending(TracerouteInfo info)
-	{
-		synchronized (this.sync) {
-			// Remove the traceroute from the running list.
-			this.tracerouteRunning.remove(info);
-			// Add the traceroute to the completed list.
-			this.traceroutePending.add(info);
+	private void onStopCoordinator() {
+		if (null == this.shardCoordinator) return;
+		this.shardCoordinator.stop();
+		this.shardCoordinator = null;
+	}
 
-			// If there are no running traceroutes.
-			if (this.tracerouteRunning.size() == 0) {
-				// Set the wait handle.
-				this.waitAsync.set();
-			}
-		}
+	/**
+	 * Shows the summary of the campaign, if the deadline switch has been set and sites were left out.
+	 * @param state The campaign state.
+	 */
+	private void onShowDeadlineSummary(CampaignState state) {
+		if ((null == this.campaign.getDeadline()) || (0 == state.getPending())) return;
+		DeadlineSummary summary = this.campaign.getDeadline().getSummary(state);
+		JOptionPane.showMessageDialog(
+			this,
+			summary.toString(),
+			"Mercury Client Deadline",
+			JOptionPane.INFORMATION_MESSAGE);
 	}
 
 	/**
-	 * Changes the state of a traceroute information from running to completed.
-	 * @param info The traceroute information.
+	 * Saves the path fingerprints, if the changes switch has been set.
 	 */
-	private void onTracerouteRunningToCompleted(TracerouteInfo info) {
-		synchronized (this.sync) {
-			// Remove the traceroute from the running list.
-			this.tracerouteRunning.remove(info);
-			// Add the traceroute to the completed list.
-			this.tracerouteCompleted.add(info);
-			
-			// If there are no running traceroutes.
-			if (this.tracerouteRunning.size() == 0) {
-				// Set the wait handle.
-				this.waitAsync.set();
-			}
+	private void onSavePathFingerprints() {
+		if (null == this.tracerouteChangeDetector) return;
+		try {
+			this.tracerouteChangeDetector.write(FrameMain.tracerouteChanges);
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(
+				this,
+				String.format("Mercury Client cannot write the path fingerprints to the file %s. %s", FrameMain.tracerouteChanges, exception.getMessage()),
+				"Mercury Client Options",
+				JOptionPane.WARNING_MESSAGE);
 		}
 	}
 
 	/**
-	 * Changes the state of a traceroute information from running to failed.
-	 * @param info The traceroute information.
+	 * Saves the traceroute history, if the history switch has been set.
 	 */
-	private void onTracerouteRunningToFailed(TracerouteInfo info) {
-		synchronized (this.sync) {
-			// Remove the traceroute from the running list.
-			this.tracerouteRunning.remove(info);
-			// Add the traceroute to the failed list.
-			this.tracerouteFailed.add(info);
+	private void onSaveHistory() {
+		if (null == this.campaign.getHistory()) return;
+		try {
+			this.campaign.getHistory().write(FrameMain.tracerouteHistory);
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(
+				this,
+				String.format("Mercury Client cannot write the traceroute history to the file %s. %s", FrameMain.tracerouteHistory, exception.getMessage()),
+				"Mercury Client Options",
+				JOptionPane.WARNING_MESSAGE);
+		}
+	}
 
-			// If there are no running traceroutes.
-			if (this.tracerouteRunning.size() == 0) {
-				// Set the wait handle.
-				this.waitAsync.set();
-			}
+	/**
+	 * Exports the topology of the session, if the topology switch has been set.
+	 */
+	private void onSaveTopology() {
+		if (null == this.campaign.getTopology()) return;
+		try {
+			this.campaign.getTopology().write(FrameMain.tracerouteTopology);
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(
+				this,
+				String.format("Mercury Client cannot write the topology to the file %s. %s", FrameMain.tracerouteTopology, exception.getMessage()),
+				"Mercury Client Options",
+				JOptionPane.WARNING_MESSAGE);
 		}
 	}
-	
+
 	/**
 	 * Uploads a traceroute to the Mercury web server.
-	 * @param info The traceroute information.
+	 * @param site The destination site.
 	 * @param result The traceroute result.
 	 * @return True if the upload was successful, false otherwise.
 	 */
-	private boolean onUploadTraceroute(TracerouteInfo info, TracerouteResult result) {
+	private boolean onUploadTraceroute(String site, TracerouteResult result) {
 		// Create the hops JSON object.
 		JsonArray hops = new JsonArray();
 
 		for (TracerouteHop hop : result.getHops()) {
+			// Create the round-trip times JSON array.
+			JsonArray rtts = new JsonArray();
+			for (float rtt : hop.getRoundTripTimes()) {
+				rtts.add(Float.toString(rtt));
+			}
+			
 			hops.add(new JsonObject(
 				new JsonProperty("id", Integer.toString(hop.getTimeToLive())),
 				new JsonProperty("ip", hop.getAddress() != null ? hop.getAddress().getHostAddress() : "destination unreachable"),
 				new JsonProperty("asn", new JsonArray()),
-				new JsonProperty("rtt", new JsonArray())
+				new JsonProperty("rtt", rtts)
 				));
 		}
 
@@ -1448,7 +1748,7 @@ public class FrameMain extends JFrame {
 			new JsonProperty("srcIp", this.locationResult != null ? this.locationResult.getAddress() : "none"),
 			new JsonProperty("dstIp", result.getDestination().getHostAddress()),
 			new JsonProperty("srcName", this.localHostname),
-			new JsonProperty("dstName", info.getSite()),
+			new JsonProperty("dstName", site),
 			new JsonProperty("hops", hops));
 
 		// Save to file.
@@ -1503,18 +1803,17 @@ public class FrameMain extends JFrame {
 	 */
 	private void onTimer(ActionEvent e)
 	{
-		int pending;
-		int completed;
+		CampaignState state = this.campaign.getState();
+		if (null == state) return;
 
-		synchronized (this.sync)
-		{
-			// Compute the number of completed traceroutes.
-			pending = this.traceroutePending.size() + this.tracerouteRunning.size();
-			completed = this.tracerouteCompleted.size() + this.tracerouteFailed.size();
-		}
+		// Compute the number of completed traceroutes, without waiting for the workers.
+		int completed = state.getCompleted() + state.getFailed();
+		int pending = state.size() - completed;
+		// Exclude the sites restored from the journal, which took no time in this session.
+		completed -= this.tracerouteRestored;
 
 		// If any of the completed 
-		if (0 == completed)
+		if (completed <= 0)
 		{
 			// Clear the time remaining label.
 			this.textTime.setText("");
@@ -0,0 +1,279 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bikfalvi.java.net.core.TracerouteSettings;
+import com.bikfalvi.java.threading.ThreadPool;
+
+/**
+ * A class representing the time budget of a traceroute campaign, which
+ * maximizes the coverage of the campaign within the budget. Before the
+ * campaign starts, the sites are resolved for a short time, and ordered such
+ * that the first round has one site per destination prefix, the second round
+ * a second site per prefix, and so on. A site not resolved in time is grouped
+ * by its domain name.
+ * <p>
+ * As the deadline nears, the traceroutes use less effort: with half of the
+ * budget left, they send fewer probes per hop, to fewer hops, with a shorter
+ * timeout, and with a quarter of the budget left, they use the least effort.
+ * At the deadline, the campaign state is closed, such that the running
+ * traceroutes complete and the pending sites are left out of the campaign.
+ * The reduced effort applies to the backends that read the settings for each
+ * traceroute, and not to the helper backend, which copies them when it starts.
+ * <p>
+ * The budget starts with the first campaign of a session, and the next
+ * campaigns of the session, such as the shards of a distributed campaign,
+ * share what is left of it.
+ * @author agent
+ *
+ */
+public final class CampaignDeadline
+{
+	private static final int resolverThreads = 32;
+
+	private final long budget;
+	private final TracerouteSettings settings;
+	private long resolveTimeout = 5000;
+	private long start = 0;
+	private int level = 0;
+	private byte baseMaximumHops;
+	private int baseProbesPerHop;
+	private int baseTimeout;
+	private String[] groups = null;
+
+	/**
+	 * Creates a new campaign deadline instance.
+	 * @param budget The time budget in milliseconds.
+	 * @param settings The traceroute settings, whose effort is reduced as the deadline nears.
+	 */
+	public CampaignDeadline(long budget, TracerouteSettings settings)
+	{
+		this.budget = budget;
+		this.settings = settings;
+	}
+
+	/**
+	 * Gets the time budget.
+	 * @return The time budget in milliseconds.
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Gets the maximum time used to resolve the sites before the campaign starts.
+	 * @return The time in milliseconds.
+	 */
+	public long getResolveTimeout() {
+		return this.resolveTimeout;
+	}
+
+	/**
+	 * Sets the maximum time used to resolve the sites before the campaign starts.
+	 * @param resolveTimeout The time in milliseconds, or zero to group all sites by their domain name.
+	 */
+	public void setResolveTimeout(long resolveTimeout) {
+		this.resolveTimeout = resolveTimeout;
+	}
+
+	/**
+	 * Gets the time left until the deadline.
+	 * @return The time in milliseconds, which is negative after the deadline, or the budget if it has not started.
+	 */
+	public synchronized long getRemaining() {
+		return 0 != this.start ? this.budget - (System.currentTimeMillis() - this.start) : this.budget;
+	}
+
+	/**
+	 * Gets the current effort level of the traceroutes.
+	 * @return The level, from zero for full effort to two for the least effort.
+	 */
+	public synchronized int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Resets the budget, such that it starts again with the next campaign, at the beginning of a session.
+	 */
+	public synchronized void reset()
+	{
+		this.start = 0;
+	}
+
+	/**
+	 * Starts the budget, unless it started with a previous campaign of the session, and records the traceroute settings used for full effort.
+	 */
+	synchronized void start()
+	{
+		if (0 == this.start) this.start = System.currentTimeMillis();
+		this.level = 0;
+		this.baseMaximumHops = this.settings.getMaximumHops();
+		this.baseProbesPerHop = this.settings.getProbesPerHop();
+		this.baseTimeout = this.settings.getTimeout();
+	}
+
+	/**
+	 * Reduces the effort of the next traceroutes according to the time left.
+	 */
+	synchronized void update()
+	{
+		// Compute the effort level from the fraction of the budget left.
+		double left = (double)this.getRemaining() / this.budget;
+		int level = left > 0.5 ? 0 : (left > 0.25 ? 1 : 2);
+		if (level <= this.level) return;
+		this.level = level;
+
+		if (1 == level) {
+			// Send fewer probes, to fewer hops.
+			this.settings.setProbesPerHop(Math.min(this.baseProbesPerHop, 2));
+			this.settings.setMaximumHops((byte)Math.min(this.baseMaximumHops, 24));
+			this.settings.setTimeout(this.baseTimeout * 3 / 4);
+		}
+		else {
+			// Send one probe, to the nearest hops.
+			this.settings.setProbesPerHop(1);
+			this.settings.setMaximumHops((byte)Math.min(this.baseMaximumHops, 16));
+			this.settings.setTimeout(this.baseTimeout / 2);
+		}
+	}
+
+	/**
+	 * Restores the traceroute settings used for full effort.
+	 */
+	synchronized void restore()
+	{
+		if (0 == this.level) return;
+		this.level = 0;
+		this.settings.setProbesPerHop(this.baseProbesPerHop);
+		this.settings.setMaximumHops(this.baseMaximumHops);
+		this.settings.setTimeout(this.baseTimeout);
+	}
+
+	/**
+	 * Resolves the sites for at most the resolve timeout, and orders them for coverage.
+	 * @param sites The sites.
+	 * @param order The site indices in the order they should start, or null for the list order.
+	 * @param addresses The resolved addresses, set by this method, where a site not resolved in time has a null address.
+	 * @return The site indices in the coverage order.
+	 */
+	int[] order(final List<String> sites, int[] order, final InetAddress[] addresses)
+	{
+		// Resolve the sites on a few threads, where each thread takes the next site.
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(sites.size());
+		if (this.resolveTimeout > 0) {
+			for (int thread = 0; thread < Math.min(CampaignDeadline.resolverThreads, sites.size()); thread++) {
+				ThreadPool.execute(new Runnable() {
+					@Override
+					public void run() {
+						for (int index; (index = next.getAndIncrement()) < sites.size(); latch.countDown()) {
+							try {
+								InetAddress address = InetAddress.getByName(sites.get(index));
+								synchronized (addresses) {
+									addresses[index] = address;
+								}
+							}
+							catch (Exception exception) {
+							}
+						}
+					}
+				});
+			}
+			try {
+				latch.await(this.resolveTimeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException exception) {
+			}
+			// Stop the resolver threads after their current site.
+			next.set(sites.size());
+		}
+
+		// Group the sites by the prefix of their address, or by their domain name.
+		String[] groups = new String[sites.size()];
+		LinkedHashMap<String, ArrayList<Integer>> members = new LinkedHashMap<String, ArrayList<Integer>>();
+		synchronized (addresses) {
+			for (int index = 0; index < groups.length; index++) {
+				int id = null != order ? order[index] : index;
+				groups[id] = null != addresses[id] ? CampaignDeadline.getPrefix(addresses[id]) : CampaignDeadline.getDomain(sites.get(id));
+				ArrayList<Integer> group = members.get(groups[id]);
+				if (null == group) {
+					group = new ArrayList<Integer>();
+					members.put(groups[id], group);
+				}
+				group.add(id);
+			}
+		}
+		synchronized (this) {
+			this.groups = groups;
+		}
+
+		// Take one site from each group per round.
+		int[] coverage = new int[groups.length];
+		int count = 0;
+		for (int round = 0; count < coverage.length; round++) {
+			for (ArrayList<Integer> group : members.values()) {
+				if (round < group.size()) coverage[count++] = group.get(round);
+			}
+		}
+		return coverage;
+	}
+
+	/**
+	 * Creates the summary of a campaign that used this deadline.
+	 * @param state The campaign state.
+	 * @return The summary.
+	 */
+	public synchronized DeadlineSummary getSummary(CampaignState state) {
+		return new DeadlineSummary(state, this.groups, System.currentTimeMillis() - this.start, this.budget);
+	}
+
+	/**
+	 * Gets the group of a resolved site, which is the /24 prefix for IPv4 and the /48 prefix for IPv6.
+	 * @param address The address.
+	 * @return The group.
+	 */
+	private static String getPrefix(InetAddress address)
+	{
+		byte[] bytes = address.getAddress();
+		StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < (bytes.length == 4 ? 3 : 6); index++) {
+			builder.append(bytes.length == 4 ? '.' : ':').append(bytes[index] & 0xFF);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Gets the group of an unresolved site, which is the last two labels of its domain name.
+	 * @param site The site.
+	 * @return The group.
+	 */
+	private static String getDomain(String site)
+	{
+		String[] labels = site.toLowerCase().split("\\.");
+		return labels.length > 2 ? labels[labels.length - 2] + "." + labels[labels.length - 1] : site.toLowerCase();
+	}
+}
@@ -0,0 +1,388 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * A class representing the append-only journal of a traceroute campaign, from
+ * which an interrupted campaign resumes with the sites that are left. The
+ * journal records the start of a session, each completed and failed site, and
+ * the end of the session.
+ * <p>
+ * The records are appended to a memory buffer, and a background thread writes
+ * and forces the buffer to the disk at most once per commit interval, such
+ * that many records share one disk synchronization. A crash loses at most the
+ * records of the last interval. Each record has a checksum, and opening the
+ * journal truncates a partially written record at the end of the file.
+ * @author agent
+ *
+ */
+public final class CampaignJournal
+{
+	private static final byte recordSession = 1;
+	private static final byte recordCompleted = 2;
+	private static final byte recordFailed = 3;
+	private static final byte recordFinished = 4;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final HashMap<String, SiteState> sites = new HashMap<String, SiteState>();
+	private final Object sync = new Object();
+	private final Thread thread;
+	private String session = null;
+	private long commitInterval = 500;
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private long appended = 0;
+	private long committed = 0;
+	private IOException exception = null;
+	private boolean closed = false;
+
+	/**
+	 * Creates a new campaign journal instance.
+	 * @param file The journal file.
+	 * @throws IOException
+	 */
+	private CampaignJournal(File file) throws IOException
+	{
+		this.file = new RandomAccessFile(file, "rw");
+		this.channel = this.file.getChannel();
+
+		// Read the records, and truncate the file after the last valid record.
+		this.channel.truncate(this.read());
+		this.channel.position(this.channel.size());
+
+		// Create the commit thread.
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				CampaignJournal.this.commit();
+			}
+		}, "Campaign journal");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Opens the specified journal file, creating it if it does not exist.
+	 * @param file The journal file.
+	 * @return The journal.
+	 * @throws IOException
+	 */
+	public static CampaignJournal open(File file) throws IOException {
+		return new CampaignJournal(file);
+	}
+
+	/**
+	 * Gets the maximum time between an appended record and its disk synchronization.
+	 * @return The time in milliseconds.
+	 */
+	public long getCommitInterval() {
+		synchronized (this.sync) {
+			return this.commitInterval;
+		}
+	}
+
+	/**
+	 * Sets the maximum time between an appended record and its disk synchronization.
+	 * @param commitInterval The time in milliseconds.
+	 */
+	public void setCommitInterval(long commitInterval) {
+		synchronized (this.sync) {
+			this.commitInterval = commitInterval;
+		}
+	}
+
+	/**
+	 * Gets the session that was interrupted, or that is running.
+	 * @return The session, or null if no session is unfinished.
+	 */
+	public String getSession() {
+		synchronized (this.sync) {
+			return this.session;
+		}
+	}
+
+	/**
+	 * Gets the state of a site in the unfinished session.
+	 * @param site The site.
+	 * @return The completed or failed state, or null if the site is not in the journal.
+	 */
+	public SiteState getState(String site) {
+		synchronized (this.sync) {
+			return this.sites.get(site);
+		}
+	}
+
+	/**
+	 * Gets the number of sites of the unfinished session in the journal.
+	 * @return The number of sites.
+	 */
+	public int size() {
+		synchronized (this.sync) {
+			return this.sites.size();
+		}
+	}
+
+	/**
+	 * Begins a session. If the session is the unfinished session of the journal,
+	 * the session resumes with its recorded sites. Otherwise, the journal starts
+	 * over with the new session.
+	 * @param session The session.
+	 * @return True if the session resumes, false if it is new.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public boolean begin(String session) throws IOException, InterruptedException
+	{
+		// Wait for the commit thread, before discarding the file.
+		this.sync();
+
+		synchronized (this.sync) {
+			if (session.equals(this.session)) return true;
+
+			// Discard the previous session.
+			this.buffer.reset();
+			this.committed = this.appended;
+			this.channel.truncate(0);
+			this.channel.position(0);
+			this.sites.clear();
+			this.session = session;
+			this.append(CampaignJournal.recordSession, session);
+			return false;
+		}
+	}
+
+	/**
+	 * Records a completed site.
+	 * @param site The site.
+	 */
+	public void completed(String site)
+	{
+		synchronized (this.sync) {
+			this.sites.put(site, SiteState.COMPLETED);
+			this.append(CampaignJournal.recordCompleted, site);
+		}
+	}
+
+	/**
+	 * Records a failed site.
+	 * @param site The site.
+	 */
+	public void failed(String site)
+	{
+		synchronized (this.sync) {
+			this.sites.put(site, SiteState.FAILED);
+			this.append(CampaignJournal.recordFailed, site);
+		}
+	}
+
+	/**
+	 * Records the end of the session, after which the next session starts over.
+	 */
+	public void finish()
+	{
+		synchronized (this.sync) {
+			this.sites.clear();
+			this.session = null;
+			this.append(CampaignJournal.recordFinished, "");
+		}
+	}
+
+	/**
+	 * Waits until all appended records are written to the disk.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void sync() throws IOException, InterruptedException
+	{
+		synchronized (this.sync) {
+			long appended = this.appended;
+			// Wake the commit thread, without waiting for the commit interval.
+			this.sync.notifyAll();
+			while ((this.committed < appended) && (null == this.exception) && !this.closed) {
+				this.sync.wait();
+			}
+			if (null != this.exception) throw this.exception;
+		}
+	}
+
+	/**
+	 * Writes the appended records to the disk, and closes the journal.
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		try {
+			this.sync();
+		}
+		catch (InterruptedException exception) {
+		}
+		finally {
+			synchronized (this.sync) {
+				this.closed = true;
+				this.sync.notifyAll();
+			}
+			this.file.close();
+		}
+	}
+
+	/**
+	 * Appends a record to the buffer.
+	 * @param type The record type.
+	 * @param value The record value.
+	 */
+	private void append(byte type, String value)
+	{
+		try {
+			// Serialize the record data.
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			DataOutputStream stream = new DataOutputStream(data);
+			stream.writeByte(type);
+			stream.writeUTF(value);
+
+			// Compute the checksum.
+			CRC32 crc = new CRC32();
+			crc.update(data.toByteArray());
+
+			// Write the record: the data length, the data and the checksum.
+			DataOutputStream output = new DataOutputStream(this.buffer);
+			output.writeShort(data.size());
+			data.writeTo(output);
+			output.writeInt((int)crc.getValue());
+		}
+		catch (IOException exception) {
+		}
+
+		// Wake the commit thread.
+		if (0 == this.appended++ - this.committed) this.sync.notifyAll();
+	}
+
+	/**
+	 * Writes the buffer to the disk at most once per commit interval, until the journal is closed.
+	 */
+	private void commit()
+	{
+		for (;;) {
+			ByteArrayOutputStream buffer;
+			long appended;
+			try {
+				synchronized (this.sync) {
+					// Wait for the appended records.
+					while ((this.committed == this.appended) && !this.closed) {
+						this.sync.wait();
+					}
+					if (this.closed) return;
+
+					// Wait for the commit interval, to group the records appended meanwhile.
+					this.sync.wait(this.commitInterval);
+
+					// Take the buffer.
+					buffer = this.buffer;
+					appended = this.appended;
+					this.buffer = new ByteArrayOutputStream();
+				}
+			}
+			catch (InterruptedException exception) {
+				return;
+			}
+
+			IOException exception = null;
+			try {
+				// Write and force the records to the disk.
+				ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+				while (bytes.hasRemaining()) this.channel.write(bytes);
+				this.channel.force(false);
+			}
+			catch (IOException e) {
+				exception = e;
+			}
+
+			synchronized (this.sync) {
+				this.committed = appended;
+				this.exception = exception;
+				this.sync.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Reads the records of the journal file.
+	 * @return The length of the valid records.
+	 * @throws IOException
+	 */
+	private long read() throws IOException
+	{
+		DataInputStream stream = new DataInputStream(Channels.newInputStream(this.channel));
+		long length = 0;
+		for (;;) {
+			byte[] data;
+			int checksum;
+			try {
+				// Read the record.
+				data = new byte[stream.readUnsignedShort()];
+				stream.readFully(data);
+				checksum = stream.readInt();
+			}
+			catch (EOFException exception) {
+				break;
+			}
+
+			// Check the checksum.
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			if ((int)crc.getValue() != checksum) break;
+			length += 2 + data.length + 4;
+
+			// Apply the record.
+			DataInputStream record = new DataInputStream(new ByteArrayInputStream(data));
+			byte type = record.readByte();
+			String value = record.readUTF();
+			switch (type) {
+			case CampaignJournal.recordSession:
+				this.sites.clear();
+				this.session = value;
+				break;
+			case CampaignJournal.recordCompleted:
+				this.sites.put(value, SiteState.COMPLETED);
+				break;
+			case CampaignJournal.recordFailed:
+				this.sites.put(value, SiteState.FAILED);
+				break;
+			case CampaignJournal.recordFinished:
+				this.sites.clear();
+				this.session = null;
+				break;
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,50 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import com.bikfalvi.java.net.core.TracerouteResult;
+
+/**
+ * An interface for the listener of a traceroute campaign. The methods are
+ * called on the campaign worker threads.
+ * @author agent
+ *
+ */
+public interface CampaignListener {
+	/**
+	 * Called when the traceroute to a site completed and was uploaded.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 */
+	public void siteCompleted(CampaignState state, int id, TracerouteResult result);
+
+	/**
+	 * Called when the traceroute to a site failed after all attempts.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 */
+	public void siteFailed(CampaignState state, int id);
+
+	/**
+	 * Called once, when all sites are completed or failed.
+	 * @param state The campaign state.
+	 */
+	public void campaignFinished(CampaignState state);
+}
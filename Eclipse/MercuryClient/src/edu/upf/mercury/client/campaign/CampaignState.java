@@ -0,0 +1,439 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.bikfalvi.java.net.core.TracerouteResult;
+
+/**
+ * A class representing the state of a traceroute campaign, which tracks each
+ * site through the pending, running, completed and failed states without a
+ * global lock. The sites are identified by their index, the pending sites are
+ * kept in a concurrent queue, and the number of sites in each state is kept in
+ * an atomic counter, such that the progress can be read at any time without
+ * waiting.
+ * <p>
+ * A site that failed waits in a delay queue until its retry time, and is then
+ * taken before the sites in the pending queue. The waiting sites are counted,
+ * such that the workers do not take the lock of the delay queue while no site
+ * waits for a retry. A site whose upload failed keeps
+ * its traceroute result, such that the retry only uploads the result again.
+ * <p>
+ * A running site is owned by the worker that took it from the queue, which is
+ * the only thread that changes its address and attempts.
+ * <p>
+ * A closed state gives no more sites to the workers, and is finished when
+ * the running sites stop, such that the sites left pending are left out of
+ * the campaign.
+ * @author agent
+ *
+ */
+public final class CampaignState
+{
+	private final String[] sites;
+	private final InetAddress[] addresses;
+	private final byte[] attempts;
+	private final byte[] probeFailures;
+	private final byte[] uploadFailures;
+	private final TracerouteResult[] results;
+	private final AtomicIntegerArray states;
+	private final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+	private final DelayQueue<Retry> retries = new DelayQueue<Retry>();
+	private final AtomicInteger retrying = new AtomicInteger();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new campaign state, where all sites are pending.
+	 * @param sites The sites.
+	 */
+	public CampaignState(List<String> sites)
+	{
+		this(sites, null);
+	}
+
+	/**
+	 * Creates a new campaign state, where all sites are pending in the specified order.
+	 * @param sites The sites.
+	 * @param order The site indices in the order they should start, or null for the list order.
+	 */
+	public CampaignState(List<String> sites, int[] order)
+	{
+		this(sites, order, null);
+	}
+
+	/**
+	 * Creates a new campaign state, where the sites restored from a previous
+	 * campaign are completed or failed, and the other sites are pending in the
+	 * specified order.
+	 * @param sites The sites.
+	 * @param order The site indices in the order they should start, or null for the list order.
+	 * @param restored The completed or failed state of each restored site, null for the other sites, or null if no sites are restored.
+	 */
+	public CampaignState(List<String> sites, int[] order, SiteState[] restored)
+	{
+		this.sites = sites.toArray(new String[sites.size()]);
+		this.addresses = new InetAddress[this.sites.length];
+		this.attempts = new byte[this.sites.length];
+		this.probeFailures = new byte[this.sites.length];
+		this.uploadFailures = new byte[this.sites.length];
+		this.results = new TracerouteResult[this.sites.length];
+		this.states = new AtomicIntegerArray(this.sites.length);
+
+		// Add the sites to the pending queue.
+		for (int index = 0; index < this.sites.length; index++) {
+			int id = null != order ? order[index] : index;
+			SiteState state = null != restored ? restored[id] : null;
+			if (SiteState.COMPLETED == state) {
+				this.states.set(id, SiteState.COMPLETED.ordinal());
+				this.completed.incrementAndGet();
+			}
+			else if (SiteState.FAILED == state) {
+				this.states.set(id, SiteState.FAILED.ordinal());
+				this.failed.incrementAndGet();
+			}
+			else {
+				this.states.set(id, SiteState.PENDING.ordinal());
+				this.pending.incrementAndGet();
+				this.queue.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of sites.
+	 * @return The number of sites.
+	 */
+	public int size() {
+		return this.sites.length;
+	}
+
+	/**
+	 * Gets a site.
+	 * @param id The site identifier.
+	 * @return The site.
+	 */
+	public String getSite(int id) {
+		return this.sites[id];
+	}
+
+	/**
+	 * Gets the address of a site.
+	 * @param id The site identifier.
+	 * @return The address, or null if the site has not been resolved.
+	 */
+	public InetAddress getAddress(int id) {
+		return this.addresses[id];
+	}
+
+	/**
+	 * Sets the address of a running site.
+	 * @param id The site identifier.
+	 * @param address The address.
+	 */
+	public void setAddress(int id, InetAddress address) {
+		this.addresses[id] = address;
+	}
+
+	/**
+	 * Gets the number of attempts of a site.
+	 * @param id The site identifier.
+	 * @return The number of attempts.
+	 */
+	public int getAttempts(int id) {
+		return this.attempts[id];
+	}
+
+	/**
+	 * Increments the number of attempts of a running site.
+	 * @param id The site identifier.
+	 * @return The number of attempts, including this one.
+	 */
+	public int addAttempt(int id) {
+		return ++this.attempts[id];
+	}
+
+	/**
+	 * Gets the number of failed traceroutes of a site.
+	 * @param id The site identifier.
+	 * @return The number of failures.
+	 */
+	public int getProbeFailures(int id) {
+		return this.probeFailures[id];
+	}
+
+	/**
+	 * Increments the number of failed traceroutes of a running site.
+	 * @param id The site identifier.
+	 * @return The number of failures, including this one.
+	 */
+	public int addProbeFailure(int id) {
+		return ++this.probeFailures[id];
+	}
+
+	/**
+	 * Gets the number of failed uploads of a site.
+	 * @param id The site identifier.
+	 * @return The number of failures.
+	 */
+	public int getUploadFailures(int id) {
+		return this.uploadFailures[id];
+	}
+
+	/**
+	 * Increments the number of failed uploads of a running site.
+	 * @param id The site identifier.
+	 * @return The number of failures, including this one.
+	 */
+	public int addUploadFailure(int id) {
+		return ++this.uploadFailures[id];
+	}
+
+	/**
+	 * Gets the traceroute result of a site waiting to be uploaded.
+	 * @param id The site identifier.
+	 * @return The result, or null if the site needs a traceroute.
+	 */
+	public TracerouteResult getResult(int id) {
+		return this.results[id];
+	}
+
+	/**
+	 * Sets the traceroute result of a running site waiting to be uploaded.
+	 * @param id The site identifier.
+	 * @param result The result, or null if the site needs a traceroute.
+	 */
+	public void setResult(int id, TracerouteResult result) {
+		this.results[id] = result;
+	}
+
+	/**
+	 * Gets the state of a site.
+	 * @param id The site identifier.
+	 * @return The state.
+	 */
+	public SiteState getState(int id) {
+		return SiteState.values()[this.states.get(id)];
+	}
+
+	/**
+	 * Gets the number of pending sites.
+	 * @return The number of sites.
+	 */
+	public int getPending() {
+		return this.pending.get();
+	}
+
+	/**
+	 * Gets the number of pending sites waiting for their retry time.
+	 * @return The number of sites.
+	 */
+	public int getRetrying() {
+		return this.retrying.get();
+	}
+
+	/**
+	 * Gets the time until the earliest retry.
+	 * @return The time in milliseconds, or -1 if no sites are waiting for a retry.
+	 */
+	public long getRetryDelay()
+	{
+		if (this.closed || (0 == this.retrying.get())) return -1;
+		Retry retry = this.retries.peek();
+		return null != retry ? Math.max(0, retry.getDelay(TimeUnit.MILLISECONDS)) : -1;
+	}
+
+	/**
+	 * Gets the number of running sites.
+	 * @return The number of sites.
+	 */
+	public int getRunning() {
+		return this.running.get();
+	}
+
+	/**
+	 * Gets the number of completed sites.
+	 * @return The number of sites.
+	 */
+	public int getCompleted() {
+		return this.completed.get();
+	}
+
+	/**
+	 * Gets the number of failed sites.
+	 * @return The number of sites.
+	 */
+	public int getFailed() {
+		return this.failed.get();
+	}
+
+	/**
+	 * Indicates whether all sites are completed or failed, or the state is closed and no sites are running.
+	 * @return True if the campaign is finished, false otherwise.
+	 */
+	public boolean isFinished() {
+		return (0 == this.running.get()) && (this.closed || (this.queue.isEmpty() && (0 == this.retrying.get())));
+	}
+
+	/**
+	 * Indicates whether the state is closed.
+	 * @return True if the state gives no more sites to the workers, false otherwise.
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Closes the state, such that the workers take no more sites, and the
+	 * pending sites are left out when the running sites stop.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+	/**
+	 * Changes the next pending site to running, where the sites whose retry time
+	 * has come take precedence over the sites in the pending queue.
+	 * @return The site identifier, or -1 if no sites are ready or the state is closed.
+	 */
+	public int next()
+	{
+		if (this.closed) return -1;
+
+		// Count the site as running before taking it, such that a site is always counted in some state.
+		this.running.incrementAndGet();
+		Retry retry = 0 != this.retrying.get() ? this.retries.poll() : null;
+		if (null != retry) this.retrying.decrementAndGet();
+		Integer id = null != retry ? Integer.valueOf(retry.id) : this.queue.poll();
+		if (null == id) {
+			this.running.decrementAndGet();
+			return -1;
+		}
+		this.pending.decrementAndGet();
+		this.states.set(id, SiteState.RUNNING.ordinal());
+		return id;
+	}
+
+	/**
+	 * Changes a running site back to pending.
+	 * @param id The site identifier.
+	 * @return The number of running sites after the change.
+	 */
+	public int toPending(int id)
+	{
+		this.states.set(id, SiteState.PENDING.ordinal());
+		this.pending.incrementAndGet();
+		this.queue.add(id);
+		return this.running.decrementAndGet();
+	}
+
+	/**
+	 * Changes a running site back to pending, where the site waits for the
+	 * specified delay before a worker can take it.
+	 * @param id The site identifier.
+	 * @param delay The delay in milliseconds.
+	 * @return The number of running sites after the change.
+	 */
+	public int toRetry(int id, long delay)
+	{
+		this.states.set(id, SiteState.PENDING.ordinal());
+		this.pending.incrementAndGet();
+		// Count the retry before adding it, such that a queued retry is always counted.
+		this.retrying.incrementAndGet();
+		this.retries.add(new Retry(id, System.nanoTime() + delay * 1000000L));
+		return this.running.decrementAndGet();
+	}
+
+	/**
+	 * Changes a running site to completed.
+	 * @param id The site identifier.
+	 * @return The number of running sites after the change.
+	 */
+	public int toCompleted(int id)
+	{
+		this.states.set(id, SiteState.COMPLETED.ordinal());
+		this.completed.incrementAndGet();
+		return this.running.decrementAndGet();
+	}
+
+	/**
+	 * Changes a running site to failed.
+	 * @param id The site identifier.
+	 * @return The number of running sites after the change.
+	 */
+	public int toFailed(int id)
+	{
+		this.states.set(id, SiteState.FAILED.ordinal());
+		this.failed.incrementAndGet();
+		return this.running.decrementAndGet();
+	}
+
+	/**
+	 * A class representing a site waiting for its retry time.
+	 */
+	private static final class Retry implements Delayed
+	{
+		private final int id;
+		private final long time;
+
+		/**
+		 * Creates a new retry instance.
+		 * @param id The site identifier.
+		 * @param time The retry time, in the nanosecond time of the system.
+		 */
+		public Retry(int id, long time)
+		{
+			this.id = id;
+			this.time = time;
+		}
+
+		/**
+		 * Gets the time until the retry.
+		 * @param unit The time unit.
+		 * @return The time.
+		 */
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.time - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Compares the retry times.
+		 * @param other The other retry.
+		 * @return The comparison result.
+		 */
+		@Override
+		public int compareTo(Delayed other)
+		{
+			long difference = this.time - ((Retry)other).time;
+			return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+		}
+	}
+}
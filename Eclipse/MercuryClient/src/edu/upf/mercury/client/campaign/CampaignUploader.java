@@ -0,0 +1,36 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import com.bikfalvi.java.net.core.TracerouteResult;
+
+/**
+ * An interface for the uploader of the traceroute results of a campaign.
+ * @author agent
+ *
+ */
+public interface CampaignUploader {
+	/**
+	 * Uploads a traceroute result.
+	 * @param site The destination site.
+	 * @param result The traceroute result.
+	 * @return True if the upload was successful, false otherwise.
+	 */
+	public boolean upload(String site, TracerouteResult result);
+}
@@ -0,0 +1,209 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import com.bikfalvi.java.net.core.TracerouteHop;
+import com.bikfalvi.java.net.core.TracerouteResult;
+
+/**
+ * A class that adapts the number of concurrent traceroutes with an additive
+ * increase, multiplicative decrease (AIMD) rule. The controller collects the
+ * completed traceroutes in windows of as many traceroutes as the current limit.
+ * At the end of each window, the limit increases by one if the ratio of silent
+ * hops and the round-trip time are healthy, and is halved otherwise.
+ * <p>
+ * The round-trip time of a window is the mean round-trip time of the hops that
+ * replied, such that the timeouts of the silent hops, which the silent hop ratio
+ * already accounts for, do not inflate it. It is healthy when it does not exceed
+ * the baseline by more than the latency factor, where the baseline is an
+ * exponential moving average of the round-trip times of the previous windows,
+ * such that it follows a lasting change of the network conditions.
+ * @author agent
+ *
+ */
+public final class ConcurrencyController
+{
+	private final int minimum;
+	private final int maximum;
+	private volatile int limit;
+	private double silentThreshold = 0.5;
+	private double latencyFactor = 2.0;
+	private double baseline = 0;
+	private int samples = 0;
+	private int hops = 0;
+	private int silentHops = 0;
+	private int rtts = 0;
+	private double rtt = 0;
+
+	private static final double baselineWeight = 0.125;
+	private int increases = 0;
+	private int decreases = 0;
+
+	/**
+	 * Creates a new concurrency controller.
+	 * @param minimum The minimum number of concurrent traceroutes.
+	 * @param maximum The maximum number of concurrent traceroutes.
+	 * @param initial The initial number of concurrent traceroutes.
+	 */
+	public ConcurrencyController(int minimum, int maximum, int initial)
+	{
+		if ((minimum < 1) || (maximum < minimum)) {
+			throw new IllegalArgumentException("The concurrency bounds are not valid.");
+		}
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.limit = Math.min(Math.max(initial, minimum), maximum);
+	}
+
+	/**
+	 * Gets the minimum number of concurrent traceroutes.
+	 * @return The minimum.
+	 */
+	public int getMinimum() {
+		return this.minimum;
+	}
+
+	/**
+	 * Gets the maximum number of concurrent traceroutes.
+	 * @return The maximum.
+	 */
+	public int getMaximum() {
+		return this.maximum;
+	}
+
+	/**
+	 * Gets the current number of concurrent traceroutes.
+	 * @return The limit.
+	 */
+	public int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Gets the ratio of silent hops above which the concurrency decreases.
+	 * @return The silent hop threshold.
+	 */
+	public synchronized double getSilentThreshold() {
+		return this.silentThreshold;
+	}
+
+	/**
+	 * Sets the ratio of silent hops above which the concurrency decreases.
+	 * @param silentThreshold The silent hop threshold.
+	 */
+	public synchronized void setSilentThreshold(double silentThreshold) {
+		this.silentThreshold = silentThreshold;
+	}
+
+	/**
+	 * Gets the factor over the baseline round-trip time above which the concurrency decreases.
+	 * @return The latency factor.
+	 */
+	public synchronized double getLatencyFactor() {
+		return this.latencyFactor;
+	}
+
+	/**
+	 * Sets the factor over the baseline round-trip time above which the concurrency decreases.
+	 * @param latencyFactor The latency factor.
+	 */
+	public synchronized void setLatencyFactor(double latencyFactor) {
+		this.latencyFactor = latencyFactor;
+	}
+
+	/**
+	 * Gets the number of times the concurrency increased.
+	 * @return The number of increases.
+	 */
+	public synchronized int getIncreases() {
+		return this.increases;
+	}
+
+	/**
+	 * Gets the number of times the concurrency decreased.
+	 * @return The number of decreases.
+	 */
+	public synchronized int getDecreases() {
+		return this.decreases;
+	}
+
+	/**
+	 * Adds a completed traceroute.
+	 * @param result The traceroute result.
+	 * @return The number of concurrent traceroutes.
+	 */
+	public synchronized int add(TracerouteResult result)
+	{
+		// Count the hops and the silent hops, and sum the round-trip times of the hops that replied.
+		for (TracerouteHop hop : result.getHops()) {
+			this.hops++;
+			if (null == hop.getAddress()) {
+				this.silentHops++;
+				continue;
+			}
+			for (float rtt : hop.getRoundTripTimes()) {
+				this.rtt += rtt;
+				this.rtts++;
+			}
+		}
+
+		// If the window is not complete, keep the current limit.
+		if (++this.samples < this.limit) return this.limit;
+
+		// Compute the silent hop ratio and the mean round-trip time of the window.
+		double silent = this.hops > 0 ? (double)this.silentHops / this.hops : 1.0;
+		double rtt = this.rtts > 0 ? this.rtt / this.rtts : 0;
+
+		// Compare the round-trip time with the baseline, and then update the baseline.
+		boolean latency = true;
+		if (this.rtts > 0) {
+			if (0 == this.baseline) {
+				this.baseline = rtt;
+			}
+			else {
+				latency = rtt <= this.baseline * this.latencyFactor;
+				this.baseline += ConcurrencyController.baselineWeight * (rtt - this.baseline);
+			}
+		}
+
+		if ((silent <= this.silentThreshold) && latency) {
+			// Additive increase.
+			if (this.limit < this.maximum) {
+				this.limit++;
+				this.increases++;
+			}
+		}
+		else {
+			// Multiplicative decrease.
+			if (this.limit > this.minimum) {
+				this.limit = Math.max(this.limit / 2, this.minimum);
+				this.decreases++;
+			}
+		}
+
+		// Start a new window.
+		this.samples = 0;
+		this.hops = 0;
+		this.silentHops = 0;
+		this.rtts = 0;
+		this.rtt = 0;
+
+		return this.limit;
+	}
+}
@@ -0,0 +1,141 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A class representing the summary of a traceroute campaign with a time
+ * budget, which reports the sites left out at the deadline and the coverage
+ * of the destination groups, where a group is a destination prefix or, for a
+ * site not resolved in time, a domain name.
+ * @author agent
+ *
+ */
+public final class DeadlineSummary
+{
+	private final int completed;
+	private final int failed;
+	private final List<String> leftOut;
+	private final int groups;
+	private final int coveredGroups;
+	private final long elapsed;
+	private final long budget;
+
+	/**
+	 * Creates a new deadline summary instance.
+	 * @param state The campaign state.
+	 * @param groups The group of each site, or null if the sites were not grouped.
+	 * @param elapsed The time elapsed since the start of the campaign, in milliseconds.
+	 * @param budget The time budget in milliseconds.
+	 */
+	DeadlineSummary(CampaignState state, String[] groups, long elapsed, long budget)
+	{
+		this.completed = state.getCompleted();
+		this.failed = state.getFailed();
+		this.elapsed = elapsed;
+		this.budget = budget;
+
+		// Get the sites left out, and the groups with at least one completed site.
+		ArrayList<String> leftOut = new ArrayList<String>();
+		HashSet<String> all = new HashSet<String>();
+		HashSet<String> covered = new HashSet<String>();
+		for (int id = 0; id < state.size(); id++) {
+			SiteState site = state.getState(id);
+			if ((SiteState.PENDING == site) || (SiteState.RUNNING == site)) leftOut.add(state.getSite(id));
+			if (null != groups) {
+				all.add(groups[id]);
+				if (SiteState.COMPLETED == site) covered.add(groups[id]);
+			}
+		}
+		this.leftOut = Collections.unmodifiableList(leftOut);
+		this.groups = all.size();
+		this.coveredGroups = covered.size();
+	}
+
+	/**
+	 * Gets the number of completed sites.
+	 * @return The number of sites.
+	 */
+	public int getCompleted() {
+		return this.completed;
+	}
+
+	/**
+	 * Gets the number of failed sites.
+	 * @return The number of sites.
+	 */
+	public int getFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * Gets the sites left out at the deadline.
+	 * @return The sites.
+	 */
+	public List<String> getLeftOut() {
+		return this.leftOut;
+	}
+
+	/**
+	 * Gets the number of destination groups.
+	 * @return The number of groups.
+	 */
+	public int getGroups() {
+		return this.groups;
+	}
+
+	/**
+	 * Gets the number of destination groups with at least one completed site.
+	 * @return The number of groups.
+	 */
+	public int getCoveredGroups() {
+		return this.coveredGroups;
+	}
+
+	/**
+	 * Gets the time elapsed since the start of the campaign.
+	 * @return The time in milliseconds.
+	 */
+	public long getElapsed() {
+		return this.elapsed;
+	}
+
+	/**
+	 * Gets the time budget.
+	 * @return The time in milliseconds.
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Gets the summary as text.
+	 * @return The summary.
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%d sites completed, %d failed and %d left out in %d of %d seconds. %d of %d destination prefixes covered.",
+			this.completed, this.failed, this.leftOut.size(), this.elapsed / 1000, this.budget / 1000, this.coveredGroups, this.groups);
+	}
+}
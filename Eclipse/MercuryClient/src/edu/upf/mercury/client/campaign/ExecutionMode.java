@@ -0,0 +1,35 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+/**
+ * An enumeration of the threads that run the traceroutes of a campaign.
+ * @author agent
+ *
+ */
+public enum ExecutionMode {
+	/**
+	 * A number of platform workers from the thread pool, equal to the concurrency limit.
+	 */
+	PLATFORM,
+	/**
+	 * A virtual thread for each traceroute and upload, where semaphores limit the concurrency.
+	 */
+	VIRTUAL
+}
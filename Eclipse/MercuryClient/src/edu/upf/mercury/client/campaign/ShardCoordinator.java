@@ -0,0 +1,556 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A class representing the coordinator of a traceroute campaign distributed
+ * over several clients. The coordinator divides the list of sites into shards,
+ * and leases each shard to one worker client over HTTP. A worker renews its
+ * lease with periodic heartbeats that report its progress, and a shard whose
+ * lease expires returns to the front of the pending shards, such that the
+ * shards of a dead worker are reassigned to the next worker asking for one.
+ * <p>
+ * The protocol uses plain text requests, where the parameters are in the
+ * query string. Every request must carry the token shared by the coordinator
+ * and the workers in an <code>Authorization: Bearer</code> header, or the
+ * coordinator answers 401.
+ * <ul>
+ * <li><code>POST /lease?worker=</code> returns the shard identifier and lease
+ * time on the first line, followed by one site per line; 204 if all shards are
+ * leased, or 410 if all shards are completed.</li>
+ * <li><code>POST /heartbeat?worker=&amp;shard=&amp;completed=&amp;failed=</code>
+ * renews the lease and returns the lease time; 409 if the lease was lost.</li>
+ * <li><code>POST /complete?worker=&amp;shard=&amp;completed=&amp;failed=</code>
+ * completes the shard; 409 if the lease was lost.</li>
+ * <li><code>GET /progress</code> returns the merged progress of all shards.</li>
+ * </ul>
+ * @author agent
+ *
+ */
+public final class ShardCoordinator
+{
+	private static final Charset charset = Charset.forName("UTF-8");
+	private static final String authorizationScheme = "Bearer ";
+
+	private final List<String> sites;
+	private final byte[] token;
+	private final Shard[] shards;
+	private final ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+	private final HashSet<String> workers = new HashSet<String>();
+	private long leaseTime = 30000;
+	private int reassigned = 0;
+	private int done = 0;
+	private HttpServer server = null;
+
+	/**
+	 * Creates a new shard coordinator instance.
+	 * @param sites The sites.
+	 * @param shardSize The maximum number of sites in a shard.
+	 * @param token The token shared with the workers, which authorizes their requests.
+	 */
+	public ShardCoordinator(List<String> sites, int shardSize, String token)
+	{
+		if ((null == token) || token.isEmpty()) {
+			throw new IllegalArgumentException("The coordinator requires a shared token.");
+		}
+		if (shardSize < 1) {
+			throw new IllegalArgumentException("The shard size must be at least one site.");
+		}
+		this.token = token.getBytes(ShardCoordinator.charset);
+		this.sites = new ArrayList<String>(sites);
+		this.shards = new Shard[(this.sites.size() + shardSize - 1) / shardSize];
+
+		// Divide the sites into shards, which are all pending.
+		for (int index = 0; index < this.shards.length; index++) {
+			int first = index * shardSize;
+			this.shards[index] = new Shard(first, Math.min(shardSize, this.sites.size() - first));
+			this.pending.add(index);
+		}
+	}
+
+	/**
+	 * Gets the time after which a lease expires without a heartbeat.
+	 * @return The time in milliseconds.
+	 */
+	public synchronized long getLeaseTime() {
+		return this.leaseTime;
+	}
+
+	/**
+	 * Sets the time after which a lease expires without a heartbeat.
+	 * @param leaseTime The time in milliseconds.
+	 */
+	public synchronized void setLeaseTime(long leaseTime) {
+		this.leaseTime = leaseTime;
+	}
+
+	/**
+	 * Gets the number of shards.
+	 * @return The number of shards.
+	 */
+	public int size() {
+		return this.shards.length;
+	}
+
+	/**
+	 * Gets the number of completed shards.
+	 * @return The number of shards.
+	 */
+	public synchronized int getDone() {
+		return this.done;
+	}
+
+	/**
+	 * Gets the number of shards reassigned after their lease expired.
+	 * @return The number of shards.
+	 */
+	public synchronized int getReassigned() {
+		return this.reassigned;
+	}
+
+	/**
+	 * Gets the number of workers that leased a shard.
+	 * @return The number of workers.
+	 */
+	public synchronized int getWorkers() {
+		return this.workers.size();
+	}
+
+	/**
+	 * Gets the number of completed sites, as reported by the workers.
+	 * @return The number of sites.
+	 */
+	public synchronized int getCompleted()
+	{
+		int completed = 0;
+		for (Shard shard : this.shards) completed += shard.completed;
+		return completed;
+	}
+
+	/**
+	 * Gets the number of failed sites, as reported by the workers.
+	 * @return The number of sites.
+	 */
+	public synchronized int getFailed()
+	{
+		int failed = 0;
+		for (Shard shard : this.shards) failed += shard.failed;
+		return failed;
+	}
+
+	/**
+	 * Indicates whether all shards are completed.
+	 * @return True if all shards are completed, false otherwise.
+	 */
+	public synchronized boolean isFinished() {
+		return this.done == this.shards.length;
+	}
+
+	/**
+	 * Starts the HTTP server of the coordinator.
+	 * @param address The local address to which the server is bound, or null for all addresses.
+	 * @param port The port.
+	 * @throws IOException
+	 */
+	public synchronized void start(InetAddress address, int port) throws IOException
+	{
+		if (null != this.server) {
+			throw new IllegalStateException("The coordinator is running.");
+		}
+
+		final ShardCoordinator coordinator = this;
+
+		// Create the server, where each request is handled on the server thread.
+		this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		this.server.createContext("/lease", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (!coordinator.authorize(exchange)) return;
+				HashMap<String, String> query = ShardCoordinator.getQuery(exchange.getRequestURI());
+				coordinator.onLease(exchange, query.get("worker"));
+			}
+		});
+		this.server.createContext("/heartbeat", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (!coordinator.authorize(exchange)) return;
+				HashMap<String, String> query = ShardCoordinator.getQuery(exchange.getRequestURI());
+				coordinator.onReport(exchange, query, false);
+			}
+		});
+		this.server.createContext("/complete", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (!coordinator.authorize(exchange)) return;
+				HashMap<String, String> query = ShardCoordinator.getQuery(exchange.getRequestURI());
+				coordinator.onReport(exchange, query, true);
+			}
+		});
+		this.server.createContext("/progress", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (!coordinator.authorize(exchange)) return;
+				coordinator.onProgress(exchange);
+			}
+		});
+		this.server.start();
+	}
+
+	/**
+	 * Stops the HTTP server of the coordinator.
+	 */
+	public synchronized void stop()
+	{
+		if (null == this.server) return;
+		this.server.stop(0);
+		this.server = null;
+	}
+
+	/**
+	 * Gets the port of the HTTP server.
+	 * @return The port, or -1 if the server is not running.
+	 */
+	public synchronized int getPort() {
+		return null != this.server ? this.server.getAddress().getPort() : -1;
+	}
+
+	/**
+	 * Leases the next pending shard to a worker.
+	 * @param worker The worker.
+	 * @return The shard identifier, -1 if all shards are leased, or -2 if all shards are completed.
+	 */
+	public synchronized int lease(String worker)
+	{
+		// Return the shards whose lease expired to the pending shards.
+		this.expire();
+
+		if (this.done == this.shards.length) return -2;
+		Integer id = this.pending.poll();
+		if (null == id) return -1;
+
+		// Lease the shard.
+		Shard shard = this.shards[id];
+		shard.worker = worker;
+		shard.expiry = System.currentTimeMillis() + this.leaseTime;
+		this.workers.add(worker);
+		return id;
+	}
+
+	/**
+	 * Renews the lease of a shard, and updates its progress.
+	 * @param worker The worker.
+	 * @param id The shard identifier.
+	 * @param completed The number of completed sites of the shard.
+	 * @param failed The number of failed sites of the shard.
+	 * @param finished True if the shard is completed, false otherwise.
+	 * @return True if the worker holds the lease, false otherwise.
+	 */
+	public synchronized boolean report(String worker, int id, int completed, int failed, boolean finished)
+	{
+		// Return the shards whose lease expired to the pending shards.
+		this.expire();
+
+		if ((id < 0) || (id >= this.shards.length)) return false;
+		Shard shard = this.shards[id];
+		if ((null == worker) || !worker.equals(shard.worker)) return false;
+
+		// Update the progress.
+		shard.completed = Math.min(completed, shard.count);
+		shard.failed = Math.min(failed, shard.count - shard.completed);
+		if (finished) {
+			// Complete the shard.
+			shard.worker = null;
+			this.done++;
+		}
+		else {
+			// Renew the lease.
+			shard.expiry = System.currentTimeMillis() + this.leaseTime;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the sites of a shard.
+	 * @param id The shard identifier.
+	 * @return The sites.
+	 */
+	public List<String> getSites(int id) {
+		Shard shard = this.shards[id];
+		return this.sites.subList(shard.first, shard.first + shard.count);
+	}
+
+	/**
+	 * Returns the leased shards whose lease expired to the front of the pending
+	 * shards, and discards the progress reported for them.
+	 */
+	private void expire()
+	{
+		long time = System.currentTimeMillis();
+		for (int id = this.shards.length - 1; id >= 0; id--) {
+			Shard shard = this.shards[id];
+			if ((null != shard.worker) && (shard.expiry <= time)) {
+				shard.worker = null;
+				shard.completed = 0;
+				shard.failed = 0;
+				this.pending.addFirst(id);
+				this.reassigned++;
+			}
+		}
+	}
+
+	/**
+	 * Checks the token of a request, and answers 401 if the token is missing or different.
+	 * @param exchange The HTTP exchange.
+	 * @return True if the request is authorized, false otherwise.
+	 * @throws IOException
+	 */
+	private boolean authorize(HttpExchange exchange) throws IOException
+	{
+		String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+		// Compare the tokens in constant time.
+		if ((null != authorization) && authorization.startsWith(ShardCoordinator.authorizationScheme) && MessageDigest.isEqual(this.token,
+				authorization.substring(ShardCoordinator.authorizationScheme.length()).getBytes(ShardCoordinator.charset))) {
+			return true;
+		}
+		ShardCoordinator.send(exchange, 401, null);
+		return false;
+	}
+
+	/**
+	 * Handles a lease request.
+	 * @param exchange The HTTP exchange.
+	 * @param worker The worker.
+	 * @throws IOException
+	 */
+	private void onLease(HttpExchange exchange, String worker) throws IOException
+	{
+		if (null == worker) {
+			ShardCoordinator.send(exchange, 400, null);
+			return;
+		}
+		int id = this.lease(worker);
+		if (-2 == id) {
+			ShardCoordinator.send(exchange, 410, null);
+		}
+		else if (-1 == id) {
+			ShardCoordinator.send(exchange, 204, null);
+		}
+		else {
+			// The response is the shard identifier and lease time, followed by the sites.
+			StringBuilder builder = new StringBuilder();
+			builder.append(id).append(' ').append(this.getLeaseTime()).append('\n');
+			for (String site : this.getSites(id)) {
+				builder.append(site).append('\n');
+			}
+			ShardCoordinator.send(exchange, 200, builder.toString());
+		}
+	}
+
+	/**
+	 * Handles a heartbeat or completion request.
+	 * @param exchange The HTTP exchange.
+	 * @param query The query parameters.
+	 * @param finished True if the shard is completed, false otherwise.
+	 * @throws IOException
+	 */
+	private void onReport(HttpExchange exchange, HashMap<String, String> query, boolean finished) throws IOException
+	{
+		boolean owner;
+		try {
+			owner = this.report(
+				query.get("worker"),
+				Integer.parseInt(query.get("shard")),
+				Integer.parseInt(query.get("completed")),
+				Integer.parseInt(query.get("failed")),
+				finished);
+		}
+		catch (NumberFormatException exception) {
+			ShardCoordinator.send(exchange, 400, null);
+			return;
+		}
+		if (owner) {
+			ShardCoordinator.send(exchange, 200, this.getLeaseTime() + "\n");
+		}
+		else {
+			ShardCoordinator.send(exchange, 409, null);
+		}
+	}
+
+	/**
+	 * Handles a progress request.
+	 * @param exchange The HTTP exchange.
+	 * @throws IOException
+	 */
+	private void onProgress(HttpExchange exchange) throws IOException
+	{
+		ShardCoordinator.send(exchange, 200, this.toString() + "\n");
+	}
+
+	/**
+	 * Gets the merged progress of the campaign.
+	 * @return The progress.
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		int leased = 0;
+		for (Shard shard : this.shards) {
+			if (null != shard.worker) leased++;
+		}
+		return String.format("sites %d completed %d failed %d shards %d done %d leased %d pending %d reassigned %d workers %d",
+			this.sites.size(), this.getCompleted(), this.getFailed(),
+			this.shards.length, this.done, leased, this.pending.size(), this.reassigned, this.workers.size());
+	}
+
+	/**
+	 * Sends a plain text response.
+	 * @param exchange The HTTP exchange.
+	 * @param code The response code.
+	 * @param body The response body, or null if the response has no body.
+	 * @throws IOException
+	 */
+	private static void send(HttpExchange exchange, int code, String body) throws IOException
+	{
+		// Discard the request body.
+		InputStream input = exchange.getRequestBody();
+		IOUtils.toByteArray(input);
+		input.close();
+
+		if (null == body) {
+			exchange.sendResponseHeaders(code, -1);
+		}
+		else {
+			byte[] data = body.getBytes(ShardCoordinator.charset);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+			exchange.sendResponseHeaders(code, data.length);
+			OutputStream output = exchange.getResponseBody();
+			output.write(data);
+			output.close();
+		}
+		exchange.close();
+	}
+
+	/**
+	 * Parses the query parameters of a request.
+	 * @param uri The request URI.
+	 * @return The parameters.
+	 */
+	private static HashMap<String, String> getQuery(URI uri)
+	{
+		HashMap<String, String> query = new HashMap<String, String>();
+		if (null == uri.getQuery()) return query;
+		for (String parameter : uri.getQuery().split("&")) {
+			int index = parameter.indexOf('=');
+			if (index > 0) query.put(parameter.substring(0, index), parameter.substring(index + 1));
+		}
+		return query;
+	}
+
+	/**
+	 * Runs a local coordinator, which stands in for a coordinator client when testing the workers.
+	 * <p>
+	 * Usage: <code>ShardCoordinator address port token sites [shardSize] [leaseTime]</code>, where
+	 * the address is the local address of the server, the token is shared with the workers, and
+	 * the sites are a file or a URL with the sites separated by white space.
+	 * @param args The arguments.
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 4) {
+			System.err.println("Usage: ShardCoordinator address port token sites [shardSize] [leaseTime]");
+			System.exit(1);
+		}
+
+		// Read the sites from the file or the URL.
+		String data;
+		File file = new File(args[3]);
+		if (file.exists()) {
+			data = new String(Files.readAllBytes(file.toPath()), ShardCoordinator.charset);
+		}
+		else {
+			InputStream input = URI.create(args[3]).toURL().openStream();
+			data = new String(IOUtils.toByteArray(input), ShardCoordinator.charset);
+			input.close();
+		}
+		ArrayList<String> sites = new ArrayList<String>();
+		for (String site : data.split("(\n|\r| )")) {
+			if (!site.isEmpty()) sites.add(site);
+		}
+
+		// Start the coordinator.
+		ShardCoordinator coordinator = new ShardCoordinator(sites, args.length > 4 ? Integer.parseInt(args[4]) : 50, args[2]);
+		if (args.length > 5) coordinator.setLeaseTime(Long.parseLong(args[5]));
+		coordinator.start(InetAddress.getByName(args[0]), Integer.parseInt(args[1]));
+
+		// Print the progress until all shards are completed.
+		while (!coordinator.isFinished()) {
+			System.out.println(coordinator);
+			Thread.sleep(5000);
+		}
+		System.out.println(coordinator);
+		coordinator.stop();
+	}
+
+	/**
+	 * A class representing a shard of sites.
+	 */
+	private static final class Shard
+	{
+		private final int first;
+		private final int count;
+		private String worker = null;
+		private long expiry = 0;
+		private int completed = 0;
+		private int failed = 0;
+
+		/**
+		 * Creates a new shard instance.
+		 * @param first The index of the first site.
+		 * @param count The number of sites.
+		 */
+		public Shard(int first, int count)
+		{
+			this.first = first;
+			this.count = count;
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bikfalvi.java.net.core.TracerouteResult;
+import com.bikfalvi.java.threading.ThreadPool;
+import com.bikfalvi.java.web.WebState;
+
+/**
+ * A class representing a worker client of a distributed traceroute campaign.
+ * The worker leases a shard of sites from a shard coordinator, runs the
+ * traceroute campaign for the shard, and reports the progress in heartbeats
+ * that renew the lease, until the coordinator has no shards left. If the
+ * coordinator reassigned the shard, the worker cancels the campaign of the
+ * shard and leases another one.
+ * <p>
+ * The worker replaces the listener of the campaign, and forwards the site
+ * events to the previous listener, until the worker is detached. The campaign
+ * finished event is forwarded once, after the last shard, with the state of
+ * that shard.
+ * @author agent
+ *
+ */
+public final class ShardWorker implements CampaignListener
+{
+	private final TracerouteCampaign campaign;
+	private final CampaignListener listener;
+	private final String coordinator;
+	private final String worker;
+	private final String token;
+	private long pollInterval = 5000;
+	private volatile boolean canceled = false;
+	private volatile boolean running = false;
+	private volatile CampaignState last = null;
+	private volatile int shards = 0;
+
+	/**
+	 * Creates a new shard worker instance.
+	 * @param campaign The traceroute campaign.
+	 * @param coordinator The address of the coordinator, for example <code>http://host:port</code>.
+	 * @param worker The worker name, which must be unique among the workers.
+	 * @param token The token shared with the coordinator, which authorizes the requests.
+	 */
+	public ShardWorker(TracerouteCampaign campaign, String coordinator, String worker, String token)
+	{
+		if ((null == token) || token.isEmpty()) {
+			throw new IllegalArgumentException("The worker requires the token of the coordinator.");
+		}
+		this.campaign = campaign;
+		this.listener = campaign.getListener();
+		this.coordinator = coordinator.endsWith("/") ? coordinator.substring(0, coordinator.length() - 1) : coordinator;
+		this.worker = worker;
+		this.token = token;
+		campaign.setListener(this);
+	}
+
+	/**
+	 * Restores the previous listener of the campaign, such that another worker can run the campaign.
+	 */
+	public void detach()
+	{
+		if (this.running) {
+			throw new IllegalStateException("The worker is running.");
+		}
+		if (this == this.campaign.getListener()) this.campaign.setListener(this.listener);
+	}
+
+	/**
+	 * Gets the time between the lease requests when all shards are leased to other workers.
+	 * @return The time in milliseconds.
+	 */
+	public long getPollInterval() {
+		return this.pollInterval;
+	}
+
+	/**
+	 * Sets the time between the lease requests when all shards are leased to other workers.
+	 * @param pollInterval The time in milliseconds.
+	 */
+	public void setPollInterval(long pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * Gets the number of shards completed by this worker.
+	 * @return The number of shards.
+	 */
+	public int getShards() {
+		return this.shards;
+	}
+
+	/**
+	 * Starts leasing and running the shards on the thread pool.
+	 */
+	public void start()
+	{
+		if (this.running) {
+			throw new IllegalStateException("The worker is running.");
+		}
+		this.canceled = false;
+		this.running = true;
+
+		ThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				ShardWorker.this.run();
+			}
+		});
+	}
+
+	/**
+	 * Cancels the worker and the campaign of the current shard. The current lease expires at the coordinator.
+	 */
+	public void cancel()
+	{
+		this.canceled = true;
+		this.campaign.cancel();
+	}
+
+	/**
+	 * Leases and runs the shards until the coordinator has no shards left, or the worker is canceled.
+	 */
+	private void run()
+	{
+		try {
+			while (!this.canceled) {
+				// Lease the next shard.
+				WebState lease;
+				int code;
+				try {
+					lease = this.request("lease");
+					code = lease.getConnection().getResponseCode();
+				}
+				catch (IOException exception) {
+					// The coordinator is not reachable: retry later.
+					Thread.sleep(this.pollInterval);
+					continue;
+				}
+				if ((410 == code) || (401 == code)) {
+					// All shards are completed, or the coordinator rejected the token.
+					break;
+				}
+				if (200 != code) {
+					// All shards are leased to other workers, which may die: retry later.
+					Thread.sleep(this.pollInterval);
+					continue;
+				}
+
+				// Parse the shard identifier, the lease time and the sites.
+				int shard;
+				long leaseTime;
+				List<String> sites = new ArrayList<String>();
+				try {
+					String[] lines = lease.getResponseDataAsString().split("(\n|\r)+");
+					String[] header = lines[0].trim().split(" ");
+					if (header.length < 2) {
+						throw new NumberFormatException("The lease has no lease time.");
+					}
+					shard = Integer.parseInt(header[0]);
+					leaseTime = Long.parseLong(header[1]);
+					if (leaseTime < 3) {
+						throw new NumberFormatException("The lease time is too short for the heartbeats.");
+					}
+					for (int index = 1; index < lines.length; index++) {
+						if (!lines[index].isEmpty()) sites.add(lines[index]);
+					}
+				}
+				catch (NumberFormatException exception) {
+					// The lease is malformed or truncated: retry later, as if the coordinator were not reachable.
+					Thread.sleep(this.pollInterval);
+					continue;
+				}
+
+				// Run the campaign of the shard, and send a heartbeat three times per lease time.
+				CampaignState state = this.campaign.start(sites);
+				boolean owner = true;
+				while (!this.campaign.waitOne(leaseTime / 3)) {
+					if (!this.report("heartbeat", shard, state)) {
+						// The shard was reassigned: cancel its campaign.
+						owner = false;
+						this.campaign.cancel();
+					}
+				}
+
+				// Complete the shard.
+				if (owner && !this.canceled && state.isFinished() && this.report("complete", shard, state)) {
+					this.shards++;
+				}
+			}
+		}
+		catch (InterruptedException exception) {
+		}
+		finally {
+			this.running = false;
+
+			// Forward the campaign finished event after the last shard, with an empty state if this worker ran no shards, even if the worker failed.
+			if (!this.canceled && (null != this.listener)) {
+				this.listener.campaignFinished(null != this.last ? this.last : new CampaignState(new ArrayList<String>()));
+			}
+		}
+	}
+
+	/**
+	 * Reports the progress of a shard to the coordinator.
+	 * @param command The command, heartbeat or complete.
+	 * @param shard The shard identifier.
+	 * @param state The campaign state of the shard.
+	 * @return False if the coordinator rejected the report because the lease was lost, true otherwise.
+	 */
+	private boolean report(String command, int shard, CampaignState state)
+	{
+		try {
+			WebState report = this.request(String.format("%s?shard=%d&completed=%d&failed=%d",
+				command, shard, state.getCompleted(), state.getFailed()));
+			return 409 != report.getConnection().getResponseCode();
+		}
+		catch (IOException exception) {
+			// The coordinator is not reachable: keep the lease until the coordinator rejects it.
+			return true;
+		}
+	}
+
+	/**
+	 * Executes a request to the coordinator.
+	 * @param command The command, with its parameters.
+	 * @return The web state with the response, where the response code is read from the connection.
+	 * @throws IOException
+	 */
+	private WebState request(String command) throws IOException
+	{
+		String url = String.format("%s/%s%sworker=%s",
+			this.coordinator, command, command.indexOf('?') < 0 ? "?" : "&", URLEncoder.encode(this.worker, "UTF-8"));
+		WebState state = new WebState(url);
+		state.getConnection().setRequestMethod("POST");
+		state.getConnection().setRequestProperty("Authorization", "Bearer " + this.token);
+		state.getConnection().setConnectTimeout(10000);
+		state.getConnection().setReadTimeout(10000);
+		state.setData("", Charset.forName("UTF-8"));
+		try {
+			state.execute();
+		}
+		catch (IOException exception) {
+			// A response with an error code has no data: throw only if there is no response.
+			state.getConnection().getResponseCode();
+		}
+		return state;
+	}
+
+	/**
+	 * Forwards the site completed event.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 */
+	@Override
+	public void siteCompleted(CampaignState state, int id, TracerouteResult result) {
+		if (null != this.listener) this.listener.siteCompleted(state, id, result);
+	}
+
+	/**
+	 * Forwards the site failed event.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 */
+	@Override
+	public void siteFailed(CampaignState state, int id) {
+		if (null != this.listener) this.listener.siteFailed(state, id);
+	}
+
+	/**
+	 * Records the state of a finished shard, without forwarding the event.
+	 * @param state The campaign state.
+	 */
+	@Override
+	public void campaignFinished(CampaignState state) {
+		this.last = state;
+	}
+}
@@ -0,0 +1,240 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class representing the history of the traceroute durations and outcomes
+ * of the campaign sites, used to start the slowest sites first. The expected
+ * duration of a site is an exponential moving average of its past durations.
+ * Ordering the sites longest first shortens the tail of the campaign, where
+ * only a few workers are busy. On disk, the history is a sequence of binary
+ * records, one per site.
+ * @author agent
+ *
+ */
+public final class SiteHistory
+{
+	private static final int magic = 0x4D534854;
+	private static final float weight = 0.3f;
+
+	/**
+	 * A class representing the history of a site.
+	 */
+	private static final class Entry
+	{
+		private float duration;
+		private int completed;
+		private int failed;
+	}
+
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Creates an empty site history.
+	 */
+	public SiteHistory()
+	{
+	}
+
+	/**
+	 * Reads the site history from the specified file. A partial last record is ignored.
+	 * @param file The file.
+	 * @return The site history.
+	 * @throws IOException
+	 */
+	public static SiteHistory read(File file) throws IOException
+	{
+		SiteHistory history = new SiteHistory();
+
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			// Check the header.
+			if (stream.readInt() != SiteHistory.magic) {
+				throw new IOException(String.format("The file %s is not a site history.", file));
+			}
+			// Read the records.
+			for (;;) {
+				String site;
+				Entry entry = new Entry();
+				try {
+					site = stream.readUTF();
+					entry.duration = stream.readFloat();
+					entry.completed = stream.readInt();
+					entry.failed = stream.readInt();
+				}
+				catch (EOFException e) {
+					break;
+				}
+				history.entries.put(site, entry);
+			}
+		}
+		finally {
+			stream.close();
+		}
+
+		return history;
+	}
+
+	/**
+	 * Writes the site history to the specified file. The history is written to a temporary file
+	 * first, which then replaces the file, such that a failed write keeps the previous history.
+	 * @param file The file.
+	 * @throws IOException
+	 */
+	public synchronized void write(File file) throws IOException
+	{
+		File temporary = new File(file.getPath() + ".tmp");
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			stream.writeInt(SiteHistory.magic);
+			for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+				stream.writeUTF(entry.getKey());
+				stream.writeFloat(entry.getValue().duration);
+				stream.writeInt(entry.getValue().completed);
+				stream.writeInt(entry.getValue().failed);
+			}
+		}
+		finally {
+			stream.close();
+		}
+		// Replace the file.
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Adds the duration and outcome of a traceroute to a site.
+	 * @param site The site.
+	 * @param duration The duration in milliseconds.
+	 * @param completed True if the traceroute completed, false if it failed.
+	 */
+	public synchronized void add(String site, long duration, boolean completed)
+	{
+		Entry entry = this.entries.get(site);
+		if (null == entry) {
+			// The first duration is the average.
+			entry = new Entry();
+			entry.duration = duration;
+			this.entries.put(site, entry);
+		}
+		else {
+			// Update the moving average.
+			entry.duration += SiteHistory.weight * (duration - entry.duration);
+		}
+		if (completed) entry.completed++; else entry.failed++;
+	}
+
+	/**
+	 * Gets the expected traceroute duration of a site.
+	 * @param site The site.
+	 * @return The duration in milliseconds, or -1 if the site has no history.
+	 */
+	public synchronized float getDuration(String site)
+	{
+		Entry entry = this.entries.get(site);
+		return null != entry ? entry.duration : -1;
+	}
+
+	/**
+	 * Gets the number of completed traceroutes of a site.
+	 * @param site The site.
+	 * @return The number of traceroutes.
+	 */
+	public synchronized int getCompleted(String site)
+	{
+		Entry entry = this.entries.get(site);
+		return null != entry ? entry.completed : 0;
+	}
+
+	/**
+	 * Gets the number of failed traceroutes of a site.
+	 * @param site The site.
+	 * @return The number of traceroutes.
+	 */
+	public synchronized int getFailed(String site)
+	{
+		Entry entry = this.entries.get(site);
+		return null != entry ? entry.failed : 0;
+	}
+
+	/**
+	 * Gets the number of sites with a history.
+	 * @return The number of sites.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Orders the specified sites by their expected duration, longest first. A
+	 * site without a history is expected to last the median duration of the
+	 * known sites, such that the unknown sites are neither started first nor
+	 * starved. Sites with the same expected duration keep the list order.
+	 * @param sites The sites.
+	 * @return The site indices in the order they should start.
+	 */
+	public synchronized int[] order(List<String> sites)
+	{
+		// Get the expected duration of each site.
+		final float[] durations = new float[sites.size()];
+		float[] known = new float[sites.size()];
+		int count = 0;
+		for (int index = 0; index < durations.length; index++) {
+			durations[index] = this.getDuration(sites.get(index));
+			if (durations[index] >= 0) known[count++] = durations[index];
+		}
+
+		// Compute the median duration of the known sites, used for the unknown sites.
+		Arrays.sort(known, 0, count);
+		float median = count > 0 ? known[count / 2] : 0;
+		for (int index = 0; index < durations.length; index++) {
+			if (durations[index] < 0) durations[index] = median;
+		}
+
+		// Sort the indices by the expected duration, longest first, where the sort is stable.
+		Integer[] indices = new Integer[durations.length];
+		for (int index = 0; index < indices.length; index++) indices[index] = index;
+		Arrays.sort(indices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer left, Integer right) {
+				return Float.compare(durations[right], durations[left]);
+			}
+		});
+
+		int[] order = new int[indices.length];
+		for (int index = 0; index < order.length; index++) order[index] = indices[index];
+		return order;
+	}
+}
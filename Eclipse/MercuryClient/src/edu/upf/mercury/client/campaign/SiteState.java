@@ -0,0 +1,43 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+/**
+ * An enumeration of the states of a site in a traceroute campaign.
+ * @author agent
+ *
+ */
+public enum SiteState {
+	/**
+	 * The site is waiting for a traceroute.
+	 */
+	PENDING,
+	/**
+	 * The traceroute to the site is running.
+	 */
+	RUNNING,
+	/**
+	 * The traceroute to the site completed and was uploaded.
+	 */
+	COMPLETED,
+	/**
+	 * The traceroute to the site failed after all attempts.
+	 */
+	FAILED
+}
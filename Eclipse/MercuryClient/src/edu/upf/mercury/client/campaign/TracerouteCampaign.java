@@ -0,0 +1,1184 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bikfalvi.java.net.core.PathChangeDetector;
+import com.bikfalvi.java.net.core.TopologyGraph;
+import com.bikfalvi.java.net.core.Traceroute;
+import com.bikfalvi.java.net.core.TracerouteBatch;
+import com.bikfalvi.java.net.core.TracerouteResult;
+import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.threading.ResizableSemaphore;
+import com.bikfalvi.java.threading.ThreadPool;
+
+/**
+ * A class representing a traceroute campaign, which runs the traceroutes to a
+ * list of sites with a number of concurrent workers, retries the failed sites,
+ * and uploads the results. The campaign does not depend on a user interface.
+ * <p>
+ * A failed site is retried after an exponential backoff with jitter, and the
+ * failed traceroutes and the failed uploads have separate budgets. When the
+ * upload fails, the retry uploads the same result without a new traceroute.
+ * <p>
+ * With an upload stage, the workers submit the results to the stage and
+ * continue with the next site, and a site remains running until its upload
+ * ends.
+ * <p>
+ * With a deadline, the sites start in the coverage order of the deadline, the
+ * traceroutes use less effort as the deadline nears, and at the deadline the
+ * campaign state is closed, such that the campaign finishes when the running
+ * sites stop, and the pending sites are left out.
+ * <p>
+ * When the campaign has a concurrency controller, each worker that completes a
+ * traceroute compares the number of workers with the current limit of the
+ * controller, and either retires or starts additional workers.
+ * <p>
+ * In the virtual execution mode, each pending site has its own virtual thread,
+ * and the blocking traceroute and upload code runs unchanged on that thread. A
+ * semaphore with as many permits as the concurrency limit bounds the running
+ * traceroutes, and a second semaphore bounds the uploads, such that a thread
+ * waiting for the web server does not hold a traceroute permit.
+ * <p>
+ * With a batch traceroute, a single worker takes the pending sites in batches
+ * and measures each batch at once, such that the probe rate of the batch
+ * traceroute rather than the number of concurrent traceroutes limits the
+ * campaign. The results of a batch are uploaded as those of the other workers.
+ * @author agent
+ *
+ */
+public final class TracerouteCampaign
+{
+	private static final long permitTimeout = 100;
+	private final Traceroute traceroute;
+	private final CampaignUploader uploader;
+	private final CancellationToken cancellationToken = new CancellationToken();
+	private final AtomicBoolean finished = new AtomicBoolean();
+	private final AtomicInteger workers = new AtomicInteger();
+	private CampaignListener listener = null;
+	private PathChangeDetector changeDetector = null;
+	private TopologyGraph topology = null;
+	private ConcurrencyController controller = null;
+	private TracerouteBatch batch = null;
+	private int batchSize = 256;
+	private SiteHistory history = null;
+	private CampaignJournal journal = null;
+	private UploadStage stage = null;
+	private CampaignDeadline deadline = null;
+	private ExecutionMode mode = ExecutionMode.PLATFORM;
+	private int concurrency = 20;
+	private int uploadConcurrency = 20;
+	private final Random random = new Random();
+	private int probeRetries = 3;
+	private int uploadRetries = 5;
+	private long retryDelay = 2000;
+	private long maximumRetryDelay = 60000;
+	private volatile CampaignState state = null;
+	private volatile ResizableSemaphore probes = null;
+	private volatile Semaphore uploads = null;
+	private volatile CountDownLatch done = new CountDownLatch(0);
+
+	/**
+	 * Creates a new traceroute campaign instance.
+	 * @param traceroute The traceroute.
+	 * @param uploader The uploader of the results.
+	 */
+	public TracerouteCampaign(Traceroute traceroute, CampaignUploader uploader)
+	{
+		this.traceroute = traceroute;
+		this.uploader = uploader;
+	}
+
+	/**
+	 * Gets the traceroute.
+	 * @return The traceroute.
+	 */
+	public Traceroute getTraceroute() {
+		return this.traceroute;
+	}
+
+	/**
+	 * Gets the state of the current campaign.
+	 * @return The state, or null if the campaign has not started.
+	 */
+	public CampaignState getState() {
+		return this.state;
+	}
+
+	/**
+	 * Gets the campaign listener.
+	 * @return The listener, or null.
+	 */
+	public CampaignListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Sets the campaign listener.
+	 * @param listener The listener, or null.
+	 */
+	public void setListener(CampaignListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the path change detector, which skips the upload of the unchanged paths.
+	 * @return The detector, or null.
+	 */
+	public PathChangeDetector getChangeDetector() {
+		return this.changeDetector;
+	}
+
+	/**
+	 * Sets the path change detector, which skips the upload of the unchanged paths.
+	 * @param changeDetector The detector, or null.
+	 */
+	public void setChangeDetector(PathChangeDetector changeDetector) {
+		this.changeDetector = changeDetector;
+	}
+
+	/**
+	 * Gets the topology graph, to which the links of each result are added.
+	 * @return The graph, or null.
+	 */
+	public TopologyGraph getTopology() {
+		return this.topology;
+	}
+
+	/**
+	 * Sets the topology graph, to which the links of each result are added.
+	 * @param topology The graph, or null.
+	 */
+	public void setTopology(TopologyGraph topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Gets the number of concurrent traceroutes.
+	 * @return The number of traceroutes.
+	 */
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	/**
+	 * Sets the number of concurrent traceroutes, used by the next campaign.
+	 * @param concurrency The number of traceroutes.
+	 */
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Gets the execution mode.
+	 * @return The execution mode.
+	 */
+	public ExecutionMode getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * Sets the execution mode, used by the next campaign.
+	 * @param mode The execution mode.
+	 */
+	public void setMode(ExecutionMode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Gets the number of concurrent uploads in the virtual execution mode.
+	 * @return The number of uploads.
+	 */
+	public int getUploadConcurrency() {
+		return this.uploadConcurrency;
+	}
+
+	/**
+	 * Sets the number of concurrent uploads in the virtual execution mode, used by the next campaign.
+	 * @param uploadConcurrency The number of uploads.
+	 */
+	public void setUploadConcurrency(int uploadConcurrency) {
+		this.uploadConcurrency = uploadConcurrency;
+	}
+
+	/**
+	 * Gets the site history.
+	 * @return The history, or null if the sites start in the list order.
+	 */
+	public SiteHistory getHistory() {
+		return this.history;
+	}
+
+	/**
+	 * Sets the site history, which orders the sites of the next campaign longest
+	 * first and records the traceroute durations and outcomes.
+	 * @param history The history, or null if the sites start in the list order.
+	 */
+	public void setHistory(SiteHistory history) {
+		this.history = history;
+	}
+
+	/**
+	 * Gets the campaign journal.
+	 * @return The journal, or null if the campaign is not journaled.
+	 */
+	public CampaignJournal getJournal() {
+		return this.journal;
+	}
+
+	/**
+	 * Sets the campaign journal, which records the completed and failed sites. The
+	 * next campaign skips the sites already recorded in the journal session, which
+	 * the caller begins before starting the campaign.
+	 * @param journal The journal, or null if the campaign is not journaled.
+	 */
+	public void setJournal(CampaignJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Gets the upload stage.
+	 * @return The upload stage, or null if the workers upload the results.
+	 */
+	public UploadStage getStage() {
+		return this.stage;
+	}
+
+	/**
+	 * Sets the upload stage, used by the next campaign.
+	 * @param stage The upload stage, or null if the workers upload the results.
+	 */
+	public void setStage(UploadStage stage) {
+		this.stage = stage;
+	}
+
+	/**
+	 * Gets the deadline.
+	 * @return The deadline, or null if the campaign runs until all sites are completed or failed.
+	 */
+	public CampaignDeadline getDeadline() {
+		return this.deadline;
+	}
+
+	/**
+	 * Sets the deadline, used by the next campaign.
+	 * @param deadline The deadline, or null if the campaign runs until all sites are completed or failed.
+	 */
+	public void setDeadline(CampaignDeadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Gets the concurrency controller.
+	 * @return The controller, or null if the number of concurrent traceroutes is fixed.
+	 */
+	public ConcurrencyController getController() {
+		return this.controller;
+	}
+
+	/**
+	 * Sets the concurrency controller, used by the next campaign.
+	 * @param controller The controller, or null if the number of concurrent traceroutes is fixed.
+	 */
+	public void setController(ConcurrencyController controller) {
+		this.controller = controller;
+	}
+
+	/**
+	 * Gets the batch traceroute.
+	 * @return The batch traceroute, or null if each site has its own traceroute.
+	 */
+	public TracerouteBatch getBatch() {
+		return this.batch;
+	}
+
+	/**
+	 * Sets the batch traceroute, used by the next campaign instead of the workers of the execution mode.
+	 * @param batch The batch traceroute, or null if each site has its own traceroute.
+	 */
+	public void setBatch(TracerouteBatch batch) {
+		this.batch = batch;
+	}
+
+	/**
+	 * Gets the maximum number of sites measured by a batch.
+	 * @return The number of sites.
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Sets the maximum number of sites measured by a batch.
+	 * @param batchSize The number of sites.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Gets the current limit of concurrent traceroutes.
+	 * @return The number of traceroutes.
+	 */
+	public int getLimit() {
+		ConcurrencyController controller = this.controller;
+		return null != controller ? controller.getLimit() : this.concurrency;
+	}
+
+	/**
+	 * Gets the number of workers of the current campaign, or the number of virtual
+	 * threads holding a traceroute permit in the virtual execution mode.
+	 * @return The number of workers.
+	 */
+	public int getWorkers() {
+		return this.workers.get();
+	}
+
+	/**
+	 * Gets the number of failed traceroutes after which a site fails.
+	 * @return The number of failures.
+	 */
+	public int getProbeRetries() {
+		return this.probeRetries;
+	}
+
+	/**
+	 * Sets the number of failed traceroutes after which a site fails.
+	 * @param probeRetries The number of failures.
+	 */
+	public void setProbeRetries(int probeRetries) {
+		this.probeRetries = probeRetries;
+	}
+
+	/**
+	 * Gets the number of failed uploads after which a site fails.
+	 * @return The number of failures.
+	 */
+	public int getUploadRetries() {
+		return this.uploadRetries;
+	}
+
+	/**
+	 * Sets the number of failed uploads after which a site fails.
+	 * @param uploadRetries The number of failures.
+	 */
+	public void setUploadRetries(int uploadRetries) {
+		this.uploadRetries = uploadRetries;
+	}
+
+	/**
+	 * Gets the delay before the first retry of a site, which doubles with each failure.
+	 * @return The delay in milliseconds.
+	 */
+	public long getRetryDelay() {
+		return this.retryDelay;
+	}
+
+	/**
+	 * Sets the delay before the first retry of a site, which doubles with each failure.
+	 * @param retryDelay The delay in milliseconds.
+	 */
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	/**
+	 * Gets the maximum delay before a retry.
+	 * @return The delay in milliseconds.
+	 */
+	public long getMaximumRetryDelay() {
+		return this.maximumRetryDelay;
+	}
+
+	/**
+	 * Sets the maximum delay before a retry.
+	 * @param maximumRetryDelay The delay in milliseconds.
+	 */
+	public void setMaximumRetryDelay(long maximumRetryDelay) {
+		this.maximumRetryDelay = maximumRetryDelay;
+	}
+
+	/**
+	 * Starts a campaign for the specified sites.
+	 * @param sites The sites.
+	 * @return The campaign state.
+	 */
+	public CampaignState start(List<String> sites)
+	{
+		if ((null != this.state) && (this.done.getCount() > 0)) {
+			throw new IllegalStateException("The campaign is running.");
+		}
+
+		// Restore the sites recorded in the journal.
+		SiteState[] restored = null;
+		if (null != this.journal) {
+			restored = new SiteState[sites.size()];
+			for (int index = 0; index < restored.length; index++) {
+				restored[index] = this.journal.getState(sites.get(index));
+			}
+		}
+
+		// Order the slowest sites first.
+		int[] order = null != this.history ? this.history.order(sites) : null;
+
+		// With a deadline, resolve the sites and order them for coverage.
+		InetAddress[] addresses = null;
+		if (null != this.deadline) {
+			this.deadline.start();
+			addresses = new InetAddress[sites.size()];
+			order = this.deadline.order(sites, order, addresses);
+		}
+
+		// Create the campaign state, where the other sites are pending.
+		CampaignState state = new CampaignState(sites, order, restored);
+		if (null != addresses) {
+			synchronized (addresses) {
+				for (int id = 0; id < addresses.length; id++) {
+					if (null != addresses[id]) state.setAddress(id, addresses[id]);
+				}
+			}
+		}
+
+		// Reset the campaign.
+		this.cancellationToken.reset();
+		this.finished.set(false);
+		this.done = new CountDownLatch(1);
+		this.state = state;
+
+		// Start the uploader threads.
+		if (null != this.stage) this.stage.start(this, ExecutionMode.VIRTUAL == this.mode);
+
+		int limit = this.getLimit();
+		if (null != this.batch) {
+			this.probes = null;
+			this.uploads = null;
+
+			// Start the batch worker.
+			this.workers.set(1);
+			this.executeBatch(state);
+		}
+		else if (ExecutionMode.VIRTUAL == this.mode) {
+			// Create the semaphores that limit the concurrent traceroutes and uploads.
+			this.probes = new ResizableSemaphore(limit);
+			this.uploads = new Semaphore(this.uploadConcurrency, true);
+			this.workers.set(0);
+
+			// Start a virtual thread for each pending site.
+			for (int index = state.getPending(); index > 0; index--) {
+				this.executeVirtual(state, 0);
+			}
+			if (state.isFinished()) this.finish(state);
+		}
+		else {
+			this.probes = null;
+			this.uploads = null;
+
+			// Start the concurrent workers.
+			this.workers.set(limit);
+			for (int index = 0; index < limit; index++) {
+				this.execute(state);
+			}
+		}
+
+		// Close the state at the deadline.
+		if (null != this.deadline) this.close(state, this.deadline.getRemaining());
+		return state;
+	}
+
+	/**
+	 * Cancels the campaign. The running traceroutes return their sites to the pending state.
+	 */
+	public void cancel()
+	{
+		this.cancellationToken.cancel();
+
+		// Wake the virtual threads waiting for a probe permit, which are at most one per site.
+		CampaignState state = this.state;
+		ResizableSemaphore probes = this.probes;
+		if ((null != state) && (null != probes)) probes.release(state.size());
+
+		// If no traceroutes are running, the campaign is done.
+		if ((null == state) || (0 == state.getRunning())) {
+			this.end();
+		}
+	}
+
+	/**
+	 * Indicates whether the campaign was cancelled.
+	 * @return True if the campaign was cancelled, false otherwise.
+	 */
+	public boolean isCanceled() {
+		return this.cancellationToken.isCanceled();
+	}
+
+	/**
+	 * Blocks the current thread until the campaign is finished, or cancelled and no traceroutes are running.
+	 * @throws InterruptedException
+	 */
+	public void waitOne() throws InterruptedException {
+		this.done.await();
+	}
+
+	/**
+	 * Blocks the current thread until the campaign is finished, or cancelled and no traceroutes are running, or the timeout elapses.
+	 * @param timeout The timeout in milliseconds.
+	 * @return True if the campaign is done, false otherwise.
+	 * @throws InterruptedException
+	 */
+	public boolean waitOne(long timeout) throws InterruptedException {
+		return this.done.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Closes the campaign state after the specified delay, unless the campaign is done before.
+	 * @param state The campaign state.
+	 * @param delay The delay in milliseconds.
+	 */
+	private void close(final CampaignState state, final long delay)
+	{
+		final CountDownLatch done = this.done;
+		ThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (done.await(delay, TimeUnit.MILLISECONDS)) return;
+				}
+				catch (InterruptedException exception) {
+					return;
+				}
+				// Close the state, such that the running traceroutes complete and the pending sites are left out.
+				state.close();
+				if (0 == state.getRunning()) TracerouteCampaign.this.finish(state);
+			}
+		});
+	}
+
+	/**
+	 * Executes a worker on the thread pool.
+	 * @param state The campaign state.
+	 */
+	private void execute(final CampaignState state)
+	{
+		ThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				TracerouteCampaign.this.run(state);
+			}
+		});
+	}
+
+	/**
+	 * Executes the batch worker on the thread pool.
+	 * @param state The campaign state.
+	 */
+	private void executeBatch(final CampaignState state)
+	{
+		ThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				TracerouteCampaign.this.runBatch(state);
+			}
+		});
+	}
+
+	/**
+	 * Executes the traceroute to a pending site on a new virtual thread.
+	 * @param state The campaign state.
+	 * @param delay The delay before the thread takes a site, in milliseconds.
+	 */
+	private void executeVirtual(final CampaignState state, final long delay)
+	{
+		ThreadPool.executeVirtual(new Runnable() {
+			@Override
+			public void run() {
+				TracerouteCampaign.this.runVirtual(state, delay);
+			}
+		});
+	}
+
+	/**
+	 * Runs the traceroute to the next pending site, and starts another worker.
+	 * @param state The campaign state.
+	 */
+	private void run(CampaignState state)
+	{
+		// Get a site from the pending queue.
+		final int id = state.next();
+
+		// If no sites are ready.
+		if (id < 0) {
+			// If a site waits for a retry, wait and continue the worker.
+			if (this.waitRetry(state)) {
+				if (!this.cancellationToken.isCanceled()) {
+					this.execute(state);
+				}
+				else if (0 == state.getRunning()) {
+					this.end();
+				}
+				return;
+			}
+			// Retire the worker.
+			this.workers.decrementAndGet();
+			if (state.isFinished()) this.finish(state);
+			return;
+		}
+
+		try {
+			// Run the traceroute to the site.
+			this.process(state, id, null);
+		}
+		finally {
+			// If the campaign is not canceled, start another traceroute.
+			if (!this.cancellationToken.isCanceled()) {
+				this.schedule(state);
+			}
+			// Else, if no traceroutes are running, the campaign is done.
+			else if (0 == state.getRunning()) {
+				this.end();
+			}
+		}
+	}
+
+	/**
+	 * Runs the traceroute to the next pending site on a virtual thread, after
+	 * acquiring a probe permit. If the site returns to the pending state, the
+	 * method starts another virtual thread for it, delayed until its retry.
+	 * @param state The campaign state.
+	 * @param delay The delay before the thread takes a site, in milliseconds.
+	 */
+	private void runVirtual(CampaignState state, long delay)
+	{
+		final ResizableSemaphore probes = this.probes;
+		int id = -1;
+
+		try {
+			// Wait for the retry delay.
+			if (delay > 0) Thread.sleep(delay);
+
+			while (!this.cancellationToken.isCanceled()) {
+				// Wait for a probe permit, which the cancellation releases to all waiting threads.
+				probes.acquire();
+				this.workers.incrementAndGet();
+				if (this.cancellationToken.isCanceled()) {
+					this.release(probes);
+					break;
+				}
+
+				// Get a site from the pending queue.
+				id = state.next();
+				if (id >= 0) break;
+				this.release(probes);
+
+				// If no site waits for a retry, the thread is not needed.
+				if (!this.waitRetry(state)) {
+					if (state.isFinished()) this.finish(state);
+					return;
+				}
+			}
+		}
+		catch (InterruptedException exception) {
+			this.cancellationToken.cancel();
+		}
+		if (id < 0) {
+			// If no traceroutes are running, the campaign is done.
+			if (0 == state.getRunning()) this.end();
+			return;
+		}
+
+		// The delay of the retry, if the site returns to the pending state.
+		long retry = 0;
+		try {
+			// Run the traceroute to the site.
+			retry = this.process(state, id, probes);
+		}
+		finally {
+			if (this.cancellationToken.isCanceled()) {
+				// If no traceroutes are running, the campaign is done.
+				if (0 == state.getRunning()) this.end();
+			}
+			else if (SiteState.PENDING == state.getState(id)) {
+				// Start another virtual thread for the site.
+				this.executeVirtual(state, retry);
+			}
+			else if (state.isFinished()) {
+				this.finish(state);
+			}
+		}
+	}
+
+	/**
+	 * Runs the batch traceroute to the pending sites, a batch at a time, until no sites are pending.
+	 * @param state The campaign state.
+	 */
+	private void runBatch(CampaignState state)
+	{
+		final ArrayList<Integer> ids = new ArrayList<Integer>();
+		final ArrayList<InetAddress> destinations = new ArrayList<InetAddress>();
+
+		while (!this.cancellationToken.isCanceled()) {
+			// Get the sites of the batch from the pending queue.
+			ids.clear();
+			destinations.clear();
+			int id;
+			while ((ids.size() < this.batchSize) && ((id = state.next()) >= 0)) {
+				// Increment the traceroute attempts.
+				state.addAttempt(id);
+
+				// If the site already has a result whose upload failed, only upload the result.
+				TracerouteResult result = state.getResult(id);
+				if (null != result) {
+					this.submit(state, id, result, false);
+					continue;
+				}
+
+				try {
+					// If the IP address is null.
+					if (null == state.getAddress(id)) {
+						// Set the IP addresses.
+						state.setAddress(id, InetAddress.getByName(state.getSite(id)));
+					}
+				}
+				catch (IOException exception) {
+					// Retry the site, unless its failures exceed the budget.
+					this.retry(state, id, state.addProbeFailure(id), this.probeRetries);
+					continue;
+				}
+				ids.add(id);
+				destinations.add(state.getAddress(id));
+			}
+
+			// If no sites are ready.
+			if (ids.isEmpty()) {
+				// If a site waits for a retry, wait and continue the worker.
+				if (this.waitRetry(state)) continue;
+				break;
+			}
+
+			// Run the batch traceroute to the sites.
+			this.process(state, ids, destinations);
+		}
+
+		// Retire the worker.
+		this.workers.decrementAndGet();
+		if (this.cancellationToken.isCanceled()) {
+			// If no traceroutes are running, the campaign is done.
+			if (0 == state.getRunning()) this.end();
+		}
+		else if (state.isFinished()) {
+			this.finish(state);
+		}
+	}
+
+	/**
+	 * Runs the batch traceroute to running sites, uploads the results, and changes the state of the sites.
+	 * @param state The campaign state.
+	 * @param ids The site identifiers.
+	 * @param destinations The addresses of the sites.
+	 */
+	private void process(CampaignState state, List<Integer> ids, List<InetAddress> destinations)
+	{
+		List<TracerouteResult> results = null;
+		try {
+			// Reduce the effort of the traceroute as the deadline nears.
+			if (null != this.deadline) this.deadline.update();
+
+			// Run a traceroute for the destinations.
+			results = this.batch.run(destinations, this.cancellationToken);
+		}
+		catch (Exception exception) {
+			// The sites of a failed batch are retried.
+		}
+
+		for (int index = 0; index < ids.size(); index++) {
+			int id = ids.get(index);
+
+			if (this.cancellationToken.isCanceled()) {
+				// Set the traceroute as pending.
+				state.toPending(id);
+				continue;
+			}
+			TracerouteResult result = null != results ? results.get(index) : null;
+			if (null == result) {
+				// Retry the traceroute, unless its failures exceed the budget.
+				this.retry(state, id, state.addProbeFailure(id), this.probeRetries);
+				continue;
+			}
+
+			// Add the discovered links to the topology graph.
+			if (null != this.topology) this.topology.add(result);
+
+			// If the path did not change since the previous session, complete the site without uploading.
+			if ((null != this.changeDetector) && !this.changeDetector.isChanged(result)) {
+				this.complete(state, id, result);
+				continue;
+			}
+
+			// Upload the result.
+			this.submit(state, id, result, false);
+		}
+	}
+
+	/**
+	 * Ensures that a worker takes a site that returned to the pending state
+	 * outside the workers.
+	 * @param state The campaign state.
+	 * @param delay The delay before the retry of the site in milliseconds.
+	 */
+	private void revive(CampaignState state, long delay)
+	{
+		if (null != this.batch) {
+			// If the batch worker retired, start it.
+			if (this.workers.compareAndSet(0, 1)) this.executeBatch(state);
+			return;
+		}
+		if (ExecutionMode.VIRTUAL == this.mode) {
+			// Start a virtual thread for the site.
+			this.executeVirtual(state, delay);
+			return;
+		}
+		// If the workers retired, start a worker.
+		int limit = this.getLimit();
+		for (int count = this.workers.get(); count < limit; count = this.workers.get()) {
+			if (this.workers.compareAndSet(count, count + 1)) {
+				this.execute(state);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Waits for a short time, if a site waits for a retry.
+	 * @param state The campaign state.
+	 * @return True if a site waits for a retry, false otherwise.
+	 */
+	private boolean waitRetry(CampaignState state)
+	{
+		long delay = state.getRetryDelay();
+		if (delay < 0) return false;
+		try {
+			Thread.sleep(Math.max(1, Math.min(delay, TracerouteCampaign.permitTimeout)));
+		}
+		catch (InterruptedException exception) {
+			this.cancellationToken.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Releases a probe permit held by a virtual thread.
+	 * @param probes The probe permits.
+	 */
+	private void release(ResizableSemaphore probes)
+	{
+		this.workers.decrementAndGet();
+		probes.release();
+	}
+
+	/**
+	 * Runs the traceroute to a running site, uploads the result, and changes the
+	 * state of the site. If the site already has a result whose upload failed,
+	 * the method only uploads the result.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param probes The probe permit held by the virtual thread, which is released
+	 * after the traceroute, or null for a platform worker.
+	 * @return The delay before the retry of the site in milliseconds, or zero.
+	 */
+	private long process(CampaignState state, int id, ResizableSemaphore probes)
+	{
+		// Increment the traceroute attempts.
+		state.addAttempt(id);
+
+		TracerouteResult result = state.getResult(id);
+		if (null == result) {
+			long timestamp = System.nanoTime();
+			try {
+				long duration;
+				try {
+					// If the IP address is null.
+					if (null == state.getAddress(id)) {
+						// Set the IP addresses.
+						state.setAddress(id, InetAddress.getByName(state.getSite(id)));
+					}
+
+					// Reduce the effort of the traceroute as the deadline nears.
+					if (null != this.deadline) this.deadline.update();
+
+					// Run a traceroute for the specified destination.
+					result = this.traceroute.run(state.getAddress(id), this.cancellationToken);
+					duration = (System.nanoTime() - timestamp) / 1000000L;
+				}
+				finally {
+					// Release the probe permit, such that the upload does not hold it.
+					if (null != probes) this.release(probes);
+				}
+
+				if (this.cancellationToken.isCanceled()) {
+					// Set the traceroute as pending.
+					state.toPending(id);
+					return 0;
+				}
+				if (null == result) {
+					throw new IOException("The traceroute did not return a result.");
+				}
+
+				// Record the duration of the traceroute.
+				if (null != this.history) this.history.add(state.getSite(id), duration, true);
+
+				// Adapt the number of concurrent traceroutes.
+				if (null != this.controller) {
+					int limit = this.controller.add(result);
+					if (null != probes) probes.setPermits(limit);
+				}
+
+				// Add the discovered links to the topology graph.
+				if (null != this.topology) this.topology.add(result);
+			}
+			catch (Exception exception) {
+				// Record the duration of the failed traceroute.
+				if (null != this.history) this.history.add(state.getSite(id), (System.nanoTime() - timestamp) / 1000000L, false);
+				// Retry the traceroute, unless its failures exceed the budget.
+				return this.retry(state, id, state.addProbeFailure(id), this.probeRetries);
+			}
+
+			// If the path did not change since the previous session, complete the site without uploading.
+			if ((null != this.changeDetector) && !this.changeDetector.isChanged(result)) {
+				this.complete(state, id, result);
+				return 0;
+			}
+		}
+		else if (null != probes) {
+			// The site only needs the upload: release the probe permit.
+			this.release(probes);
+		}
+
+		// Upload the result.
+		return this.submit(state, id, result, null != probes);
+	}
+
+	/**
+	 * Submits the result of a running site to the upload stage, or uploads the
+	 * result if the campaign has no upload stage.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 * @param virtual True if the method runs on a virtual thread, which waits for an upload permit.
+	 * @return The delay before the retry of the site in milliseconds, or zero.
+	 */
+	private long submit(CampaignState state, int id, TracerouteResult result, boolean virtual)
+	{
+		// If the campaign has an upload stage, submit the result and continue with the next site.
+		if (null != this.stage) {
+			try {
+				this.stage.submit(state, id, result);
+			}
+			catch (InterruptedException exception) {
+				// Keep the result, and set the traceroute as pending.
+				state.setResult(id, result);
+				state.toPending(id);
+				this.cancellationToken.cancel();
+			}
+			return 0;
+		}
+
+		// Upload the result.
+		return this.upload(state, id, result, virtual);
+	}
+
+	/**
+	 * Uploads the result of a running site submitted to the upload stage, and
+	 * changes the state of the site. This method is called by the uploader threads.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 */
+	void upload(CampaignState state, int id, TracerouteResult result)
+	{
+		if (this.cancellationToken.isCanceled()) {
+			// Keep the result, and set the traceroute as pending.
+			state.setResult(id, result);
+			state.toPending(id);
+		}
+		else {
+			// Upload the result.
+			long delay = this.upload(state, id, result, false);
+			// If the upload is retried, ensure that a worker takes the site.
+			if (SiteState.PENDING == state.getState(id)) this.revive(state, delay);
+		}
+
+		if (this.cancellationToken.isCanceled()) {
+			// If no traceroutes are running, the campaign is done.
+			if (0 == state.getRunning()) this.end();
+		}
+		else if (state.isFinished()) {
+			this.finish(state);
+		}
+	}
+
+	/**
+	 * Uploads the result of a running site, and changes the state of the site.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 * @param virtual True if the method runs on a virtual thread, which waits for an upload permit.
+	 * @return The delay before the retry of the site in milliseconds, or zero.
+	 */
+	private long upload(CampaignState state, int id, TracerouteResult result, boolean virtual)
+	{
+		// Upload the result.
+		boolean success = false;
+		// On a virtual thread, wait for an upload permit.
+		if (virtual) this.uploads.acquireUninterruptibly();
+		try {
+			success = this.uploader.upload(state.getSite(id), result);
+		}
+		catch (Exception exception) {
+		}
+		finally {
+			if (virtual) this.uploads.release();
+		}
+
+		if (success) {
+			this.complete(state, id, result);
+			return 0;
+		}
+
+		// Keep the result, and retry the upload unless its failures exceed the budget.
+		state.setResult(id, result);
+		return this.retry(state, id, state.addUploadFailure(id), this.uploadRetries);
+	}
+
+	/**
+	 * Changes a running site to completed.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 */
+	private void complete(CampaignState state, int id, TracerouteResult result)
+	{
+		// Store the path fingerprint.
+		if (null != this.changeDetector) this.changeDetector.add(result);
+		// Record the site in the journal.
+		if (null != this.journal) this.journal.completed(state.getSite(id));
+		// Set the traceroute as completed.
+		state.setResult(id, null);
+		state.toCompleted(id);
+		// Notify the listener.
+		if (null != this.listener) this.listener.siteCompleted(state, id, result);
+	}
+
+	/**
+	 * Changes a running site to pending after a backoff delay, or to failed if the
+	 * failures reached the budget.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param failures The number of failures, including this one.
+	 * @param budget The number of failures after which the site fails.
+	 * @return The delay before the retry in milliseconds, or zero if the site failed.
+	 */
+	private long retry(CampaignState state, int id, int failures, int budget)
+	{
+		if (failures >= budget) {
+			// Record the site in the journal.
+			if (null != this.journal) this.journal.failed(state.getSite(id));
+			// Add the traceroute to the failed sites.
+			state.setResult(id, null);
+			state.toFailed(id);
+			// Notify the listener.
+			if (null != this.listener) this.listener.siteFailed(state, id);
+			return 0;
+		}
+
+		// Compute the exponential backoff, where the jitter spreads the retries over the second half of the delay.
+		long delay = Math.min(this.retryDelay << Math.min(failures - 1, 30), this.maximumRetryDelay);
+		delay = delay / 2 + (long)(this.random.nextDouble() * (delay / 2));
+
+		// Add the traceroute to the retry queue.
+		state.toRetry(id, delay);
+		return delay;
+	}
+
+	/**
+	 * Continues the current worker and adjusts the number of workers to the
+	 * current limit of concurrent traceroutes.
+	 * @param state The campaign state.
+	 */
+	private void schedule(CampaignState state)
+	{
+		int limit = this.getLimit();
+
+		// If there are more workers than the limit, retire the current worker.
+		for (int count = this.workers.get(); count > limit; count = this.workers.get()) {
+			if (this.workers.compareAndSet(count, count - 1)) return;
+		}
+
+		// If there are fewer workers than the limit, start additional workers.
+		for (int count = this.workers.get(); count < limit; count = this.workers.get()) {
+			if (this.workers.compareAndSet(count, count + 1)) this.execute(state);
+		}
+
+		// Continue the current worker.
+		this.execute(state);
+	}
+
+	/**
+	 * Completes the campaign once.
+	 * @param state The campaign state.
+	 */
+	private void finish(CampaignState state)
+	{
+		if ((state != this.state) || !this.finished.compareAndSet(false, true)) return;
+
+		// Record the end of the session in the journal, such that the next campaign starts over, unless sites were left out at the deadline.
+		if ((null != this.journal) && (0 == state.getPending())) {
+			this.journal.finish();
+			try {
+				this.journal.sync();
+			}
+			catch (Exception exception) {
+			}
+		}
+
+		// Notify the listener.
+		if (null != this.listener) this.listener.campaignFinished(state);
+		this.end();
+	}
+
+	/**
+	 * Ends the current campaign, after it finished or after the last running site stopped on cancellation.
+	 */
+	private void end()
+	{
+		// Stop the uploader threads.
+		if (null != this.stage) this.stage.stop();
+		// Restore the full traceroute effort.
+		if (null != this.deadline) this.deadline.restore();
+		this.done.countDown();
+	}
+}
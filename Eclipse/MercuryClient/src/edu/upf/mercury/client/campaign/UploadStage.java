@@ -0,0 +1,255 @@
+/* 
+ * Copyright (C) 2026 agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package edu.upf.mercury.client.campaign;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bikfalvi.java.net.core.TracerouteResult;
+import com.bikfalvi.java.threading.CancellationToken;
+import com.bikfalvi.java.threading.ThreadPool;
+
+/**
+ * A class representing the upload stage of a traceroute campaign, which
+ * decouples the traceroute workers from the web server. The workers submit
+ * the results to a bounded queue and continue with the next site, and a
+ * separate set of uploader threads drains the queue. A worker waits only when
+ * the queue is full, which slows the traceroutes to the rate of the uploads.
+ * <p>
+ * The stage records the queue depth, the time from the submission of a result
+ * to the end of its upload, the time of the uploads, and the time the workers
+ * waited for a full queue.
+ * <p>
+ * Each start of the stage has its own stop token, such that the uploader
+ * threads of a stopped run exit even if the stage is started again before
+ * they notice the stop.
+ * @author agent
+ *
+ */
+public final class UploadStage
+{
+	private static final long pollTimeout = 100;
+
+	/**
+	 * A class representing a result waiting to be uploaded.
+	 */
+	private static final class Upload
+	{
+		private final CampaignState state;
+		private final int id;
+		private final TracerouteResult result;
+		private final long timestamp = System.nanoTime();
+
+		/**
+		 * Creates a new upload instance.
+		 * @param state The campaign state.
+		 * @param id The site identifier.
+		 * @param result The traceroute result.
+		 */
+		public Upload(CampaignState state, int id, TracerouteResult result)
+		{
+			this.state = state;
+			this.id = id;
+			this.result = result;
+		}
+	}
+
+	private final ArrayBlockingQueue<Upload> queue;
+	private final int threads;
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong uploaded = new AtomicLong();
+	private final AtomicLong latency = new AtomicLong();
+	private final AtomicLong uploadTime = new AtomicLong();
+	private final AtomicLong blockedTime = new AtomicLong();
+	private final AtomicLong maximumDepth = new AtomicLong();
+	private volatile CancellationToken running = null;
+
+	/**
+	 * Creates a new upload stage.
+	 * @param capacity The capacity of the queue.
+	 * @param threads The number of uploader threads.
+	 */
+	public UploadStage(int capacity, int threads)
+	{
+		this.queue = new ArrayBlockingQueue<Upload>(capacity);
+		this.threads = threads;
+	}
+
+	/**
+	 * Gets the capacity of the queue.
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return this.queue.size() + this.queue.remainingCapacity();
+	}
+
+	/**
+	 * Gets the number of uploader threads.
+	 * @return The number of threads.
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * Gets the number of results waiting in the queue.
+	 * @return The queue depth.
+	 */
+	public int getDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Gets the largest number of results that waited in the queue.
+	 * @return The queue depth.
+	 */
+	public long getMaximumDepth() {
+		return this.maximumDepth.get();
+	}
+
+	/**
+	 * Gets the number of submitted results.
+	 * @return The number of results.
+	 */
+	public long getSubmitted() {
+		return this.submitted.get();
+	}
+
+	/**
+	 * Gets the number of upload attempts.
+	 * @return The number of uploads.
+	 */
+	public long getUploaded() {
+		return this.uploaded.get();
+	}
+
+	/**
+	 * Gets the mean time from the submission of a result to the end of its upload.
+	 * @return The time in milliseconds.
+	 */
+	public double getMeanLatency()
+	{
+		long uploaded = this.uploaded.get();
+		return uploaded > 0 ? this.latency.get() / 1000000.0 / uploaded : 0;
+	}
+
+	/**
+	 * Gets the mean time of an upload.
+	 * @return The time in milliseconds.
+	 */
+	public double getMeanUploadTime()
+	{
+		long uploaded = this.uploaded.get();
+		return uploaded > 0 ? this.uploadTime.get() / 1000000.0 / uploaded : 0;
+	}
+
+	/**
+	 * Gets the total time the workers waited for a full queue.
+	 * @return The time in milliseconds.
+	 */
+	public long getBlockedTime() {
+		return this.blockedTime.get() / 1000000L;
+	}
+
+	/**
+	 * Submits a result to the queue, and waits if the queue is full.
+	 * @param state The campaign state.
+	 * @param id The site identifier.
+	 * @param result The traceroute result.
+	 * @throws InterruptedException
+	 */
+	public void submit(CampaignState state, int id, TracerouteResult result) throws InterruptedException
+	{
+		Upload upload = new Upload(state, id, result);
+
+		// Try to add the result without waiting.
+		if (!this.queue.offer(upload)) {
+			// Wait for the uploader threads, and record the waiting time.
+			long timestamp = System.nanoTime();
+			this.queue.put(upload);
+			this.blockedTime.addAndGet(System.nanoTime() - timestamp);
+		}
+		this.submitted.incrementAndGet();
+
+		// Update the maximum depth.
+		long depth = this.queue.size();
+		for (long maximum = this.maximumDepth.get(); depth > maximum; maximum = this.maximumDepth.get()) {
+			if (this.maximumDepth.compareAndSet(maximum, depth)) break;
+		}
+	}
+
+	/**
+	 * Starts the uploader threads of a campaign.
+	 * @param campaign The campaign.
+	 * @param virtual True if the uploader threads are virtual threads, false otherwise.
+	 */
+	void start(final TracerouteCampaign campaign, boolean virtual)
+	{
+		// Create the stop token of this run.
+		final CancellationToken running = new CancellationToken();
+		this.running = running;
+		for (int index = 0; index < this.threads; index++) {
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					UploadStage.this.run(campaign, running);
+				}
+			};
+			if (virtual) ThreadPool.executeVirtual(task); else ThreadPool.execute(task);
+		}
+	}
+
+	/**
+	 * Stops the uploader threads of the current run.
+	 */
+	void stop() {
+		CancellationToken running = this.running;
+		if (null != running) running.cancel();
+	}
+
+	/**
+	 * Uploads the results from the queue, until the run stops.
+	 * @param campaign The campaign.
+	 * @param running The stop token of the run.
+	 */
+	private void run(TracerouteCampaign campaign, CancellationToken running)
+	{
+		while (!running.isCanceled()) {
+			Upload upload;
+			try {
+				upload = this.queue.poll(UploadStage.pollTimeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException exception) {
+				return;
+			}
+			if (null == upload) continue;
+
+			// Upload the result.
+			long timestamp = System.nanoTime();
+			campaign.upload(upload.state, upload.id, upload.result);
+
+			// Update the statistics.
+			long now = System.nanoTime();
+			this.uploaded.incrementAndGet();
+			this.uploadTime.addAndGet(now - timestamp);
+			this.latency.addAndGet(now - upload.timestamp);
+		}
+	}
+}